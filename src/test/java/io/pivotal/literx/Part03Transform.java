@@ -82,10 +82,29 @@ public class Part03Transform {
 	}
 
 	private User toUpperCase(User user) {
+		if (isUpperCase(user.getUsername()) && isUpperCase(user.getFirstname()) && isUpperCase(user.getLastname())) {
+			return user;
+		}
 		final String userName = user.getUsername().toUpperCase();
 		final String firstName = user.getFirstname().toUpperCase();
 		final String lastName = user.getLastname().toUpperCase();
 		return new User(userName, firstName, lastName);
 	}
 
+	/**
+	 * @return {@code true} if {@link String#toUpperCase()} has nothing to change: no code
+	 * point changes case or is lower-case or title-case, which covers the ones like
+	 * {@code ß} that become several characters
+	 */
+	private static boolean isUpperCase(String value) {
+		for (int i = 0; i < value.length(); ) {
+			int codePoint = value.codePointAt(i);
+			if (Character.isLowerCase(codePoint) || Character.isTitleCase(codePoint) || Character.toUpperCase(codePoint) != codePoint) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return true;
+	}
+
 }
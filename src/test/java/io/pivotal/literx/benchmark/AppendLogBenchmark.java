@@ -0,0 +1,71 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.ConcurrentAppendLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Write throughput of the {@link ConcurrentAppendLog} backing the user repository, against the
+ * synchronized list it would otherwise take to make {@code ArrayList} safe. Run {@link #main}
+ * to get the numbers for 1, 4, 16 and 64 concurrent writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppendLogBenchmark {
+
+	private static final int[] WRITERS = {1, 4, 16, 64};
+
+	private ConcurrentAppendLog<User> log;
+
+	private List<User> synchronizedList;
+
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		log = new ConcurrentAppendLog<>();
+		synchronizedList = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	@Benchmark
+	public void appendLog() {
+		log.add(User.SKYLER);
+	}
+
+	@Benchmark
+	public void synchronizedArrayList() {
+		synchronizedList.add(User.SKYLER);
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		for (int writers : WRITERS) {
+			new Runner(new OptionsBuilder()
+					.include(AppendLogBenchmark.class.getSimpleName())
+					.threads(writers)
+					.build())
+					.run();
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package io.pivotal.literx.benchmark;
+
+import io.pivotal.literx.domain.User;
+
+/**
+ * Synthetic users for benchmarks.
+ */
+final class BenchmarkUsers {
+
+	private BenchmarkUsers() {
+	}
+
+	static User[] create(int count) {
+		User[] users = new User[count];
+		for (int i = 0; i < count; i++) {
+			users[i] = new User("user" + i, "Firstname" + i, "Lastname" + i);
+		}
+		return users;
+	}
+
+}
@@ -0,0 +1,148 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.BlockingIterable;
+import io.pivotal.literx.repository.BlockingRepository;
+import io.pivotal.literx.repository.BlockingUserRepository;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Per-element cost of the reactive to blocking bridges of {@code Part07ReactiveToBlocking}
+ * and of the blocking to reactive ones of {@code Part09BlockingToReactive}, against
+ * repositories without simulated latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockingBridgeBenchmark {
+
+	static final int ELEMENTS = 1000;
+
+	private ReactiveRepository<User> reactiveRepository;
+
+	private BlockingRepository<User> blockingRepository;
+
+	private BlockingRepository<User> discardingRepository;
+
+	private Flux<User> userFlux;
+
+
+	@Setup
+	public void setup(Blackhole bh) {
+		User[] users = BenchmarkUsers.create(ELEMENTS);
+		reactiveRepository = new ReactiveUserRepository(LatencyModel.none(), users);
+		blockingRepository = new BlockingUserRepository(0, users);
+		discardingRepository = new DiscardingRepository(bh);
+		userFlux = Flux.fromArray(users);
+	}
+
+	@Benchmark
+	public User block() {
+		return reactiveRepository.findFirst().block();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void toIterable(Blackhole bh) {
+		for (User user : reactiveRepository.findAll().toIterable()) {
+			bh.consume(user);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void blockingIterable(Blackhole bh) {
+		for (User user : new BlockingIterable<>(reactiveRepository.findAll())) {
+			bh.consume(user);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void publishOnToIterable(Blackhole bh) {
+		for (User user : userFlux.publishOn(Schedulers.parallel()).toIterable()) {
+			bh.consume(user);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void publishOnBlockingIterable(Blackhole bh) {
+		for (User user : new BlockingIterable<>(userFlux.publishOn(Schedulers.parallel()))) {
+			bh.consume(user);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public User subscribeOnElastic() {
+		return Flux.defer(() -> Flux.fromIterable(blockingRepository.findAll()))
+				.subscribeOn(Schedulers.elastic())
+				.blockLast();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void publishOnParallel() {
+		userFlux.publishOn(Schedulers.parallel())
+				.doOnNext(discardingRepository::save)
+				.then()
+				.block();
+	}
+
+
+	private static final class DiscardingRepository implements BlockingRepository<User> {
+
+		private final Blackhole bh;
+
+		DiscardingRepository(Blackhole bh) {
+			this.bh = bh;
+		}
+
+		@Override
+		public void save(User user) {
+			bh.consume(user);
+		}
+
+		/**
+		 * Nothing is kept, so nothing is ever found.
+		 */
+		@Override
+		public User findFirst() {
+			return null;
+		}
+
+		@Override
+		public Iterable<User> findAll() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public User findById(String id) {
+			return null;
+		}
+	}
+
+}
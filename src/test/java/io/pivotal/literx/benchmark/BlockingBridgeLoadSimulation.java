@@ -0,0 +1,94 @@
+package io.pivotal.literx.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.BlockingRepository;
+import io.pivotal.literx.repository.BlockingUserRepository;
+import io.pivotal.literx.scheduler.BlockingIoSchedulers;
+import io.pivotal.literx.scheduler.BoundedElasticScheduler;
+import io.pivotal.literx.scheduler.BoundedElasticScheduler.RejectionPolicy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Fires a burst of concurrent subscriptions that each bridge a blocking
+ * {@link BlockingRepository#findFirst()} call, and reports the peak thread count and
+ * latency percentiles for {@link Schedulers#elastic()}, {@link BoundedElasticScheduler} and
+ * {@link BlockingIoSchedulers}, which uses virtual threads when the JDK has them. Virtual
+ * threads do not show in the thread count, only their carrier threads do.
+ *
+ * Arguments: number of subscriptions (10000), blocking call latency in ms (10), maximum
+ * threads of the bounded scheduler (256).
+ */
+public final class BlockingBridgeLoadSimulation {
+
+	private BlockingBridgeLoadSimulation() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int subscriptions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		long delayInMs = args.length > 1 ? Long.parseLong(args[1]) : 10;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+		run("elastic", Schedulers.elastic(), subscriptions, delayInMs);
+
+		BoundedElasticScheduler bounded = new BoundedElasticScheduler("blocking-io", maxThreads, subscriptions,
+				Duration.ofSeconds(60), RejectionPolicy.ABORT);
+		run("bounded(" + maxThreads + ")", bounded, subscriptions, delayInMs);
+		System.out.printf("bounded(%d): average wait %d ms, max wait %d ms, rejected %d%n", maxThreads,
+				bounded.getAverageWaitTime().toMillis(), bounded.getMaxWaitTime().toMillis(), bounded.getRejectedTasks());
+		bounded.shutdown();
+
+		Scheduler blockingIo = BlockingIoSchedulers.newBlockingIo("blocking-io", maxThreads, subscriptions);
+		run(BlockingIoSchedulers.isVirtualThreadsAvailable() ? "virtual" : "virtual (unavailable, bounded fallback)",
+				blockingIo, subscriptions, delayInMs);
+		blockingIo.shutdown();
+	}
+
+	private static void run(String name, Scheduler scheduler, int subscriptions, long delayInMs) throws InterruptedException {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int baseline = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+		BlockingRepository<User> repository = new BlockingUserRepository(delayInMs);
+		long[] latencies = new long[subscriptions];
+		AtomicInteger errors = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(subscriptions);
+		long begin = System.nanoTime();
+		for (int i = 0; i < subscriptions; i++) {
+			int index = i;
+			long start = System.nanoTime();
+			Mono.fromCallable(repository::findFirst)
+					.subscribeOn(scheduler)
+					.subscribe(
+							user -> {
+								latencies[index] = System.nanoTime() - start;
+								done.countDown();
+							},
+							error -> {
+								errors.incrementAndGet();
+								latencies[index] = Long.MAX_VALUE;
+								done.countDown();
+							});
+		}
+		done.await(10, TimeUnit.MINUTES);
+		long total = System.nanoTime() - begin;
+		Arrays.sort(latencies);
+		System.out.printf("%s: %d subscriptions in %d ms, %d threads added at peak, p50 %d ms, p99 %d ms, max %d ms, errors %d%n",
+				name, subscriptions, TimeUnit.NANOSECONDS.toMillis(total), threads.getPeakThreadCount() - baseline,
+				millis(latencies, 0.5), millis(latencies, 0.99), millis(latencies, 1), errors.get());
+	}
+
+	private static long millis(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+		return TimeUnit.NANOSECONDS.toMillis(sortedLatencies[Math.max(index, 0)]);
+	}
+
+}
@@ -0,0 +1,105 @@
+package io.pivotal.literx.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.CachingReactiveRepository;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ReactiveRepository#findById(String)} with and without a
+ * {@link CachingReactiveRepository} in front of a repository with a 1 ms round trip, the
+ * looked up ids following a Zipfian distribution like hot users do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheBenchmark {
+
+	private static final int LOOKUPS = 1 << 16;
+
+	private static final double ZIPF_EXPONENT = 0.99;
+
+	@Param({"100000"})
+	private int userCount;
+
+	@Param({"100", "1000", "10000"})
+	private int cacheSize;
+
+	private ReactiveRepository<User> repository;
+
+	private CachingReactiveRepository<User> cachingRepository;
+
+	private String[] usernames;
+
+	private int next;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(userCount);
+		repository = new ReactiveUserRepository(1, users);
+		cachingRepository = new CachingReactiveRepository<>(repository, User::getUsername, cacheSize, Duration.ofMinutes(10));
+		usernames = zipfian(users, LOOKUPS, new Random(42));
+	}
+
+	@TearDown(Level.Trial)
+	public void printHitRatio() {
+		long hits = cachingRepository.getHitCount();
+		long lookups = hits + cachingRepository.getMissCount();
+		if (lookups > 0) {
+			System.out.printf("%nhit ratio %.3f, %d evictions%n", (double) hits / lookups, cachingRepository.getEvictionCount());
+		}
+	}
+
+	@Benchmark
+	public User uncached() {
+		return repository.findById(usernames[next++ & (LOOKUPS - 1)]).block();
+	}
+
+	@Benchmark
+	public User cached() {
+		return cachingRepository.findById(usernames[next++ & (LOOKUPS - 1)]).block();
+	}
+
+
+	/**
+	 * Sample usernames, the user of rank {@code k} being looked up with a probability
+	 * proportional to {@code 1 / k^ZIPF_EXPONENT}.
+	 */
+	private static String[] zipfian(User[] users, int count, Random random) {
+		double[] cumulative = new double[users.length];
+		double sum = 0;
+		for (int k = 0; k < users.length; k++) {
+			sum += 1 / Math.pow(k + 1, ZIPF_EXPONENT);
+			cumulative[k] = sum;
+		}
+		String[] sample = new String[count];
+		for (int i = 0; i < count; i++) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+			sample[i] = users[Math.min(index < 0 ? -index - 1 : index, users.length - 1)].getUsername();
+		}
+		return sample;
+	}
+
+}
@@ -0,0 +1,70 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.AsyncTransform;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Enriches a {@code findAll()} stream with a {@code findById} call on a slow repository, at
+ * increasing concurrency limits. Throughput is reported per element, and the sample time
+ * mode gives the latency distribution of a whole scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrichmentBenchmark {
+
+	static final int ELEMENTS = 64;
+
+	@Param({"5"})
+	private long delayInMs;
+
+	@Param({"1", "4", "16", "64"})
+	private int maxConcurrency;
+
+	@Param({"false", "true"})
+	private boolean ordered;
+
+	private ReactiveRepository<User> source;
+
+	private ReactiveRepository<User> enrichment;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(ELEMENTS);
+		source = new ReactiveUserRepository(LatencyModel.none(), users);
+		enrichment = new ReactiveUserRepository(LatencyModel.fixed(delayInMs), users);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public User enrich() {
+		if (ordered) {
+			return AsyncTransform.flatMapMonoSequential(source.findAll(), u -> enrichment.findById(u.getUsername()), maxConcurrency)
+					.blockLast();
+		}
+		return AsyncTransform.flatMapMono(source.findAll(), u -> enrichment.findById(u.getUsername()), maxConcurrency)
+				.blockLast();
+	}
+
+}
@@ -0,0 +1,81 @@
+package io.pivotal.literx.benchmark;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.BatchingReactiveRepository;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@code fanIn} concurrent {@link ReactiveRepository#findById(String)} calls against a
+ * repository with a 1 ms round trip, each paying its own round trip or coalesced by a
+ * {@link BatchingReactiveRepository}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FanInBenchmark {
+
+	private static final int USER_COUNT = 10_000;
+
+	@Param({"10", "1000"})
+	private int fanIn;
+
+	private ReactiveRepository<User> repository;
+
+	private BatchingReactiveRepository<User> batchingRepository;
+
+	private String[] usernames;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(USER_COUNT);
+		repository = new ReactiveUserRepository(1, users);
+		batchingRepository = new BatchingReactiveRepository<>(repository, User::getUsername, 1000, Duration.ofMillis(1));
+		Random random = new Random(42);
+		usernames = new String[fanIn];
+		for (int i = 0; i < fanIn; i++) {
+			usernames[i] = users[random.nextInt(USER_COUNT)].getUsername();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void printRoundTrips() {
+		long lookups = batchingRepository.getLookupCount();
+		if (lookups > 0) {
+			System.out.printf("%n%d lookups in %d round trips%n", lookups, batchingRepository.getBatchCount());
+		}
+	}
+
+	@Benchmark
+	public User findById() {
+		return Flux.fromArray(usernames).flatMap(repository::findById, fanIn).blockLast();
+	}
+
+	@Benchmark
+	public User batchedFindById() {
+		return Flux.fromArray(usernames).flatMap(batchingRepository::findById, fanIn).blockLast();
+	}
+
+}
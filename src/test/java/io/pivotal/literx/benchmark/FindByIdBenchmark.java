@@ -0,0 +1,61 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup latency of {@link ReactiveUserRepository#findById(String)} as the repository grows,
+ * which should stay flat now that lookups go through the username index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FindByIdBenchmark {
+
+	private static final int LOOKUPS = 1024;
+
+	@Param({"4", "10000", "1000000", "10000000"})
+	private int userCount;
+
+	private ReactiveRepository<User> repository;
+
+	private String[] usernames;
+
+	private int next;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(userCount);
+		repository = new ReactiveUserRepository(0, users);
+		Random random = new Random(42);
+		usernames = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			usernames[i] = users[random.nextInt(userCount)].getUsername();
+		}
+	}
+
+	@Benchmark
+	public User findById() {
+		return repository.findById(usernames[next++ & (LOOKUPS - 1)]).block();
+	}
+
+}
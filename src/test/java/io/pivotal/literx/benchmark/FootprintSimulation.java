@@ -0,0 +1,52 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.function.Supplier;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.ColumnarUserRepository;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Heap retained per user by {@link ReactiveUserRepository}, which keeps {@link User}
+ * objects, and by {@link ColumnarUserRepository}. Every user is saved with its own
+ * {@link String}s, as if read from the network, drawing first names among 500 and last
+ * names among 5000.
+ *
+ * Argument: number of users (1000000). 50M users need about {@code -Xmx16g}.
+ */
+public final class FootprintSimulation {
+
+	private FootprintSimulation() {
+	}
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		run("objects", count, () -> new ReactiveUserRepository(LatencyModel.none(), new User[0]));
+		run("columnar", count, ColumnarUserRepository::new);
+	}
+
+	private static void run(String name, int count, Supplier<ReactiveRepository<User>> repositories) {
+		long before = usedHeap();
+		ReactiveRepository<User> repository = repositories.get();
+		repository.save(Flux.range(0, count).map(FootprintSimulation::user)).block();
+		long after = usedHeap();
+		System.out.printf("%s: %d users, %d MB, %.1f bytes per user%n", name, repository.findAll().count().block(),
+				(after - before) >> 20, (double) (after - before) / count);
+	}
+
+	private static User user(int i) {
+		return new User("user" + i, new String("Firstname" + i % 500), new String("Lastname" + (i * 7919) % 5000));
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
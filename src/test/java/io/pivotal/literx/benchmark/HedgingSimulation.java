@@ -0,0 +1,85 @@
+package io.pivotal.literx.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import io.pivotal.literx.repository.ReplicatedReactiveRepository;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Latency percentiles and backend load of {@code findById} lookups against two replicas
+ * with a long latency tail, in virtual time: a single replica, both replicas with
+ * {@link Mono#first}, and {@link ReplicatedReactiveRepository} hedging after a fixed delay
+ * or after the observed p95.
+ *
+ * Argument: number of lookups (10000).
+ */
+public final class HedgingSimulation {
+
+	private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 1};
+
+	private static final long[] DELAYS_IN_MS = {5, 10, 100, 200};
+
+	private HedgingSimulation() {
+	}
+
+	public static void main(String[] args) {
+		int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+		run("single replica", lookups, (replicas, timer) -> replicas.get(0)::findById);
+		run("Mono.first", lookups, (replicas, timer) ->
+				id -> Mono.first(replicas.get(0).findById(id), replicas.get(1).findById(id)));
+		run("hedged after 10 ms", lookups, (replicas, timer) ->
+				new ReplicatedReactiveRepository<>(replicas, Duration.ofMillis(10), timer)::findById);
+		run("hedged after p95", lookups, (replicas, timer) ->
+				new ReplicatedReactiveRepository<>(replicas, 0.95, Duration.ofMillis(10), timer)::findById);
+	}
+
+	private static void run(String name, int lookups, Strategy strategy) {
+		VirtualTimeScheduler timer = new VirtualTimeScheduler();
+		AtomicLong backendCalls = new AtomicLong();
+		LatencyModel tail = LatencyModel.percentiles(PERCENTILES, DELAYS_IN_MS);
+		LatencyModel counted = () -> {
+			backendCalls.incrementAndGet();
+			return tail.nextDelayInMs();
+		};
+		List<ReactiveRepository<User>> replicas = Arrays.asList(
+				new ReactiveUserRepository(counted, timer, User.WALTER),
+				new ReactiveUserRepository(counted, timer, User.WALTER));
+		Function<String, Mono<User>> findById = strategy.create(replicas, timer);
+		long[] latencies = new long[lookups];
+		for (int i = 0; i < lookups; i++) {
+			long start = timer.now(TimeUnit.MILLISECONDS);
+			MonoProcessor<User> user = findById.apply("wwhite").subscribe();
+			while (!user.isTerminated()) {
+				timer.advanceTimeBy(Duration.ofMillis(1));
+			}
+			latencies[i] = timer.now(TimeUnit.MILLISECONDS) - start;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%s: p50 %d ms, p99 %d ms, p99.9 %d ms, max %d ms, %.2f backend calls per lookup%n", name,
+				percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+				latencies[lookups - 1], (double) backendCalls.get() / lookups);
+	}
+
+	private static long percentile(long[] sortedLatencies, double percentile) {
+		return sortedLatencies[(int) Math.max(0, Math.ceil(percentile * sortedLatencies.length) - 1)];
+	}
+
+
+	private interface Strategy {
+
+		Function<String, Mono<User>> create(List<ReactiveRepository<User>> replicas, VirtualTimeScheduler timer);
+	}
+
+}
@@ -0,0 +1,58 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+/**
+ * Per-element cost of the merges taught in {@code Part04Merge}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+	static final int ELEMENTS = 1000;
+
+	private Flux<User> flux1;
+
+	private Flux<User> flux2;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(ELEMENTS);
+		flux1 = Flux.fromArray(Arrays.copyOfRange(users, 0, ELEMENTS / 2));
+		flux2 = Flux.fromArray(Arrays.copyOfRange(users, ELEMENTS / 2, ELEMENTS));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void mergeWith(Blackhole bh) {
+		flux1.mergeWith(flux2).subscribe(bh::consume);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void concatWith(Blackhole bh) {
+		flux1.concatWith(flux2).subscribe(bh::consume);
+	}
+
+}
@@ -0,0 +1,128 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.MergeOrdered;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import io.pivotal.literx.repository.ShardedReactiveRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+/**
+ * Scanning {@code shards} repositories each sorted by username into a single sorted
+ * sequence, by sorting their merged values and with {@link MergeOrdered}, either to the
+ * end or only for the first page of 100 users. The {@code sharded} benchmarks do the same
+ * through {@link ShardedReactiveRepository#findAll(java.util.Comparator)} over
+ * {@link ReactiveUserRepository} shards without latency, which either scan their username
+ * index or, for a comparator they do not know, sort their own users first. Run with
+ * {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeOrderedBenchmark {
+
+	private static final int USERS = 100_000;
+
+	private static final int PAGE = 100;
+
+	private static final Comparator<User> BY_USERNAME = ReactiveUserRepository.BY_USERNAME;
+
+	// the same order, but not the instance the shards have an index for
+	private static final Comparator<User> UNINDEXED_BY_USERNAME = Comparator.comparing(User::getUsername);
+
+	@Param({"4", "16"})
+	private int shards;
+
+	private Flux<User>[] sources;
+
+	private ShardedReactiveRepository<User> repository;
+
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		// saved in no particular order, as already sorted runs would make sorting nearly linear
+		List<User> users = Arrays.asList(BenchmarkUsers.create(USERS));
+		Collections.shuffle(users, new Random(42));
+		List<List<User>> partitions = new ArrayList<>();
+		for (int shard = 0; shard < shards; shard++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (User user : users) {
+			partitions.get(Math.floorMod(user.getUsername().hashCode(), shards)).add(user);
+		}
+		sources = (Flux<User>[]) new Flux<?>[shards];
+		List<ReactiveRepository<User>> repositories = new ArrayList<>();
+		for (int shard = 0; shard < shards; shard++) {
+			User[] sorted = partitions.get(shard).toArray(new User[0]);
+			Arrays.sort(sorted, BY_USERNAME);
+			sources[shard] = Flux.fromArray(sorted);
+			repositories.add(new ReactiveUserRepository(LatencyModel.none(), partitions.get(shard).toArray(new User[0])));
+		}
+		repository = new ShardedReactiveRepository<>(repositories, User::getUsername);
+	}
+
+	@Benchmark
+	public Long mergeThenSort() {
+		return Flux.merge(sources).sort(BY_USERNAME).count().block();
+	}
+
+	@Benchmark
+	public Long mergeOrdered() {
+		return MergeOrdered.merge(BY_USERNAME, sources).count().block();
+	}
+
+	@Benchmark
+	public Long firstPageMergeThenSort() {
+		return Flux.merge(sources).sort(BY_USERNAME).take(PAGE).count().block();
+	}
+
+	@Benchmark
+	public Long firstPageMergeOrdered() {
+		return MergeOrdered.merge(BY_USERNAME, sources).take(PAGE).count().block();
+	}
+
+	@Benchmark
+	public Long shardedSortEachShard() {
+		return repository.findAll(UNINDEXED_BY_USERNAME).count().block();
+	}
+
+	@Benchmark
+	public Long shardedIndexedScan() {
+		return repository.findAll(BY_USERNAME).count().block();
+	}
+
+	@Benchmark
+	public Long firstPageShardedSortEachShard() {
+		return repository.findAll(UNINDEXED_BY_USERNAME).take(PAGE).count().block();
+	}
+
+	@Benchmark
+	public Long firstPageShardedIndexedScan() {
+		return repository.findAll(BY_USERNAME).take(PAGE).count().block();
+	}
+
+}
@@ -0,0 +1,70 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.InstrumentedReactiveRepository;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import io.pivotal.literx.repository.RepositoryMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of {@link InstrumentedReactiveRepository} over a {@link ReactiveUserRepository}
+ * without latency, where the repository itself costs the least: a lookup, paying the
+ * per-call costs, and a scan, paying the per-element ones. Calls are either all timed or
+ * 1 out of {@value #LATENCY_SAMPLING} is. Run with {@code -t} to see the effect of
+ * concurrent recording.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(1)
+@Fork(1)
+public class MetricsBenchmark {
+
+	private static final int USER_COUNT = 1000;
+
+	private static final int LATENCY_SAMPLING = 16;
+
+	@Param({"none", "timed", "sampled"})
+	private String instrumentation;
+
+	private ReactiveRepository<User> repository;
+
+
+	@Setup
+	public void setup() {
+		repository = new ReactiveUserRepository(0, BenchmarkUsers.create(USER_COUNT));
+		if (instrumentation.equals("timed")) {
+			repository = new InstrumentedReactiveRepository<>(repository);
+		}
+		else if (instrumentation.equals("sampled")) {
+			repository = new InstrumentedReactiveRepository<>(repository, new RepositoryMetrics(), LATENCY_SAMPLING);
+		}
+	}
+
+	@Benchmark
+	public User findById() {
+		return repository.findById("user42").block();
+	}
+
+	@Benchmark
+	public Long findAll() {
+		return repository.findAll().count().block();
+	}
+
+}
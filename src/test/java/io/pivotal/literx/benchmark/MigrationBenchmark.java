@@ -0,0 +1,97 @@
+package io.pivotal.literx.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.AsyncTransform;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Full-table migration, {@code findAll} then a CPU bound transformation then
+ * {@code saveAll}, with the transformation running on 1 to 8 parallel rails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationBenchmark {
+
+	static final int ELEMENTS = 100_000;
+
+	private static final int PAGE_SIZE = 1024;
+
+	@Param({"1", "2", "4", "8"})
+	private int rails;
+
+	@Param({"false", "true"})
+	private boolean ordered;
+
+	private Scheduler scheduler;
+
+	private ReactiveUserRepository source;
+
+	private ReactiveRepository<User> target;
+
+
+	@Setup
+	public void setup() {
+		scheduler = Schedulers.newParallel("rails", rails);
+		source = new ReactiveUserRepository(LatencyModel.none(), BenchmarkUsers.create(ELEMENTS));
+	}
+
+	@Setup(Level.Invocation)
+	public void createTarget() {
+		target = new ReactiveUserRepository(LatencyModel.none(), new User[]{});
+	}
+
+	@TearDown
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void migrate() {
+		Flux<User> users = source.findAll(PAGE_SIZE);
+		Flux<User> migrated = ordered ?
+				AsyncTransform.parallelMapSequential(users, MigrationBenchmark::migrate, rails, scheduler) :
+				AsyncTransform.parallelMap(users, MigrationBenchmark::migrate, rails, scheduler);
+		target.saveAll(migrated, PAGE_SIZE, Duration.ofMillis(10)).blockLast();
+	}
+
+
+	/**
+	 * Stands for a CPU bound transformation: upper-cases the user and hashes its username.
+	 */
+	static User migrate(User user) {
+		String username = user.getUsername().toUpperCase();
+		int hash = 0;
+		for (int i = 0; i < 64; i++) {
+			hash = 31 * hash + username.hashCode() * i;
+		}
+		return new User(username + "-" + Integer.toHexString(hash), user.getFirstname().toUpperCase(), user.getLastname().toUpperCase());
+	}
+
+}
@@ -0,0 +1,171 @@
+package io.pivotal.literx.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.ColumnarUserRepository;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.OffHeapUserRepository;
+import io.pivotal.literx.repository.OffHeapUserStore;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Garbage collection and startup costs of keeping users on the heap, as
+ * {@link ReactiveUserRepository} and {@link ColumnarUserRepository} do, or off the heap
+ * with {@link OffHeapUserRepository}.
+ *
+ * With each repository holding the users, an allocation-heavy workload runs and the time
+ * spent in collections is reported, as well as the duration of a full collection. Then a
+ * restart is simulated: {@link ReactiveUserRepository} reloads the users from a file,
+ * while a persisted {@link OffHeapUserStore} maps its files again.
+ *
+ * Argument: number of users (5000000), with {@code -Xmx3g} or more.
+ */
+public final class OffHeapSimulation {
+
+	private static final int GARBAGE_ALLOCATIONS = 20_000_000;
+
+	private static final int GARBAGE_RETAINED = 100_000;
+
+	private OffHeapSimulation() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		Path directory = Files.createTempDirectory("users");
+
+		collect("objects", count, () -> new ReactiveUserRepository(LatencyModel.none(), new User[0]));
+		collect("columnar", count, ColumnarUserRepository::new);
+		collect("off-heap", count, () -> new OffHeapUserRepository(OffHeapUserStore.allocateDirect()));
+
+		Path dump = directory.resolve("users.bin");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dump)))) {
+			for (int i = 0; i < count; i++) {
+				User user = user(i);
+				out.writeUTF(user.getUsername());
+				out.writeUTF(user.getFirstname());
+				out.writeUTF(user.getLastname());
+			}
+		}
+		try (OffHeapUserRepository repository = new OffHeapUserRepository(OffHeapUserStore.open(directory.resolve("store")))) {
+			repository.save(Flux.range(0, count).map(OffHeapSimulation::user)).block();
+		}
+		fullCollection();
+
+		start("objects, reloaded", () -> {
+			ReactiveRepository<User> repository = new ReactiveUserRepository(LatencyModel.none(), new User[0]);
+			repository.save(Flux.fromIterable(() -> new UserReader(dump, count))).block();
+			return repository.findById("user" + (count - 1)).block();
+		});
+		start("off-heap, remapped", () -> {
+			try (OffHeapUserRepository repository = new OffHeapUserRepository(OffHeapUserStore.open(directory.resolve("store")))) {
+				return repository.findById("user" + (count - 1)).block();
+			}
+		});
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	private static void collect(String name, int count, Callable<ReactiveRepository<User>> repositories) throws Exception {
+		ReactiveRepository<User> repository = repositories.call();
+		repository.save(Flux.range(0, count).map(OffHeapSimulation::user)).block();
+		fullCollection();
+		long collections = collectionCount();
+		long collectionTime = collectionTimeInMs();
+		long start = System.nanoTime();
+		Object[] retained = new Object[GARBAGE_RETAINED];
+		for (int i = 0; i < GARBAGE_ALLOCATIONS; i++) {
+			retained[i % GARBAGE_RETAINED] = new byte[128];
+		}
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		collections = collectionCount() - collections;
+		collectionTime = collectionTimeInMs() - collectionTime;
+		long fullCollection = fullCollection();
+		System.out.printf("%s: workload %d ms, %d collections taking %d ms, %.1f ms each, full collection %d ms (%s)%n",
+				name, elapsed, collections, collectionTime, (double) collectionTime / Math.max(collections, 1), fullCollection,
+				repository.findById("user0").block().getUsername());
+	}
+
+	private static void start(String name, Callable<User> startup) throws Exception {
+		long start = System.nanoTime();
+		User user = startup.call();
+		System.out.printf("%s: ready in %d ms (%s)%n", name, (System.nanoTime() - start) / 1_000_000, user.getUsername());
+		fullCollection();
+	}
+
+	private static User user(int i) {
+		return new User("user" + i, "Firstname" + i % 500, "Lastname" + (i * 7919) % 5000);
+	}
+
+	private static long fullCollection() {
+		long start = System.nanoTime();
+		System.gc();
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long collectionCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long collectionTimeInMs() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+
+	/**
+	 * Reads back the users written with {@link DataOutputStream#writeUTF(String)}.
+	 */
+	private static final class UserReader implements Iterator<User> {
+
+		private final DataInputStream in;
+
+		private int remaining;
+
+		UserReader(Path file, int count) {
+			try {
+				this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			this.remaining = count;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public User next() {
+			try {
+				remaining--;
+				User user = new User(in.readUTF(), in.readUTF(), in.readUTF());
+				if (remaining == 0) {
+					in.close();
+				}
+				return user;
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+}
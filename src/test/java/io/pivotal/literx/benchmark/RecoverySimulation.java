@@ -0,0 +1,71 @@
+package io.pivotal.literx.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.UserLog;
+import io.pivotal.literx.repository.UserLog.FsyncPolicy;
+
+/**
+ * Time to reopen a {@link UserLog} holding {@code count} users: from a snapshot covering
+ * all of them, from a snapshot followed by a tail of 10% of them, and by replaying the
+ * whole log without a snapshot.
+ *
+ * Argument: number of users (10000000), with {@code -Xmx2g} or more.
+ */
+public final class RecoverySimulation {
+
+	private RecoverySimulation() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int tail = count / 10;
+		Path directory = Files.createTempDirectory("user-log");
+		try {
+			long start = System.nanoTime();
+			// snapshots only when closed
+			UserLog log = UserLog.open(directory, FsyncPolicy.NONE, UserLog.DEFAULT_MAX_SEGMENT_SIZE, Integer.MAX_VALUE);
+			for (int i = 0; i < count - tail; i++) {
+				log.write(user(i));
+			}
+			log.close();
+			log = UserLog.open(directory, FsyncPolicy.NONE, UserLog.DEFAULT_MAX_SEGMENT_SIZE, Integer.MAX_VALUE);
+			for (int i = count - tail; i < count; i++) {
+				log.write(user(i));
+			}
+			log.commit().block();
+			System.out.printf("wrote %d users in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+			// left open as if the process had died, the snapshot does not cover the tail
+
+			recover("snapshot + 10% tail", directory, count);
+			recover("snapshot", directory, count);
+			Files.delete(directory.resolve("index.snapshot"));
+			recover("full replay", directory, count);
+		}
+		finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	private static void recover(String name, Path directory, int count) throws IOException {
+		System.gc();
+		long start = System.nanoTime();
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE)) {
+			long elapsed = (System.nanoTime() - start) / 1_000_000;
+			System.out.printf("%s: %d users recovered in %d ms (%s)%n", name, log.size(), elapsed,
+					log.find("user" + (count - 1)).getUsername());
+		}
+	}
+
+	private static User user(int i) {
+		return new User("user" + i, "Firstname" + i % 500, "Lastname" + (i * 7919) % 5000);
+	}
+
+}
@@ -0,0 +1,86 @@
+package io.pivotal.literx.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.BlockingRepository;
+import io.pivotal.literx.repository.BlockingUserRepository;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import io.pivotal.literx.repository.WriteBehind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Per-element {@link ReactiveRepository#save} against batched
+ * {@link ReactiveRepository#saveAll}, and the same for a {@link BlockingRepository} drained
+ * one element at a time or through {@link WriteBehind}, with the smallest simulated round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmark {
+
+	private static final long DELAY_IN_MS = 1;
+
+	@Param({"200"})
+	private int userCount;
+
+	@Param({"10", "100"})
+	private int batchSize;
+
+	private User[] users;
+
+	private ReactiveRepository<User> repository;
+
+	private BlockingRepository<User> blockingRepository;
+
+
+	@Setup
+	public void createUsers() {
+		users = BenchmarkUsers.create(userCount);
+	}
+
+	@Setup(Level.Invocation)
+	public void createRepository() {
+		repository = new ReactiveUserRepository(DELAY_IN_MS, new User[]{});
+		blockingRepository = new BlockingUserRepository(DELAY_IN_MS, new User[]{});
+	}
+
+	@Benchmark
+	public void save() {
+		repository.save(Flux.fromArray(users)).block();
+	}
+
+	@Benchmark
+	public void saveAll() {
+		repository.saveAll(Flux.fromArray(users), batchSize, Duration.ofMillis(100)).blockLast();
+	}
+
+	@Benchmark
+	public void blockingSave() {
+		Flux.fromArray(users).publishOn(Schedulers.parallel()).doOnNext(blockingRepository::save).then().block();
+	}
+
+	@Benchmark
+	public void blockingWriteBehind() {
+		WriteBehind.saveAll(Flux.fromArray(users), blockingRepository, batchSize, Duration.ofMillis(100), 4).block();
+	}
+
+}
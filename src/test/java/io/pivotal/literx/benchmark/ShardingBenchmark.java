@@ -0,0 +1,82 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.LatencyModel;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import io.pivotal.literx.repository.ShardedReactiveRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+/**
+ * Aggregate throughput of {@link ShardedReactiveRepository} scans and saves over
+ * {@code shardCount} repositories with a 1 ms round trip per user: each shard pays its
+ * own round trips, so throughput grows with the number of shards scanned at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShardingBenchmark {
+
+	private static final int USER_COUNT = 400;
+
+	@Param({"1", "2", "4", "8", "16"})
+	private int shardCount;
+
+	private User[] users;
+
+	private ShardedReactiveRepository<User> repository;
+
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		users = BenchmarkUsers.create(USER_COUNT);
+		List<ReactiveRepository<User>> shards = new ArrayList<>(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			shards.add(new ReactiveUserRepository(LatencyModel.none(), new User[0]));
+		}
+		new ShardedReactiveRepository<>(shards, User::getUsername).save(Flux.fromArray(users)).block();
+		for (int i = 0; i < shardCount; i++) {
+			shards.set(i, new ReactiveUserRepository(LatencyModel.fixed(1), shards.get(i).findAll().toStream().toArray(User[]::new)));
+		}
+		repository = new ShardedReactiveRepository<>(shards, User::getUsername);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(USER_COUNT)
+	public User findAll() {
+		return repository.findAll().blockLast();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(USER_COUNT)
+	public User findAllOrdered() {
+		return repository.findAll(ReactiveUserRepository.BY_USERNAME).blockLast();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(USER_COUNT)
+	public void save() {
+		repository.save(Flux.fromArray(users)).block();
+	}
+
+}
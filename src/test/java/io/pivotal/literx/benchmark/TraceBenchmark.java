@@ -0,0 +1,122 @@
+package io.pivotal.literx.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.SignalTracer;
+import io.pivotal.literx.repository.ReactiveRepository;
+import io.pivotal.literx.repository.ReactiveUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Cost of observing {@link ReactiveRepository#findAll()} of 1000 users with
+ * {@link Flux#log()}, with a {@link SignalTracer} logging every signal or one out of 100,
+ * and with one dumping the last 64 signals on error, as opposed to not observing it. All
+ * the logging goes through an asynchronous appender writing to a temporary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraceBenchmark {
+
+	private static final int USER_COUNT = 1000;
+
+	@Param({"none", "log", "traceAll", "traceSampled", "dumpOnError"})
+	private String observer;
+
+	private ReactiveRepository<User> repository;
+
+	private Function<Flux<User>, Flux<User>> observe;
+
+	private File logFile;
+
+
+	@Setup
+	public void setup() throws IOException {
+		logFile = File.createTempFile("trace", ".log");
+		logToFile(logFile);
+		repository = new ReactiveUserRepository(0, BenchmarkUsers.create(USER_COUNT));
+		switch (observer) {
+		case "none":
+			observe = flux -> flux;
+			break;
+		case "log":
+			observe = Flux::log;
+			break;
+		case "traceAll":
+			observe = SignalTracer.log("benchmark")::trace;
+			break;
+		case "traceSampled":
+			observe = SignalTracer.log("benchmark", SignalTracer.Sampling.everyNth(100))::trace;
+			break;
+		case "dumpOnError":
+			observe = SignalTracer.dumpOnError("benchmark", 64)::trace;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown observer " + observer);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+		System.out.printf("%n%d KB logged%n", logFile.length() >> 10);
+		logFile.delete();
+	}
+
+	@Benchmark
+	public Long findAll() {
+		return observe.apply(repository.findAll()).count().block();
+	}
+
+
+	private static void logToFile(File file) {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+		encoder.start();
+		FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+		fileAppender.setContext(context);
+		fileAppender.setFile(file.getPath());
+		fileAppender.setEncoder(encoder);
+		fileAppender.start();
+		AsyncAppender asyncAppender = new AsyncAppender();
+		asyncAppender.setContext(context);
+		asyncAppender.setQueueSize(8192);
+		asyncAppender.setDiscardingThreshold(20);
+		asyncAppender.addAppender(fileAppender);
+		asyncAppender.start();
+		Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+		root.setLevel(Level.INFO);
+		root.addAppender(asyncAppender);
+	}
+
+}
@@ -0,0 +1,121 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.AsyncTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
+
+/**
+ * Per-element cost of the transformations taught in {@code Part03Transform} and of the
+ * zip taught in {@code Part06OtherOperations}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+	static final int ELEMENTS = 1000;
+
+	@Param({"false", "true"})
+	private boolean upperCaseUsers;
+
+	private Flux<User> userFlux;
+
+	private Flux<String> usernameFlux;
+
+	private Flux<String> firstnameFlux;
+
+	private Flux<String> lastnameFlux;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(ELEMENTS);
+		if (upperCaseUsers) {
+			for (int i = 0; i < users.length; i++) {
+				users[i] = toUpperCase(users[i]);
+			}
+		}
+		userFlux = Flux.fromArray(users);
+		usernameFlux = userFlux.map(User::getUsername).cache();
+		firstnameFlux = userFlux.map(User::getFirstname).cache();
+		lastnameFlux = userFlux.map(User::getLastname).cache();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void map(Blackhole bh) {
+		userFlux.map(TransformBenchmark::toUpperCase).subscribe(bh::consume);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void flatMap(Blackhole bh) {
+		userFlux.flatMap(u -> Mono.just(toUpperCase(u))).subscribe(bh::consume);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void concatMapMono(Blackhole bh) {
+		AsyncTransform.concatMapMono(userFlux, u -> Mono.just(capitalize(u))).subscribe(bh::consume);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ELEMENTS)
+	public void zipThenMapToUser(Blackhole bh) {
+		Flux.zip(usernameFlux, firstnameFlux, lastnameFlux)
+				.map(TransformBenchmark::toUser)
+				.subscribe(bh::consume);
+	}
+
+
+	static User toUpperCase(User user) {
+		return new User(user.getUsername().toUpperCase(), user.getFirstname().toUpperCase(), user.getLastname().toUpperCase());
+	}
+
+	/**
+	 * {@link #toUpperCase(User)} that keeps users that are already upper-case, as
+	 * {@code Part03Transform} does.
+	 */
+	static User capitalize(User user) {
+		if (isUpperCase(user.getUsername()) && isUpperCase(user.getFirstname()) && isUpperCase(user.getLastname())) {
+			return user;
+		}
+		return toUpperCase(user);
+	}
+
+	static boolean isUpperCase(String value) {
+		for (int i = 0; i < value.length(); ) {
+			int codePoint = value.codePointAt(i);
+			if (Character.isLowerCase(codePoint) || Character.isTitleCase(codePoint) || Character.toUpperCase(codePoint) != codePoint) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return true;
+	}
+
+	static User toUser(Tuple3<String, String, String> tuple) {
+		return new User(tuple.getT1(), tuple.getT2(), tuple.getT3());
+	}
+
+}
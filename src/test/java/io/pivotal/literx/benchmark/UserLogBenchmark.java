@@ -0,0 +1,90 @@
+package io.pivotal.literx.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.DurableUserRepository;
+import io.pivotal.literx.repository.UserLog;
+import io.pivotal.literx.repository.UserLog.FsyncPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+
+/**
+ * Saves of 10 users per call to a {@link DurableUserRepository}, for each
+ * {@link FsyncPolicy}. Run {@link #main} to get the numbers for 1, 4 and 16 concurrent
+ * writers, where group commit lets concurrent saves share a force.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLogBenchmark {
+
+	private static final int[] WRITERS = {1, 4, 16};
+
+	private static final int USERS_PER_SAVE = 10;
+
+	@Param({"NONE", "EVERY_COMMIT", "GROUP"})
+	private FsyncPolicy fsyncPolicy;
+
+	private final AtomicInteger saves = new AtomicInteger();
+
+	private Path directory;
+
+	private DurableUserRepository repository;
+
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("user-log");
+		repository = new DurableUserRepository(UserLog.open(directory, fsyncPolicy));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.out.printf("%n%d forces for %d saves%n", repository.getLog().getForceCount(), saves.get());
+		repository.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public void save() {
+		int save = saves.getAndIncrement();
+		repository.save(Flux.range(0, USERS_PER_SAVE).map(i -> new User("user" + save + "-" + i, "Firstname", "Lastname"))).block();
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (int writers : WRITERS) {
+			new Runner(new OptionsBuilder()
+					.include(UserLogBenchmark.class.getSimpleName())
+					.threads(writers)
+					.build())
+					.run();
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package io.pivotal.literx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.ZipCombine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple3;
+
+/**
+ * Assembling users from username, first name and last name columns, with
+ * {@code Flux.zip(...).map(toUser)} as in {@code Part06OtherOperations} and with
+ * {@link ZipCombine}, from synchronous columns and from columns each read on its own
+ * thread. Run with {@code -prof gc} to compare allocations per user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipBenchmark {
+
+	private static final int ROWS = 100_000;
+
+	@Param({"false", "true"})
+	private boolean async;
+
+	private Flux<String> usernames;
+
+	private Flux<String> firstnames;
+
+	private Flux<String> lastnames;
+
+
+	@Setup
+	public void setup() {
+		User[] users = BenchmarkUsers.create(ROWS);
+		String[][] columns = new String[3][ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			columns[0][i] = users[i].getUsername();
+			columns[1][i] = users[i].getFirstname();
+			columns[2][i] = users[i].getLastname();
+		}
+		usernames = column(columns[0]);
+		firstnames = column(columns[1]);
+		lastnames = column(columns[2]);
+	}
+
+	@Benchmark
+	public Long zipThenMap() {
+		return Flux.zip(usernames, firstnames, lastnames).map(ZipBenchmark::toUser).count().block();
+	}
+
+	@Benchmark
+	public Long zipCombine() {
+		return ZipCombine.zip(usernames, firstnames, lastnames, User::new).count().block();
+	}
+
+
+	private Flux<String> column(String[] values) {
+		Flux<String> column = Flux.fromArray(values);
+		if (async) {
+			Scheduler scheduler = Schedulers.newSingle("column", true);
+			column = column.subscribeOn(scheduler);
+		}
+		return column;
+	}
+
+	private static User toUser(Tuple3<String, String, String> tuple) {
+		return new User(tuple.getT1(), tuple.getT2(), tuple.getT3());
+	}
+
+}
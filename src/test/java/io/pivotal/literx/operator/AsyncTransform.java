@@ -0,0 +1,123 @@
+package io.pivotal.literx.operator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Asynchronous transformation stages, for pipelines where each element goes through a
+ * {@link Mono} returning step.
+ */
+public final class AsyncTransform {
+
+	private static final int ORDERED_RAIL_BATCH_SIZE = 256;
+
+	private AsyncTransform() {
+	}
+
+	/**
+	 * Transform the elements one at a time and in order. Synchronous steps, whose
+	 * {@code Mono} is a {@link Mono#just(Object)} or a {@link Mono#empty()}, are applied
+	 * inline without subscribing to the inner {@code Mono}.
+	 */
+	public static <T, R> Flux<R> concatMapMono(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper) {
+		return Flux.from(new FluxConcatMapMono<>(source, mapper));
+	}
+
+	/**
+	 * Transform the elements with at most {@code maxConcurrency} steps in flight, emitting
+	 * the results as they complete.
+	 */
+	public static <T, R> Flux<R> flatMapMono(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper,
+			int maxConcurrency) {
+		return Flux.from(source).flatMap(mapper, maxConcurrency);
+	}
+
+	/**
+	 * Transform the elements with at most {@code maxConcurrency} steps in flight, failing
+	 * with a {@link java.util.concurrent.TimeoutException} if one takes longer than {@code timeout}.
+	 */
+	public static <T, R> Flux<R> flatMapMono(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper,
+			int maxConcurrency, Duration timeout) {
+		return flatMapMono(source, withTimeout(mapper, timeout), maxConcurrency);
+	}
+
+	/**
+	 * Transform the elements with at most {@code maxConcurrency} steps in flight, emitting
+	 * the results in the order of the source.
+	 */
+	public static <T, R> Flux<R> flatMapMonoSequential(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper,
+			int maxConcurrency) {
+		return Flux.from(new FluxMergeSequentialMono<>(source, mapper, maxConcurrency));
+	}
+
+	/**
+	 * Transform the elements with at most {@code maxConcurrency} steps in flight, emitting
+	 * the results in the order of the source and failing with a
+	 * {@link java.util.concurrent.TimeoutException} if one takes longer than {@code timeout}.
+	 */
+	public static <T, R> Flux<R> flatMapMonoSequential(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper,
+			int maxConcurrency, Duration timeout) {
+		return flatMapMonoSequential(source, withTimeout(mapper, timeout), maxConcurrency);
+	}
+
+	/**
+	 * Apply a CPU bound transformation on one rail per core of {@link Schedulers#parallel()},
+	 * emitting the results as they are produced.
+	 */
+	public static <T, R> Flux<R> parallelMap(Publisher<? extends T> source, Function<? super T, ? extends R> mapper) {
+		return parallelMap(source, mapper, Runtime.getRuntime().availableProcessors(), Schedulers.parallel());
+	}
+
+	/**
+	 * Apply a CPU bound transformation on {@code rails} parallel rails running on the given
+	 * scheduler, emitting the results as they are produced.
+	 */
+	public static <T, R> Flux<R> parallelMap(Publisher<? extends T> source, Function<? super T, ? extends R> mapper,
+			int rails, Scheduler scheduler) {
+		return Flux.<T>from(source)
+				.parallel(rails)
+				.runOn(scheduler)
+				.<R>map(mapper)
+				.sequential();
+	}
+
+	/**
+	 * Apply a CPU bound transformation on one rail per core of {@link Schedulers#parallel()},
+	 * emitting the results in the order of the source.
+	 */
+	public static <T, R> Flux<R> parallelMapSequential(Publisher<? extends T> source, Function<? super T, ? extends R> mapper) {
+		return parallelMapSequential(source, mapper, Runtime.getRuntime().availableProcessors(), Schedulers.parallel());
+	}
+
+	/**
+	 * Apply a CPU bound transformation on {@code rails} parallel rails running on the given
+	 * scheduler, emitting the results in the order of the source. Elements are handed to the
+	 * rails in batches, so the reordering cost is paid once per batch rather than per element.
+	 */
+	public static <T, R> Flux<R> parallelMapSequential(Publisher<? extends T> source, Function<? super T, ? extends R> mapper,
+			int rails, Scheduler scheduler) {
+		return flatMapMonoSequential(Flux.<T>from(source).buffer(ORDERED_RAIL_BATCH_SIZE),
+				batch -> Mono.fromCallable(() -> {
+					List<R> results = new ArrayList<>(batch.size());
+					for (T element : batch) {
+						results.add(mapper.apply(element));
+					}
+					return results;
+				}).subscribeOn(scheduler), rails)
+				.flatMapIterable(Function.identity());
+	}
+
+
+	private static <T, R> Function<T, Mono<R>> withTimeout(Function<? super T, ? extends Mono<? extends R>> mapper, Duration timeout) {
+		return t -> Mono.<R>from(mapper.apply(t)).timeout(timeout);
+	}
+
+}
@@ -0,0 +1,134 @@
+package io.pivotal.literx.operator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class AsyncTransformTest {
+
+	@Test
+	public void concatMapMonoWithScalarInners() {
+		ScriptedSubscriber.create(1)
+				.expectNext(User.SKYLER)
+				.thenRequest(2)
+				.expectNext(User.WALTER, User.SAUL)
+				.thenRequest(1)
+				.expectComplete()
+				.verify(AsyncTransform.concatMapMono(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL),
+						u -> u == User.JESSE ? Mono.empty() : Mono.just(u)));
+	}
+
+	@Test
+	public void concatMapMonoCapitalizesUsers() {
+		Flux<User> flux = Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+		ScriptedSubscriber.create()
+				.expectNext(
+					new User("SWHITE", "SKYLER", "WHITE"),
+					new User("JPINKMAN", "JESSE", "PINKMAN"),
+					new User("WWHITE", "WALTER", "WHITE"),
+					new User("SGOODMAN", "SAUL", "GOODMAN"))
+				.expectComplete()
+				.verify(AsyncTransform.concatMapMono(flux, u ->
+						Mono.just(new User(u.getUsername().toUpperCase(), u.getFirstname().toUpperCase(), u.getLastname().toUpperCase()))));
+	}
+
+	@Test
+	public void concatMapMonoWithAsyncInnersKeepsOrder() {
+		ScriptedSubscriber.create()
+				.expectNext("3", "1", "2", "0")
+				.expectComplete()
+				.verify(AsyncTransform.concatMapMono(Flux.just(3, 1, 2, 0),
+						i -> i % 2 == 0 ? Mono.just(i.toString()) : Mono.delay(Duration.ofMillis(i * 10)).map(d -> i.toString())));
+	}
+
+	@Test
+	public void concatMapMonoPropagatesInnerErrors() {
+		ScriptedSubscriber.create()
+				.expectNext(1)
+				.expectError(IllegalStateException.class)
+				.verify(AsyncTransform.concatMapMono(Flux.just(1, 2, 3),
+						i -> i == 2 ? Mono.delay(Duration.ofMillis(10)).then(d -> Mono.error(new IllegalStateException())) : Mono.just(i)));
+	}
+
+	@Test
+	public void flatMapMonoSequentialBoundsConcurrencyAndKeepsOrder() {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		Flux<Integer> flux = AsyncTransform.flatMapMonoSequential(Flux.range(0, 20), i -> Mono
+				.delay(Duration.ofMillis(20 - i))
+				.map(d -> i)
+				.doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+				.doOnNext(v -> inFlight.decrementAndGet()), 4);
+		ScriptedSubscriber.create()
+				.expectNext(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19)
+				.expectComplete()
+				.verify(flux);
+		assertEquals(4, maxInFlight.get());
+	}
+
+	@Test
+	public void flatMapMonoSequentialHonorsDemand() {
+		ScriptedSubscriber.create(1)
+				.expectNext(User.SKYLER)
+				.thenRequest(1)
+				.expectNext(User.JESSE)
+				.thenCancel()
+				.verify(AsyncTransform.flatMapMonoSequential(Flux.just(User.SKYLER, User.JESSE, User.WALTER),
+						u -> Mono.delay(Duration.ofMillis(10)).map(d -> u), 2));
+	}
+
+	@Test
+	public void flatMapMonoTimeout() {
+		ScriptedSubscriber.create()
+				.expectError(TimeoutException.class)
+				.verify(AsyncTransform.flatMapMonoSequential(Flux.just(1, 2),
+						i -> Mono.delay(Duration.ofMillis(i * 100)).map(d -> i), 2, Duration.ofMillis(50)));
+		ScriptedSubscriber.create()
+				.expectNextCount(3)
+				.expectComplete()
+				.verify(AsyncTransform.flatMapMono(Flux.just(1, 2, 3),
+						i -> Mono.delay(Duration.ofMillis(10)).map(d -> i), 2, Duration.ofSeconds(1)));
+	}
+
+	@Test
+	public void parallelMapSequentialKeepsOrder() {
+		Scheduler scheduler = Schedulers.newParallel("rails", 4);
+		try {
+			List<Integer> results = AsyncTransform.parallelMapSequential(Flux.range(0, 10_000), i -> i * 2, 4, scheduler)
+					.collectList()
+					.block();
+			assertEquals(10_000, results.size());
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals(i * 2, results.get(i).intValue());
+			}
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void parallelMap() {
+		Scheduler scheduler = Schedulers.newParallel("rails", 4);
+		try {
+			long sum = AsyncTransform.parallelMap(Flux.range(0, 10_000), i -> (long) i, 4, scheduler)
+					.reduce(0L, Long::sum)
+					.block();
+			assertEquals(49_995_000L, sum);
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+}
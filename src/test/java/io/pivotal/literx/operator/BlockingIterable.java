@@ -0,0 +1,242 @@
+package io.pivotal.literx.operator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+
+/**
+ * Blocking view of a {@link Publisher}, like {@link reactor.core.publisher.Flux#toIterable()}
+ * but with a configurable prefetch window and a chunked hand-off: the consumer takes every
+ * element received so far in one go, and only parks once it consumed all of them.
+ *
+ * Each {@link #iterator()} subscribes to the publisher. Closing the iterator, or the
+ * {@link Stream} returned by {@link #stream()}, cancels that subscription.
+ */
+public final class BlockingIterable<T> implements Iterable<T> {
+
+	private static final int DEFAULT_PREFETCH = 256;
+
+	private final Publisher<? extends T> source;
+
+	private final int prefetch;
+
+	private final int lowTide;
+
+
+	/**
+	 * @param prefetch the number of elements requested upfront
+	 * @param lowTide the number of requested but not consumed elements below which more
+	 * are requested, as many as were consumed
+	 */
+	public BlockingIterable(Publisher<? extends T> source, int prefetch, int lowTide) {
+		if (prefetch <= 0) {
+			throw new IllegalArgumentException("prefetch must be positive, was " + prefetch);
+		}
+		if (lowTide < 0 || lowTide >= prefetch) {
+			throw new IllegalArgumentException("lowTide must be in [0, " + prefetch + "), was " + lowTide);
+		}
+		this.source = source;
+		this.prefetch = prefetch;
+		this.lowTide = lowTide;
+	}
+
+	/**
+	 * Prefetch 256 elements and request 192 more each time as many were consumed.
+	 */
+	public BlockingIterable(Publisher<? extends T> source) {
+		this(source, DEFAULT_PREFETCH, DEFAULT_PREFETCH / 4);
+	}
+
+
+	@Override
+	public ChunkedIterator<T> iterator() {
+		ChunkedIterator<T> iterator = new ChunkedIterator<>(prefetch, lowTide);
+		source.subscribe(iterator);
+		return iterator;
+	}
+
+	/**
+	 * Split in batches of consecutive elements, so the view supports parallel consumption.
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	/**
+	 * @return a sequential {@link Stream} whose {@link Stream#close()} cancels the subscription
+	 */
+	public Stream<T> stream() {
+		ChunkedIterator<T> iterator = iterator();
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(iterator::close);
+	}
+
+
+	public static final class ChunkedIterator<T> implements Iterator<T>, AutoCloseable, Subscriber<T> {
+
+		private final int prefetch;
+
+		private final int replenish;
+
+		// guarded by this
+		private List<T> received;
+
+		private boolean done;
+
+		private Throwable error;
+
+		private boolean waiting;
+
+		// only accessed by the consuming thread
+		private List<T> chunk;
+
+		private int index;
+
+		private int consumed;
+
+		private volatile Subscription subscription;
+
+		private volatile boolean closed;
+
+
+		ChunkedIterator(int prefetch, int lowTide) {
+			this.prefetch = prefetch;
+			this.replenish = prefetch - lowTide;
+			this.received = new ArrayList<>(prefetch);
+			this.chunk = new ArrayList<>(prefetch);
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription = s;
+			if (closed) {
+				s.cancel();
+			}
+			else {
+				s.request(prefetch);
+			}
+		}
+
+		@Override
+		public void onNext(T t) {
+			synchronized (this) {
+				received.add(t);
+				if (waiting) {
+					// wake the consumer once, it takes whatever was received by the time it runs
+					waiting = false;
+					notify();
+				}
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			synchronized (this) {
+				error = t;
+				done = true;
+				notify();
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (this) {
+				done = true;
+				notify();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed) {
+				return false;
+			}
+			return index < chunk.size() || nextChunk();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			T value = chunk.get(index++);
+			if (++consumed == replenish) {
+				consumed = 0;
+				subscription.request(replenish);
+			}
+			return value;
+		}
+
+		/**
+		 * Cancel the subscription and drop the elements received but not consumed yet. A
+		 * consumer waiting for elements on another thread sees the end of the iteration.
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			Subscription s = subscription;
+			if (s != null) {
+				s.cancel();
+			}
+			synchronized (this) {
+				received.clear();
+				done = true;
+				notify();
+			}
+		}
+
+
+		/**
+		 * Swap the consumed chunk with the elements received meanwhile, waiting for at least
+		 * one of them.
+		 */
+		private boolean nextChunk() {
+			List<T> consumedChunk = chunk;
+			consumedChunk.clear();
+			index = 0;
+			Throwable failure;
+			synchronized (this) {
+				while (received.isEmpty() && !done) {
+					waiting = true;
+					try {
+						wait();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						waiting = false;
+						close();
+						throw Exceptions.propagate(e);
+					}
+				}
+				waiting = false;
+				if (!received.isEmpty()) {
+					chunk = received;
+					received = consumedChunk;
+					return true;
+				}
+				failure = error;
+			}
+			closed = true;
+			if (failure != null) {
+				throw Exceptions.propagate(failure);
+			}
+			return false;
+		}
+	}
+
+}
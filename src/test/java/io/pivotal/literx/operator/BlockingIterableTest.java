@@ -0,0 +1,87 @@
+package io.pivotal.literx.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+public class BlockingIterableTest {
+
+	@Test
+	public void iterateAsyncSource() {
+		List<Integer> values = new ArrayList<>();
+		for (Integer value : new BlockingIterable<>(Flux.range(0, 10_000).publishOn(Schedulers.parallel()), 64, 16)) {
+			values.add(value);
+		}
+		assertEquals(IntStream.range(0, 10_000).boxed().collect(Collectors.toList()), values);
+	}
+
+	@Test
+	public void replenishOnceBelowLowTide() {
+		List<Long> requests = Collections.synchronizedList(new ArrayList<>());
+		Iterator<Integer> iterator = new BlockingIterable<>(Flux.range(0, 20).doOnRequest(requests::add), 8, 2).iterator();
+		assertEquals(Collections.singletonList(8L), requests);
+		for (int i = 0; i < 5; i++) {
+			iterator.next();
+		}
+		assertEquals(Collections.singletonList(8L), requests);
+		iterator.next();
+		assertEquals(Arrays.asList(8L, 6L), requests);
+	}
+
+	@Test
+	public void closeCancelsUpstream() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		BlockingIterable.ChunkedIterator<Long> iterator = new BlockingIterable<>(
+				Flux.intervalMillis(1).doOnCancel(() -> cancelled.set(true))).iterator();
+		assertEquals(Long.valueOf(0), iterator.next());
+		iterator.close();
+		assertTrue(cancelled.get());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void closeStreamCancelsUpstream() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		try (Stream<Long> stream = new BlockingIterable<>(Flux.intervalMillis(1).doOnCancel(() -> cancelled.set(true))).stream()) {
+			assertEquals(5, stream.limit(5).count());
+		}
+		assertTrue(cancelled.get());
+	}
+
+	@Test
+	public void parallelStream() {
+		try (Stream<Integer> stream = new BlockingIterable<>(Flux.range(1, 100_000).publishOn(Schedulers.parallel())).stream()) {
+			assertEquals(5_000_050_000L, stream.parallel().mapToLong(Integer::longValue).sum());
+		}
+	}
+
+	@Test
+	public void rethrowErrorAfterReceivedElements() {
+		Iterator<Integer> iterator = new BlockingIterable<>(Flux.just(1, 2)
+				.concatWith(Flux.error(new IllegalStateException("boom")))).iterator();
+		assertEquals(Integer.valueOf(1), iterator.next());
+		assertEquals(Integer.valueOf(2), iterator.next());
+		try {
+			iterator.hasNext();
+			fail();
+		}
+		catch (IllegalStateException e) {
+			assertEquals("boom", e.getMessage());
+		}
+	}
+
+}
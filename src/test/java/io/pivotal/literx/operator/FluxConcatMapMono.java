@@ -0,0 +1,264 @@
+package io.pivotal.literx.operator;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maps each element to a {@link Mono} and emits the results in order, one inner
+ * {@code Mono} at a time. Inner {@code Mono}s that are {@link Callable}, like
+ * {@link Mono#just(Object)} or {@link Mono#empty()}, are not subscribed to: their value is
+ * read and emitted inline, so a synchronous transformation allocates neither an inner
+ * subscriber nor a queue slot.
+ */
+final class FluxConcatMapMono<T, R> implements Publisher<R> {
+
+	private final Publisher<? extends T> source;
+
+	private final Function<? super T, ? extends Mono<? extends R>> mapper;
+
+
+	FluxConcatMapMono(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper) {
+		this.source = source;
+		this.mapper = mapper;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super R> subscriber) {
+		source.subscribe(new ConcatMapMonoSubscriber<>(subscriber, mapper));
+	}
+
+
+	private static final class ConcatMapMonoSubscriber<T, R> implements Subscriber<T>, Subscription {
+
+		private final Subscriber<? super R> actual;
+
+		private final Function<? super T, ? extends Mono<? extends R>> mapper;
+
+		private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private Subscription upstream;
+
+		private volatile boolean done;
+
+		private Throwable error;
+
+		private volatile boolean cancelled;
+
+		// only accessed from the drain loop
+		private boolean active;
+
+		private volatile Subscription inner;
+
+		private volatile R innerValue;
+
+		private volatile Throwable innerError;
+
+		private volatile boolean innerDone;
+
+
+		ConcatMapMonoSubscriber(Subscriber<? super R> actual, Function<? super T, ? extends Mono<? extends R>> mapper) {
+			this.actual = actual;
+			this.mapper = mapper;
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			actual.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (wip.compareAndSet(0, 1)) {
+				// fast path: nothing is pending, map and emit without going through the queue
+				if (!active && queue.isEmpty()) {
+					if (!map(t)) {
+						return;
+					}
+				}
+				else {
+					queue.offer(t);
+				}
+				if (wip.decrementAndGet() == 0) {
+					return;
+				}
+				drainLoop();
+			}
+			else {
+				queue.offer(t);
+				drain();
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			upstream.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			upstream.cancel();
+			Subscription s = inner;
+			if (s != null) {
+				s.cancel();
+			}
+		}
+
+
+		private void drain() {
+			if (wip.getAndIncrement() == 0) {
+				drainLoop();
+			}
+		}
+
+		private void drainLoop() {
+			int missed = 1;
+			for (;;) {
+				for (;;) {
+					if (cancelled) {
+						queue.clear();
+						return;
+					}
+					if (active) {
+						if (!innerDone) {
+							break;
+						}
+						Throwable e = innerError;
+						if (e != null) {
+							fail(e);
+							return;
+						}
+						R value = innerValue;
+						innerValue = null;
+						innerDone = false;
+						inner = null;
+						active = false;
+						emit(value);
+					}
+					T t = queue.poll();
+					if (t == null) {
+						if (done) {
+							cancelled = true;
+							Throwable e = error;
+							if (e != null) {
+								actual.onError(e);
+							}
+							else {
+								actual.onComplete();
+							}
+							return;
+						}
+						break;
+					}
+					if (!map(t)) {
+						return;
+					}
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return {@code false} if the sequence failed
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean map(T t) {
+			Mono<? extends R> mono;
+			try {
+				mono = mapper.apply(t);
+				if (mono == null) {
+					throw new NullPointerException("The mapper returned a null Mono");
+				}
+				if (mono instanceof Callable) {
+					emit(((Callable<R>) mono).call());
+					return true;
+				}
+			}
+			catch (Throwable e) {
+				fail(e);
+				return false;
+			}
+			active = true;
+			mono.subscribe(new InnerSubscriber());
+			return true;
+		}
+
+		private void emit(R value) {
+			if (value != null) {
+				actual.onNext(value);
+			}
+			else {
+				// an empty inner consumed one element of demand without producing anything
+				upstream.request(1);
+			}
+		}
+
+		private void fail(Throwable e) {
+			cancel();
+			actual.onError(e);
+		}
+
+
+		private final class InnerSubscriber implements Subscriber<R> {
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				inner = s;
+				if (cancelled) {
+					s.cancel();
+				}
+				else {
+					s.request(Long.MAX_VALUE);
+				}
+			}
+
+			@Override
+			public void onNext(R value) {
+				innerValue = value;
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				innerError = t;
+				innerDone = true;
+				drain();
+			}
+
+			@Override
+			public void onComplete() {
+				innerDone = true;
+				drain();
+			}
+		}
+	}
+
+}
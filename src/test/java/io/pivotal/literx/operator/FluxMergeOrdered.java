@@ -0,0 +1,320 @@
+package io.pivotal.literx.operator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Merges sources each sorted by the same comparator into a sorted sequence. The head of
+ * every source is kept in a binary heap of source indices, so emitting an element costs
+ * O(log k) comparisons for k sources. An element is only emitted once every source that
+ * did not complete has a head, since any of them could hold a smaller one. Equal elements
+ * are emitted in the order of their sources.
+ *
+ * Each source is prefetched by a {@link PrefetchSubscriber}, so at most
+ * {@code k * prefetch} elements are buffered whatever the downstream demand.
+ */
+final class FluxMergeOrdered<T> implements Publisher<T> {
+
+	private final Publisher<? extends T>[] sources;
+
+	private final Comparator<? super T> comparator;
+
+	private final int prefetch;
+
+
+	FluxMergeOrdered(Publisher<? extends T>[] sources, Comparator<? super T> comparator, int prefetch) {
+		this.sources = sources;
+		this.comparator = comparator;
+		this.prefetch = prefetch;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		MergeOrderedCoordinator<T> coordinator = new MergeOrderedCoordinator<>(subscriber, comparator, sources.length, prefetch);
+		subscriber.onSubscribe(coordinator);
+		coordinator.subscribe(sources);
+	}
+
+
+	private static final class MergeOrderedCoordinator<T> implements Subscription, PrefetchSubscriber.Parent {
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<MergeOrderedCoordinator> WIP =
+				AtomicIntegerFieldUpdater.newUpdater(MergeOrderedCoordinator.class, "wip");
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicLongFieldUpdater<MergeOrderedCoordinator> REQUESTED =
+				AtomicLongFieldUpdater.newUpdater(MergeOrderedCoordinator.class, "requested");
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<MergeOrderedCoordinator, Throwable> ERROR =
+				AtomicReferenceFieldUpdater.newUpdater(MergeOrderedCoordinator.class, Throwable.class, "error");
+
+		private final Subscriber<? super T> actual;
+
+		private final Comparator<? super T> comparator;
+
+		private final PrefetchSubscriber<T>[] inners;
+
+		// the rest is only accessed from the drain loop
+
+		private final T[] heads;
+
+		// indices of the sources with a head, ordered by head
+		private final int[] heap;
+
+		private int heapSize;
+
+		// indices of the sources without a head that did not complete
+		private final int[] missing;
+
+		private int missingCount;
+
+		private volatile int wip;
+
+		private volatile long requested;
+
+		private volatile Throwable error;
+
+		private volatile boolean cancelled;
+
+
+		@SuppressWarnings("unchecked")
+		MergeOrderedCoordinator(Subscriber<? super T> actual, Comparator<? super T> comparator, int sourceCount, int prefetch) {
+			this.actual = actual;
+			this.comparator = comparator;
+			this.inners = (PrefetchSubscriber<T>[]) new PrefetchSubscriber<?>[sourceCount];
+			for (int i = 0; i < sourceCount; i++) {
+				inners[i] = new PrefetchSubscriber<>(this, prefetch);
+			}
+			this.heads = (T[]) new Object[sourceCount];
+			this.heap = new int[sourceCount];
+			this.missing = new int[sourceCount];
+			for (int i = 0; i < sourceCount; i++) {
+				missing[i] = i;
+			}
+			this.missingCount = sourceCount;
+		}
+
+
+		void subscribe(Publisher<? extends T>[] sources) {
+			for (int i = 0; i < sources.length && !cancelled; i++) {
+				sources[i].subscribe(inners[i]);
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				innerError(new IllegalArgumentException("Spec. Rule 3.9 - Cannot request a non strictly positive number: " + n));
+				return;
+			}
+			for (;;) {
+				long current = requested;
+				long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				if (REQUESTED.compareAndSet(this, current, next)) {
+					break;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				cancelInners();
+				if (WIP.getAndIncrement(this) == 0) {
+					clear();
+				}
+			}
+		}
+
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void innerError(Throwable t) {
+			if (ERROR.compareAndSet(this, null, t)) {
+				drain();
+			}
+		}
+
+		@Override
+		public void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				long r = requested;
+				long emitted = 0;
+				for (;;) {
+					if (cancelled) {
+						clear();
+						return;
+					}
+					Throwable e = error;
+					if (e != null) {
+						fail(e);
+						return;
+					}
+					try {
+						if (!fillMissingHeads()) {
+							break;
+						}
+					}
+					catch (Throwable t) {
+						fail(t);
+						return;
+					}
+					if (heapSize == 0) {
+						cancelled = true;
+						actual.onComplete();
+						return;
+					}
+					if (emitted == r) {
+						break;
+					}
+					int source = heap[0];
+					T value = heads[source];
+					try {
+						replaceHead(source);
+					}
+					catch (Throwable t) {
+						fail(t);
+						return;
+					}
+					actual.onNext(value);
+					emitted++;
+				}
+				if (emitted != 0 && r != Long.MAX_VALUE) {
+					REQUESTED.addAndGet(this, -emitted);
+				}
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+
+		/**
+		 * Poll the next element of each source without a head, adding it to the heap.
+		 * @return {@code false} if a source that did not complete has no element available
+		 */
+		private boolean fillMissingHeads() {
+			while (missingCount > 0) {
+				int source = missing[missingCount - 1];
+				PrefetchSubscriber<T> inner = inners[source];
+				boolean done = inner.isDone();
+				T head = inner.poll();
+				if (head == null) {
+					if (!done) {
+						return false;
+					}
+				}
+				else {
+					heads[source] = head;
+					heap[heapSize] = source;
+					siftUp(heapSize++);
+				}
+				missingCount--;
+			}
+			return true;
+		}
+
+		/**
+		 * Replace the head of the source at the top of the heap by its next element, with a
+		 * single sift down, or remove it from the heap if none is available yet.
+		 */
+		private void replaceHead(int source) {
+			PrefetchSubscriber<T> inner = inners[source];
+			boolean done = inner.isDone();
+			T head = inner.poll();
+			heads[source] = head;
+			if (head == null) {
+				heap[0] = heap[--heapSize];
+				if (!done) {
+					missing[missingCount++] = source;
+				}
+			}
+			siftDown(0);
+		}
+
+		private void siftUp(int index) {
+			int source = heap[index];
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (!before(source, heap[parent])) {
+					break;
+				}
+				heap[index] = heap[parent];
+				index = parent;
+			}
+			heap[index] = source;
+		}
+
+		private void siftDown(int index) {
+			if (heapSize == 0) {
+				return;
+			}
+			int source = heap[index];
+			int half = heapSize >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				int right = child + 1;
+				if (right < heapSize && before(heap[right], heap[child])) {
+					child = right;
+				}
+				if (!before(heap[child], source)) {
+					break;
+				}
+				heap[index] = heap[child];
+				index = child;
+			}
+			heap[index] = source;
+		}
+
+		/**
+		 * @return {@code true} if the head of source {@code a} is emitted before the head of
+		 * source {@code b}
+		 */
+		private boolean before(int a, int b) {
+			int order = comparator.compare(heads[a], heads[b]);
+			return order < 0 || order == 0 && a < b;
+		}
+
+		private void fail(Throwable e) {
+			cancelled = true;
+			cancelInners();
+			clear();
+			actual.onError(e);
+		}
+
+		private void cancelInners() {
+			for (PrefetchSubscriber<T> inner : inners) {
+				inner.cancel();
+			}
+		}
+
+		private void clear() {
+			Arrays.fill(heads, null);
+			for (PrefetchSubscriber<T> inner : inners) {
+				inner.clear();
+			}
+		}
+	}
+
+}
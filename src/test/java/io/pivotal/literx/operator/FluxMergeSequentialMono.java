@@ -0,0 +1,263 @@
+package io.pivotal.literx.operator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maps each element to a {@link Mono} subscribed to eagerly, with at most
+ * {@code maxConcurrency} of them in flight, and emits the results in the order of the
+ * source. A result waiting for downstream demand or for an earlier one to complete still
+ * counts as in flight, which bounds the memory used for reordering.
+ */
+final class FluxMergeSequentialMono<T, R> implements Publisher<R> {
+
+	private final Publisher<? extends T> source;
+
+	private final Function<? super T, ? extends Mono<? extends R>> mapper;
+
+	private final int maxConcurrency;
+
+
+	FluxMergeSequentialMono(Publisher<? extends T> source, Function<? super T, ? extends Mono<? extends R>> mapper, int maxConcurrency) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be positive, was " + maxConcurrency);
+		}
+		this.source = source;
+		this.mapper = mapper;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super R> subscriber) {
+		source.subscribe(new MergeSequentialSubscriber<>(subscriber, mapper, maxConcurrency));
+	}
+
+
+	private static final class MergeSequentialSubscriber<T, R> implements Subscriber<T>, Subscription {
+
+		private final Subscriber<? super R> actual;
+
+		private final Function<? super T, ? extends Mono<? extends R>> mapper;
+
+		private final int maxConcurrency;
+
+		private final Queue<Inner<R>> inners = new ConcurrentLinkedQueue<>();
+
+		private final AtomicLong requested = new AtomicLong();
+
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private Subscription upstream;
+
+		private volatile boolean done;
+
+		private volatile Throwable error;
+
+		private volatile boolean cancelled;
+
+
+		MergeSequentialSubscriber(Subscriber<? super R> actual, Function<? super T, ? extends Mono<? extends R>> mapper, int maxConcurrency) {
+			this.actual = actual;
+			this.mapper = mapper;
+			this.maxConcurrency = maxConcurrency;
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			actual.onSubscribe(this);
+			s.request(maxConcurrency);
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (done) {
+				return;
+			}
+			Mono<? extends R> mono;
+			try {
+				mono = mapper.apply(t);
+				if (mono == null) {
+					throw new NullPointerException("The mapper returned a null Mono");
+				}
+			}
+			catch (Throwable e) {
+				upstream.cancel();
+				onError(e);
+				return;
+			}
+			Inner<R> inner = new Inner<>(this);
+			inners.offer(inner);
+			mono.subscribe(inner);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				onError(new IllegalArgumentException("Rule 3.9 violated: positive request amount required but it was " + n));
+				return;
+			}
+			requested.accumulateAndGet(n, (r, m) -> r + m < 0 ? Long.MAX_VALUE : r + m);
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				upstream.cancel();
+				drain();
+			}
+		}
+
+
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				long r = requested.get();
+				long e = 0;
+				for (;;) {
+					if (cancelled) {
+						cancelInners();
+						return;
+					}
+					Throwable ex = error;
+					if (ex != null) {
+						cancelled = true;
+						cancelInners();
+						actual.onError(ex);
+						return;
+					}
+					boolean d = done;
+					Inner<R> head = inners.peek();
+					if (head == null) {
+						if (d) {
+							cancelled = true;
+							actual.onComplete();
+							return;
+						}
+						break;
+					}
+					if (!head.done) {
+						break;
+					}
+					if (head.error != null) {
+						cancelled = true;
+						upstream.cancel();
+						cancelInners();
+						actual.onError(head.error);
+						return;
+					}
+					if (head.value != null) {
+						if (e == r) {
+							break;
+						}
+						actual.onNext(head.value);
+						e++;
+					}
+					inners.poll();
+					upstream.request(1);
+				}
+				if (e != 0 && r != Long.MAX_VALUE) {
+					requested.addAndGet(-e);
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		private void cancelInners() {
+			Inner<R> inner;
+			while ((inner = inners.poll()) != null) {
+				inner.cancel();
+			}
+		}
+	}
+
+	private static final class Inner<R> implements Subscriber<R> {
+
+		private final MergeSequentialSubscriber<?, R> parent;
+
+		private volatile Subscription subscription;
+
+		private volatile boolean cancelled;
+
+		volatile R value;
+
+		volatile Throwable error;
+
+		volatile boolean done;
+
+
+		Inner(MergeSequentialSubscriber<?, R> parent) {
+			this.parent = parent;
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription = s;
+			if (cancelled) {
+				s.cancel();
+			}
+			else {
+				s.request(Long.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onNext(R r) {
+			value = r;
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+			done = true;
+			parent.drain();
+		}
+
+		@Override
+		public void onComplete() {
+			done = true;
+			parent.drain();
+		}
+
+		void cancel() {
+			cancelled = true;
+			Subscription s = subscription;
+			if (s != null) {
+				s.cancel();
+			}
+		}
+	}
+
+}
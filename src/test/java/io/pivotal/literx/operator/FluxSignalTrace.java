@@ -0,0 +1,151 @@
+package io.pivotal.literx.operator;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Records the signals of each subscription to the {@link SignalRing} of a
+ * {@link SignalTracer}, sampling {@code onNext} and {@code request} signals as configured.
+ */
+final class FluxSignalTrace<T> implements Publisher<T> {
+
+	private final Publisher<? extends T> source;
+
+	private final SignalTracer tracer;
+
+
+	FluxSignalTrace(Publisher<? extends T> source, SignalTracer tracer) {
+		this.source = source;
+		this.tracer = tracer;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		source.subscribe(new TraceSubscriber<>(subscriber, tracer));
+	}
+
+
+	private static final class TraceSubscriber<T> implements Subscriber<T>, Subscription {
+
+		private final Subscriber<? super T> actual;
+
+		private final SignalTracer tracer;
+
+		private final SignalRing ring;
+
+		private final long id;
+
+		private final int every;
+
+		private final long windowNanos;
+
+		private Subscription upstream;
+
+		// only accessed from onNext
+		private final SampleState nexts;
+
+		// request may be called concurrently, which at worst skews its sampling
+		private final SampleState requests;
+
+
+		TraceSubscriber(Subscriber<? super T> actual, SignalTracer tracer) {
+			this.actual = actual;
+			this.tracer = tracer;
+			this.ring = tracer.ring();
+			this.id = tracer.nextSubscription();
+			this.every = tracer.sampling().every;
+			this.windowNanos = tracer.sampling().windowNanos;
+			this.nexts = new SampleState();
+			this.requests = new SampleState();
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			record(SignalRing.SUBSCRIBE, 0, 0, null);
+			actual.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (sample(nexts)) {
+				record(SignalRing.NEXT, 0, nexts.unsampled, t);
+				nexts.unsampled = 0;
+			}
+			actual.onNext(t);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			record(SignalRing.ERROR, 0, 0, t);
+			tracer.failed(ring, id, t);
+			actual.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			record(SignalRing.COMPLETE, 0, 0, null);
+			actual.onComplete();
+		}
+
+		@Override
+		public void request(long n) {
+			if (sample(requests)) {
+				record(SignalRing.REQUEST, n, requests.unsampled, null);
+				requests.unsampled = 0;
+			}
+			upstream.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			record(SignalRing.CANCEL, 0, 0, null);
+			upstream.cancel();
+		}
+
+
+		private void record(int kind, long amount, long unsampled, Object value) {
+			ring.record(id, kind, System.nanoTime(), amount, unsampled, value);
+			tracer.recorded(ring);
+		}
+
+		/**
+		 * Count down to the next sampled signal, then check the time window, so that only
+		 * signals passing the count pay for reading the clock.
+		 */
+		private boolean sample(SampleState state) {
+			if (state.countdown > 1) {
+				state.countdown--;
+				state.unsampled++;
+				return false;
+			}
+			state.countdown = every;
+			if (windowNanos > 0) {
+				long now = System.nanoTime();
+				if (state.sampled && now - state.sampledAt < windowNanos) {
+					state.unsampled++;
+					return false;
+				}
+				state.sampledAt = now;
+			}
+			state.sampled = true;
+			return true;
+		}
+	}
+
+
+	private static final class SampleState {
+
+		int countdown;
+
+		long unsampled;
+
+		boolean sampled;
+
+		long sampledAt;
+	}
+
+}
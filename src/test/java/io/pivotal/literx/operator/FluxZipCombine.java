@@ -0,0 +1,237 @@
+package io.pivotal.literx.operator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Zips sources by passing their heads directly to a combiner, without an intermediate
+ * tuple: the heads are polled into an array reused for every element. Each source is
+ * prefetched by a {@link PrefetchSubscriber}, in chunks rather than one element at a time.
+ */
+final class FluxZipCombine<R> implements Publisher<R> {
+
+	private final Publisher<?>[] sources;
+
+	private final Combiner<R> combiner;
+
+	private final int prefetch;
+
+
+	FluxZipCombine(Publisher<?>[] sources, Combiner<R> combiner, int prefetch) {
+		this.sources = sources;
+		this.combiner = combiner;
+		this.prefetch = prefetch;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super R> subscriber) {
+		ZipCoordinator<R> coordinator = new ZipCoordinator<>(subscriber, combiner, sources.length, prefetch);
+		subscriber.onSubscribe(coordinator);
+		coordinator.subscribe(sources);
+	}
+
+
+	/**
+	 * Combines the heads of the sources, which are only valid for the duration of the call.
+	 */
+	interface Combiner<R> {
+
+		R combine(Object[] heads);
+	}
+
+
+	private static final class ZipCoordinator<R> implements Subscription, PrefetchSubscriber.Parent {
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<ZipCoordinator> WIP =
+				AtomicIntegerFieldUpdater.newUpdater(ZipCoordinator.class, "wip");
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicLongFieldUpdater<ZipCoordinator> REQUESTED =
+				AtomicLongFieldUpdater.newUpdater(ZipCoordinator.class, "requested");
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<ZipCoordinator, Throwable> ERROR =
+				AtomicReferenceFieldUpdater.newUpdater(ZipCoordinator.class, Throwable.class, "error");
+
+		private final Subscriber<? super R> actual;
+
+		private final Combiner<R> combiner;
+
+		private final PrefetchSubscriber<Object>[] inners;
+
+		// only accessed from the drain loop
+		private final Object[] heads;
+
+		private volatile int wip;
+
+		private volatile long requested;
+
+		private volatile Throwable error;
+
+		private volatile boolean cancelled;
+
+
+		@SuppressWarnings("unchecked")
+		ZipCoordinator(Subscriber<? super R> actual, Combiner<R> combiner, int sourceCount, int prefetch) {
+			this.actual = actual;
+			this.combiner = combiner;
+			this.inners = (PrefetchSubscriber<Object>[]) new PrefetchSubscriber<?>[sourceCount];
+			for (int i = 0; i < sourceCount; i++) {
+				inners[i] = new PrefetchSubscriber<>(this, prefetch);
+			}
+			this.heads = new Object[sourceCount];
+		}
+
+
+		void subscribe(Publisher<?>[] sources) {
+			for (int i = 0; i < sources.length && !cancelled; i++) {
+				sources[i].subscribe(inners[i]);
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				innerError(new IllegalArgumentException("Spec. Rule 3.9 - Cannot request a non strictly positive number: " + n));
+				return;
+			}
+			for (;;) {
+				long current = requested;
+				long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				if (REQUESTED.compareAndSet(this, current, next)) {
+					break;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				cancelInners();
+				if (WIP.getAndIncrement(this) == 0) {
+					clear();
+				}
+			}
+		}
+
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void innerError(Throwable t) {
+			if (ERROR.compareAndSet(this, null, t)) {
+				drain();
+			}
+		}
+
+		@Override
+		public void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+			int missed = 1;
+			PrefetchSubscriber<Object>[] inners = this.inners;
+			Object[] heads = this.heads;
+			for (;;) {
+				long r = requested;
+				long emitted = 0;
+				for (;;) {
+					if (cancelled) {
+						clear();
+						return;
+					}
+					Throwable e = error;
+					if (e != null) {
+						fail(e);
+						return;
+					}
+					boolean ready = true;
+					for (int i = 0; i < inners.length; i++) {
+						if (heads[i] == null) {
+							PrefetchSubscriber<Object> inner = inners[i];
+							boolean done = inner.isDone();
+							Object head;
+							try {
+								head = inner.poll();
+							}
+							catch (Throwable t) {
+								fail(t);
+								return;
+							}
+							if (head == null) {
+								if (done) {
+									cancelled = true;
+									cancelInners();
+									clear();
+									actual.onComplete();
+									return;
+								}
+								ready = false;
+							}
+							heads[i] = head;
+						}
+					}
+					if (!ready || emitted == r) {
+						break;
+					}
+					R value;
+					try {
+						value = combiner.combine(heads);
+						if (value == null) {
+							throw new NullPointerException("The combiner returned a null value");
+						}
+					}
+					catch (Throwable t) {
+						fail(t);
+						return;
+					}
+					Arrays.fill(heads, null);
+					actual.onNext(value);
+					emitted++;
+				}
+				if (emitted != 0 && r != Long.MAX_VALUE) {
+					REQUESTED.addAndGet(this, -emitted);
+				}
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+
+		private void fail(Throwable e) {
+			cancelled = true;
+			cancelInners();
+			clear();
+			actual.onError(e);
+		}
+
+		private void cancelInners() {
+			for (PrefetchSubscriber<Object> inner : inners) {
+				inner.cancel();
+			}
+		}
+
+		private void clear() {
+			Arrays.fill(heads, null);
+			for (PrefetchSubscriber<Object> inner : inners) {
+				inner.clear();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package io.pivotal.literx.operator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+/**
+ * Merge of sources already sorted in the same order, for instance the scans of several
+ * repositories sorted by username, into a single sorted sequence. Unlike
+ * {@code Flux.merge(...).sort(...)}, nothing is collected: elements are emitted as the
+ * downstream requests them, and each source is buffered by at most {@code prefetch}
+ * elements.
+ */
+public final class MergeOrdered {
+
+	private static final int DEFAULT_PREFETCH = 256;
+
+	private MergeOrdered() {
+	}
+
+	/**
+	 * Merge sources sorted by {@code comparator}, emitting equal elements in the order of
+	 * their sources. Each source is prefetched 256 elements at a time.
+	 */
+	@SafeVarargs
+	public static <T> Flux<T> merge(Comparator<? super T> comparator, Publisher<? extends T>... sources) {
+		List<Publisher<? extends T>> list = new ArrayList<>(sources.length);
+		for (Publisher<? extends T> source : sources) {
+			list.add(source);
+		}
+		return merge(comparator, list);
+	}
+
+	/**
+	 * Merge sources sorted by {@code comparator}, prefetching {@code prefetch} elements from
+	 * each and requesting more in chunks of three quarters of that.
+	 */
+	@SafeVarargs
+	public static <T> Flux<T> merge(Comparator<? super T> comparator, int prefetch, Publisher<? extends T>... sources) {
+		List<Publisher<? extends T>> list = new ArrayList<>(sources.length);
+		for (Publisher<? extends T> source : sources) {
+			list.add(source);
+		}
+		return merge(comparator, prefetch, list);
+	}
+
+	/**
+	 * Merge sources sorted by {@code comparator}, emitting equal elements in the order of
+	 * the list. Each source is prefetched 256 elements at a time.
+	 */
+	public static <T> Flux<T> merge(Comparator<? super T> comparator, List<? extends Publisher<? extends T>> sources) {
+		return merge(comparator, DEFAULT_PREFETCH, sources);
+	}
+
+	/**
+	 * Merge sources sorted by {@code comparator}, emitting equal elements in the order of
+	 * the list, prefetching {@code prefetch} elements from each.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Flux<T> merge(Comparator<? super T> comparator, int prefetch,
+			List<? extends Publisher<? extends T>> sources) {
+		if (prefetch <= 0) {
+			throw new IllegalArgumentException("prefetch must be positive, was " + prefetch);
+		}
+		if (sources.isEmpty()) {
+			return Flux.empty();
+		}
+		if (sources.size() == 1) {
+			return Flux.from(sources.get(0));
+		}
+		Publisher<? extends T>[] array = sources.toArray((Publisher<? extends T>[]) new Publisher<?>[sources.size()]);
+		return Flux.from(new FluxMergeOrdered<>(array, comparator, prefetch));
+	}
+
+}
@@ -0,0 +1,84 @@
+package io.pivotal.literx.operator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class MergeOrderedTest {
+
+	@Test
+	public void mergeSortedSources() {
+		ScriptedSubscriber.create()
+				.expectNext(1, 2, 3, 4, 5, 6, 7, 8, 9)
+				.expectComplete()
+				.verify(MergeOrdered.merge(Comparator.<Integer>naturalOrder(),
+						Flux.just(1, 4, 7), Flux.just(2, 5, 8, 9), Flux.empty(), Flux.just(3, 6)));
+	}
+
+	@Test
+	public void emitEqualElementsInSourceOrder() {
+		User skyler = new User("swhite", "Skyler", "Black");
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, skyler, User.WALTER)
+				.expectComplete()
+				.verify(MergeOrdered.merge(Comparator.comparing(User::getUsername),
+						Flux.just(User.SKYLER), Flux.just(skyler, User.WALTER)));
+	}
+
+	@Test
+	public void bufferAtMostPrefetchElementsPerSource() {
+		List<Long> requests = new ArrayList<>();
+		Flux<Integer> evens = Flux.range(0, 1000).map(i -> 2 * i).hide().doOnRequest(requests::add);
+		Flux<Integer> odds = Flux.range(0, 1000).map(i -> 2 * i + 1).hide();
+		ScriptedSubscriber.create(10)
+				.expectNextCount(10)
+				.thenCancel()
+				.verify(MergeOrdered.merge(Comparator.<Integer>naturalOrder(), 8, evens, odds));
+		// 8 upfront, then 6 more once 6 of them were emitted
+		assertEquals(2, requests.size());
+		assertEquals(8, requests.get(0).longValue());
+		assertEquals(6, requests.get(1).longValue());
+	}
+
+	@Test
+	public void mergeAsynchronousSources() {
+		Flux<Integer> evens = Flux.range(0, 10_000).map(i -> 2 * i).subscribeOn(Schedulers.parallel());
+		Flux<Integer> odds = Flux.range(0, 10_000).map(i -> 2 * i + 1).publishOn(Schedulers.parallel(), 32);
+		List<Integer> merged = MergeOrdered.merge(Comparator.<Integer>naturalOrder(), 16, evens, odds).collectList().block();
+		assertEquals(20_000, merged.size());
+		for (int i = 0; i < merged.size(); i++) {
+			assertEquals(i, merged.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void failWithFirstError() {
+		Flux<Integer> failing = Flux.just(2).concatWith(Flux.error(new IllegalStateException()));
+		ScriptedSubscriber.create()
+				.expectNext(1, 2)
+				.expectError(IllegalStateException.class)
+				.verify(MergeOrdered.merge(Comparator.<Integer>naturalOrder(), Flux.just(1, 3), failing));
+	}
+
+	@Test
+	public void waitForEverySourceBeforeEmitting() {
+		List<Integer> merged = new ArrayList<>();
+		DirectProcessor<Integer> late = DirectProcessor.create();
+		MergeOrdered.merge(Comparator.<Integer>naturalOrder(), Flux.just(2, 3), late).subscribe(merged::add);
+		assertTrue(merged.isEmpty());
+		late.onNext(1);
+		assertEquals(1, merged.size());
+		late.onComplete();
+		assertEquals(3, merged.size());
+	}
+
+}
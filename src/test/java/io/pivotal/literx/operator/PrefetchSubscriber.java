@@ -0,0 +1,184 @@
+package io.pivotal.literx.operator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Fuseable;
+
+/**
+ * Subscriber to one of the sources of a multi-source operator, buffering at most
+ * {@code prefetch} of its elements for the operator's drain loop to {@link #poll()}. The
+ * source is requested {@code prefetch} elements upfront, then more in chunks of three
+ * quarters of that as they are polled, rather than one element at a time.
+ *
+ * Elements are buffered in a single producer, single consumer ring, or polled from the
+ * source's own queue when it supports {@link Fuseable queue fusion}, as
+ * {@code Flux.fromArray} synchronously or {@code publishOn} asynchronously do.
+ */
+final class PrefetchSubscriber<T> implements Subscriber<T> {
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<PrefetchSubscriber> PRODUCED =
+			AtomicLongFieldUpdater.newUpdater(PrefetchSubscriber.class, "produced");
+
+	private final Parent parent;
+
+	private final int prefetch;
+
+	private final int replenish;
+
+	private final Object[] buffer;
+
+	private final int mask;
+
+	// only accessed from the drain loop
+	private long consumed;
+
+	private int consumedSinceRequest;
+
+	private volatile long produced;
+
+	private Fuseable.QueueSubscription<T> fused;
+
+	private int fusionMode;
+
+	private volatile Subscription subscription;
+
+	private volatile boolean done;
+
+
+	PrefetchSubscriber(Parent parent, int prefetch) {
+		this.parent = parent;
+		this.prefetch = prefetch;
+		this.replenish = Math.max(1, prefetch - prefetch / 4);
+		int capacity = prefetch == 1 ? 1 : Integer.highestOneBit(prefetch - 1) << 1;
+		this.buffer = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void onSubscribe(Subscription s) {
+		if (s instanceof Fuseable.QueueSubscription) {
+			Fuseable.QueueSubscription<T> queue = (Fuseable.QueueSubscription<T>) s;
+			int mode = queue.requestFusion(Fuseable.ANY);
+			if (mode != Fuseable.NONE) {
+				fused = queue;
+				fusionMode = mode;
+			}
+		}
+		subscription = s;
+		if (parent.isCancelled()) {
+			s.cancel();
+		}
+		else if (fusionMode == Fuseable.SYNC) {
+			// the queue holds all the elements, an empty poll means the source completed
+			done = true;
+			parent.drain();
+		}
+		else {
+			s.request(prefetch);
+		}
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (fusionMode == Fuseable.ASYNC) {
+			parent.drain();
+			return;
+		}
+		long p = produced;
+		if (p - consumed > mask) {
+			subscription.cancel();
+			onError(new IllegalStateException("Source emitted more than requested"));
+			return;
+		}
+		buffer[(int) p & mask] = t;
+		PRODUCED.lazySet(this, p + 1);
+		parent.drain();
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		parent.innerError(t);
+	}
+
+	@Override
+	public void onComplete() {
+		done = true;
+		parent.drain();
+	}
+
+
+	/**
+	 * @return {@code true} once the source completed, in which case a {@code null}
+	 * {@link #poll()} afterwards means all its elements were polled
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return the next element, or {@code null} if none is available yet
+	 */
+	@SuppressWarnings("unchecked")
+	T poll() {
+		T value;
+		if (fused != null) {
+			value = fused.poll();
+			if (value == null) {
+				return null;
+			}
+		}
+		else {
+			if (consumed == produced) {
+				return null;
+			}
+			int index = (int) consumed & mask;
+			value = (T) buffer[index];
+			buffer[index] = null;
+			consumed++;
+		}
+		if (fusionMode != Fuseable.SYNC && ++consumedSinceRequest == replenish) {
+			consumedSinceRequest = 0;
+			subscription.request(replenish);
+		}
+		return value;
+	}
+
+	void cancel() {
+		Subscription s = subscription;
+		if (s != null) {
+			s.cancel();
+		}
+	}
+
+	void clear() {
+		if (fused != null) {
+			fused.clear();
+		}
+		else {
+			Arrays.fill(buffer, null);
+		}
+	}
+
+
+	/**
+	 * The operator draining the elements.
+	 */
+	interface Parent {
+
+		boolean isCancelled();
+
+		/**
+		 * Called when elements become available, or when the source completed.
+		 */
+		void drain();
+
+		void innerError(Throwable e);
+	}
+
+}
@@ -0,0 +1,129 @@
+package io.pivotal.literx.operator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preallocated ring of signals, overwriting the oldest ones once full. Recording claims a
+ * slot with a single atomic increment and fills it with ordered stores, so any thread can
+ * record without locking or allocating. Draining is done by one thread at a time, and
+ * skips the slots overwritten before it got to them.
+ */
+final class SignalRing {
+
+	static final int SUBSCRIBE = 0;
+
+	static final int REQUEST = 1;
+
+	static final int NEXT = 2;
+
+	static final int COMPLETE = 3;
+
+	static final int ERROR = 4;
+
+	static final int CANCEL = 5;
+
+	private static final int KIND_BITS = 3;
+
+	// time, subscription and kind, amount, unsampled
+	private static final int FIELDS = 4;
+
+	private final int mask;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLongArray fields;
+
+	private final AtomicReferenceArray<Object> values;
+
+	private final AtomicLong head = new AtomicLong();
+
+	// only accessed by the draining thread
+	private long tail;
+
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	SignalRing(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+		}
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.fields = new AtomicLongArray(size * FIELDS);
+		this.values = new AtomicReferenceArray<>(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, -1);
+		}
+	}
+
+
+	/**
+	 * @param amount the requested amount for {@link #REQUEST}
+	 * @param unsampled the number of signals of the same kind left out by sampling since
+	 * the previous one
+	 * @param value the element for {@link #NEXT}, or the error for {@link #ERROR}
+	 */
+	void record(long subscription, int kind, long time, long amount, long unsampled, Object value) {
+		long sequence = head.getAndIncrement();
+		int slot = (int) sequence & mask;
+		// each ordered store is visible after the previous ones, so a reader seeing the
+		// sequence sees the fields, and a reader seeing new fields sees the slot invalidated
+		sequences.lazySet(slot, -1);
+		fields.lazySet(slot * FIELDS, time);
+		fields.lazySet(slot * FIELDS + 1, subscription << KIND_BITS | kind);
+		fields.lazySet(slot * FIELDS + 2, amount);
+		fields.lazySet(slot * FIELDS + 3, unsampled);
+		values.lazySet(slot, value);
+		sequences.lazySet(slot, sequence);
+	}
+
+	/**
+	 * Pass the signals recorded since the previous drain to the consumer, oldest first.
+	 * Signals still being recorded are left for the next drain.
+	 * @return the number of signals overwritten before they could be drained
+	 */
+	long drain(SignalConsumer consumer) {
+		long head = this.head.get();
+		long lost = 0;
+		if (head - tail > mask + 1) {
+			lost = head - tail - mask - 1;
+			tail = head - mask - 1;
+		}
+		for (; tail < head; tail++) {
+			int slot = (int) tail & mask;
+			long sequence = sequences.get(slot);
+			if (sequence != tail) {
+				if (sequence > tail) {
+					lost++;
+					continue;
+				}
+				break;
+			}
+			long time = fields.get(slot * FIELDS);
+			long subscriptionAndKind = fields.get(slot * FIELDS + 1);
+			long amount = fields.get(slot * FIELDS + 2);
+			long unsampled = fields.get(slot * FIELDS + 3);
+			Object value = values.get(slot);
+			if (sequences.get(slot) != sequence) {
+				lost++;
+				continue;
+			}
+			consumer.accept(subscriptionAndKind >>> KIND_BITS, (int) subscriptionAndKind & ((1 << KIND_BITS) - 1), time,
+					amount, unsampled, value);
+			// release the element, unless a writer already reused the slot
+			values.compareAndSet(slot, value, null);
+		}
+		return lost;
+	}
+
+
+	interface SignalConsumer {
+
+		void accept(long subscription, int kind, long time, long amount, long unsampled, Object value);
+	}
+
+}
@@ -0,0 +1,253 @@
+package io.pivotal.literx.operator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * Signal logging for hot streams, in place of {@link Flux#log()}. Traced subscriptions
+ * record their signals in a {@link SignalRing} without formatting or logging them: a
+ * shared background thread formats and logs them later, through the
+ * {@code io.pivotal.literx.trace.<name>} logger, which {@code logback-test.xml} routes
+ * to an asynchronous appender.
+ *
+ * A tracer either {@linkplain #log(String, Sampling) logs} the signals of all the streams
+ * it traces, sampling {@code onNext} and {@code request} signals, or
+ * {@linkplain #dumpOnError(String, int) dumps} the last signals of a stream only when it
+ * fails. Elements are formatted when logged, so they are kept referenced until then, and
+ * a mutable element is logged in its state at that time.
+ */
+public final class SignalTracer {
+
+	static final int DEFAULT_LOG_CAPACITY = 4096;
+
+	private static final long FLUSH_INTERVAL_MS = 100;
+
+	private static final TimedScheduler FLUSHER = Schedulers.newTimer("signal-trace", true);
+
+	private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS")
+			.withZone(ZoneId.systemDefault());
+
+	private static final AtomicIntegerFieldUpdater<SignalTracer> FLUSH_SCHEDULED =
+			AtomicIntegerFieldUpdater.newUpdater(SignalTracer.class, "flushScheduled");
+
+	private final Logger logger;
+
+	private final Sampling sampling;
+
+	// the ring shared by all the traced subscriptions, null when dumping on error
+	private final SignalRing log;
+
+	private final int dumpCapacity;
+
+	private final Queue<Dump> dumps = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong subscriptions = new AtomicLong();
+
+	private volatile int flushScheduled;
+
+
+	private SignalTracer(String name, Sampling sampling, SignalRing log, int dumpCapacity) {
+		this.logger = LoggerFactory.getLogger("io.pivotal.literx.trace." + name);
+		this.sampling = sampling;
+		this.log = log;
+		this.dumpCapacity = dumpCapacity;
+	}
+
+
+	/**
+	 * Log every signal of the traced streams.
+	 */
+	public static SignalTracer log(String name) {
+		return log(name, Sampling.all());
+	}
+
+	/**
+	 * Log the signals of the traced streams, {@code onNext} and {@code request} signals
+	 * being sampled. Up to {@value #DEFAULT_LOG_CAPACITY} signals are buffered between two
+	 * flushes, older ones being dropped.
+	 */
+	public static SignalTracer log(String name, Sampling sampling) {
+		return new SignalTracer(name, sampling, new SignalRing(DEFAULT_LOG_CAPACITY), 0);
+	}
+
+	/**
+	 * Log nothing unless a traced stream fails, in which case its last
+	 * {@code lastSignals} signals are logged as an error, along with the failure. Each
+	 * subscription allocates a ring of that size when it starts.
+	 */
+	public static SignalTracer dumpOnError(String name, int lastSignals) {
+		if (lastSignals <= 0) {
+			throw new IllegalArgumentException("lastSignals must be positive, was " + lastSignals);
+		}
+		return new SignalTracer(name, Sampling.all(), null, lastSignals);
+	}
+
+
+	public <T> Flux<T> trace(Publisher<T> source) {
+		return Flux.from(new FluxSignalTrace<>(source, this));
+	}
+
+	/**
+	 * Log the signals recorded so far, instead of waiting for the background thread to.
+	 */
+	public synchronized void flush() {
+		if (log != null) {
+			long lost = log.drain((subscription, kind, time, amount, unsampled, value) ->
+					logger.info("#{} {} {}", subscription, TIME_FORMAT.format(instant(time)), format(kind, amount, unsampled, value)));
+			if (lost > 0) {
+				logger.warn("{} signals dropped, recorded faster than they could be logged", lost);
+			}
+		}
+		Dump dump;
+		while ((dump = dumps.poll()) != null) {
+			StringBuilder message = new StringBuilder();
+			long lost = dump.ring.drain((subscription, kind, time, amount, unsampled, value) -> message.append("\n  ")
+					.append(TIME_FORMAT.format(instant(time))).append(' ').append(format(kind, amount, unsampled, value)));
+			logger.error("#{} failed{}, last signals:{}", dump.subscription, lost > 0 ? " after " + lost + " earlier signals" : "",
+					message, dump.error);
+		}
+	}
+
+
+	Sampling sampling() {
+		return sampling;
+	}
+
+	long nextSubscription() {
+		return subscriptions.incrementAndGet();
+	}
+
+	/**
+	 * @return the ring a new subscription records to
+	 */
+	SignalRing ring() {
+		return log != null ? log : new SignalRing(dumpCapacity);
+	}
+
+	/**
+	 * Called after each signal recorded to the given ring, which is only checked against a
+	 * volatile flag on the hot path.
+	 */
+	void recorded(SignalRing ring) {
+		if (ring == log && flushScheduled == 0 && FLUSH_SCHEDULED.compareAndSet(this, 0, 1)) {
+			FLUSHER.schedule(this::scheduledFlush, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	void failed(SignalRing ring, long subscription, Throwable error) {
+		if (ring != log) {
+			dumps.offer(new Dump(ring, subscription, error));
+			FLUSHER.schedule(this::flush);
+		}
+	}
+
+
+	private void scheduledFlush() {
+		flushScheduled = 0;
+		flush();
+	}
+
+	private static Instant instant(long nanoTime) {
+		long epochNanos = nanoTime + EPOCH_OFFSET_NANOS;
+		return Instant.ofEpochSecond(epochNanos / 1_000_000_000, epochNanos % 1_000_000_000);
+	}
+
+	private static String format(int kind, long amount, long unsampledCount, Object value) {
+		String unsampled = unsampledCount > 0 ? " (+" + unsampledCount + " unsampled)" : "";
+		switch (kind) {
+		case SignalRing.SUBSCRIBE:
+			return "onSubscribe()";
+		case SignalRing.REQUEST:
+			return "request(" + (amount == Long.MAX_VALUE ? "unbounded" : String.valueOf(amount)) + ")" + unsampled;
+		case SignalRing.NEXT:
+			return "onNext(" + value + ")" + unsampled;
+		case SignalRing.COMPLETE:
+			return "onComplete()";
+		case SignalRing.ERROR:
+			return "onError(" + value + ")";
+		case SignalRing.CANCEL:
+			return "cancel()";
+		default:
+			throw new IllegalStateException("Unknown signal " + kind);
+		}
+	}
+
+
+	private static final class Dump {
+
+		final SignalRing ring;
+
+		final long subscription;
+
+		final Throwable error;
+
+		Dump(SignalRing ring, long subscription, Throwable error) {
+			this.ring = ring;
+			this.subscription = subscription;
+			this.error = error;
+		}
+	}
+
+
+	/**
+	 * Which {@code onNext} and {@code request} signals of a subscription are recorded. The
+	 * first one of each kind always is, and the others left out are counted in the next one
+	 * recorded. Subscription, cancellation and terminal signals are always recorded.
+	 */
+	public static final class Sampling {
+
+		private static final Sampling ALL = new Sampling(1, 0);
+
+		final int every;
+
+		final long windowNanos;
+
+
+		private Sampling(int every, long windowNanos) {
+			this.every = every;
+			this.windowNanos = windowNanos;
+		}
+
+
+		public static Sampling all() {
+			return ALL;
+		}
+
+		/**
+		 * Record one signal of each kind out of {@code n}.
+		 */
+		public static Sampling everyNth(int n) {
+			if (n <= 0) {
+				throw new IllegalArgumentException("n must be positive, was " + n);
+			}
+			return new Sampling(n, 0);
+		}
+
+		/**
+		 * Record at most one signal of each kind per {@code window}.
+		 */
+		public static Sampling perWindow(Duration window) {
+			if (window.isNegative() || window.isZero()) {
+				throw new IllegalArgumentException("window must be positive, was " + window);
+			}
+			return new Sampling(1, window.toNanos());
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package io.pivotal.literx.operator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class SignalTracerTest {
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger("io.pivotal.literx.trace.test");
+
+	private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+	@Before
+	public void attachAppender() {
+		appender.start();
+		logger.addAppender(appender);
+		logger.setAdditive(false);
+	}
+
+	@After
+	public void detachAppender() {
+		logger.detachAppender(appender);
+	}
+
+	@Test
+	public void logAllSignals() {
+		SignalTracer tracer = SignalTracer.log("test");
+		ScriptedSubscriber.create(1)
+				.expectNext(1)
+				.thenRequest(2)
+				.expectNext(2, 3)
+				.expectComplete()
+				.verify(tracer.trace(Flux.range(1, 3)));
+		tracer.flush();
+
+		List<String> signals = messages();
+		assertEquals(7, signals.size());
+		assertTrue(signals.get(0), signals.get(0).matches("#1 \\d\\d:\\d\\d:\\d\\d\\.\\d{6} onSubscribe\\(\\)"));
+		assertTrue(signals.get(1).endsWith(" request(1)"));
+		assertTrue(signals.get(2).endsWith(" onNext(1)"));
+		assertTrue(signals.get(3).endsWith(" request(2)"));
+		assertTrue(signals.get(6).endsWith(" onComplete()"));
+	}
+
+	@Test
+	public void sampleEveryNth() {
+		SignalTracer tracer = SignalTracer.log("test", SignalTracer.Sampling.everyNth(10));
+		tracer.trace(Flux.range(1, 25)).then().block();
+		tracer.flush();
+
+		List<String> signals = messages();
+		assertEquals(6, signals.size());
+		assertTrue(signals.get(2).endsWith(" onNext(1)"));
+		assertTrue(signals.get(3).endsWith(" onNext(11) (+9 unsampled)"));
+		assertTrue(signals.get(4).endsWith(" onNext(21) (+9 unsampled)"));
+		assertTrue(signals.get(5).endsWith(" onComplete()"));
+	}
+
+	@Test
+	public void samplePerWindow() {
+		SignalTracer tracer = SignalTracer.log("test", SignalTracer.Sampling.perWindow(Duration.ofHours(1)));
+		tracer.trace(Flux.range(1, 1000)).then().block();
+		tracer.flush();
+
+		List<String> signals = messages();
+		assertEquals(4, signals.size());
+		assertTrue(signals.get(2).endsWith(" onNext(1)"));
+	}
+
+	@Test
+	public void dropSignalsOverCapacity() {
+		SignalTracer tracer = SignalTracer.log("test");
+		tracer.trace(Flux.range(1, SignalTracer.DEFAULT_LOG_CAPACITY)).then().block();
+		tracer.flush();
+
+		assertEquals(SignalTracer.DEFAULT_LOG_CAPACITY + 1, appender.list.size());
+		assertTrue(messages().get(SignalTracer.DEFAULT_LOG_CAPACITY - 1).endsWith(" onComplete()"));
+		ILoggingEvent warning = appender.list.get(SignalTracer.DEFAULT_LOG_CAPACITY);
+		assertEquals(Level.WARN, warning.getLevel());
+		assertEquals("3 signals dropped, recorded faster than they could be logged", warning.getFormattedMessage());
+	}
+
+	@Test
+	public void dumpLastSignalsOnError() {
+		SignalTracer tracer = SignalTracer.dumpOnError("test", 4);
+		tracer.trace(Flux.range(1, 10)).then().block();
+		ScriptedSubscriber.create()
+				.expectNext(1, 2, 3)
+				.expectError(IllegalStateException.class)
+				.verify(tracer.trace(Flux.range(1, 3).concatWith(Flux.error(new IllegalStateException("boom")))));
+		tracer.flush();
+
+		assertEquals(1, appender.list.size());
+		ILoggingEvent dump = appender.list.get(0);
+		assertEquals(Level.ERROR, dump.getLevel());
+		assertEquals("boom", dump.getThrowableProxy().getMessage());
+		String[] lines = dump.getFormattedMessage().split("\n");
+		assertEquals("#2 failed after 2 earlier signals, last signals:", lines[0]);
+		assertTrue(lines[1].endsWith(" onNext(1)"));
+		assertTrue(lines[4].endsWith(" onError(java.lang.IllegalStateException: boom)"));
+	}
+
+	@Test
+	public void flushInBackground() throws InterruptedException {
+		SignalTracer tracer = SignalTracer.log("test");
+		tracer.trace(Flux.just(1)).then().block();
+		for (int i = 0; i < 100 && appender.list.size() < 4; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(4, messages().size());
+	}
+
+
+	private List<String> messages() {
+		return appender.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,76 @@
+package io.pivotal.literx.operator;
+
+import java.util.function.BiFunction;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+/**
+ * Zip stages combining the elements of their sources directly, for instance to assemble
+ * rows from column-oriented sources, where {@code Flux.zip(...).map(...)} would allocate a
+ * tuple per row and replenish each source one element at a time.
+ */
+public final class ZipCombine {
+
+	private static final int DEFAULT_PREFETCH = 256;
+
+	private ZipCombine() {
+	}
+
+	/**
+	 * Combine the elements of two sources pairwise, completing once either source completed
+	 * and its elements were combined. Each source is prefetched 256 elements at a time.
+	 */
+	public static <A, B, R> Flux<R> zip(Publisher<? extends A> a, Publisher<? extends B> b,
+			BiFunction<? super A, ? super B, ? extends R> combiner) {
+		return zip(a, b, combiner, DEFAULT_PREFETCH);
+	}
+
+	/**
+	 * Combine the elements of two sources pairwise, prefetching {@code prefetch} elements
+	 * from each and requesting more in chunks of three quarters of that.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, R> Flux<R> zip(Publisher<? extends A> a, Publisher<? extends B> b,
+			BiFunction<? super A, ? super B, ? extends R> combiner, int prefetch) {
+		checkPrefetch(prefetch);
+		return Flux.from(new FluxZipCombine<R>(new Publisher<?>[] {a, b},
+				heads -> combiner.apply((A) heads[0], (B) heads[1]), prefetch));
+	}
+
+	/**
+	 * Combine the elements of three sources, completing once any source completed and its
+	 * elements were combined. Each source is prefetched 256 elements at a time.
+	 */
+	public static <A, B, C, R> Flux<R> zip(Publisher<? extends A> a, Publisher<? extends B> b, Publisher<? extends C> c,
+			Function3<? super A, ? super B, ? super C, ? extends R> combiner) {
+		return zip(a, b, c, combiner, DEFAULT_PREFETCH);
+	}
+
+	/**
+	 * Combine the elements of three sources, prefetching {@code prefetch} elements from each
+	 * and requesting more in chunks of three quarters of that.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, C, R> Flux<R> zip(Publisher<? extends A> a, Publisher<? extends B> b, Publisher<? extends C> c,
+			Function3<? super A, ? super B, ? super C, ? extends R> combiner, int prefetch) {
+		checkPrefetch(prefetch);
+		return Flux.from(new FluxZipCombine<R>(new Publisher<?>[] {a, b, c},
+				heads -> combiner.apply((A) heads[0], (B) heads[1], (C) heads[2]), prefetch));
+	}
+
+
+	private static void checkPrefetch(int prefetch) {
+		if (prefetch <= 0) {
+			throw new IllegalArgumentException("prefetch must be positive, was " + prefetch);
+		}
+	}
+
+
+	@FunctionalInterface
+	public interface Function3<A, B, C, R> {
+
+		R apply(A a, B b, C c);
+	}
+
+}
@@ -0,0 +1,74 @@
+package io.pivotal.literx.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class ZipCombineTest {
+
+	@Test
+	public void assembleUsersFromColumns() {
+		Flux<String> usernames = Flux.just(User.SKYLER.getUsername(), User.JESSE.getUsername(), User.WALTER.getUsername());
+		Flux<String> firstnames = Flux.just(User.SKYLER.getFirstname(), User.JESSE.getFirstname(), User.WALTER.getFirstname());
+		Flux<String> lastnames = Flux.just(User.SKYLER.getLastname(), User.JESSE.getLastname(), User.WALTER.getLastname(), "Extra");
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER)
+				.expectComplete()
+				.verify(ZipCombine.zip(usernames, firstnames, lastnames, User::new));
+	}
+
+	@Test
+	public void requestSourcesInChunks() {
+		List<Long> requests = new ArrayList<>();
+		Flux<Integer> numbers = Flux.range(0, 1000).hide().doOnRequest(requests::add);
+		assertEquals(1000, ZipCombine.zip(numbers, Flux.range(0, 1000), Integer::sum, 64).count().block().longValue());
+		assertEquals(64, requests.get(0).longValue());
+		assertEquals(48, requests.get(1).longValue());
+		assertEquals(21, requests.size());
+	}
+
+	@Test
+	public void pollSynchronousSourcesWithoutRequests() {
+		List<Long> requests = new ArrayList<>();
+		Flux<Integer> numbers = Flux.range(0, 1000).doOnRequest(requests::add);
+		assertEquals(1000, ZipCombine.zip(numbers, Flux.range(0, 1000), Integer::sum, 64).count().block().longValue());
+		assertEquals(0, requests.size());
+	}
+
+	@Test
+	public void honourDownstreamDemand() {
+		ScriptedSubscriber.create(1)
+				.expectNext(0)
+				.thenRequest(2)
+				.expectNext(2, 4)
+				.thenCancel()
+				.verify(ZipCombine.zip(Flux.range(0, 100), Flux.range(0, 100), Integer::sum, 4));
+	}
+
+	@Test
+	public void failWithFirstError() {
+		Flux<Integer> failing = Flux.just(1).concatWith(Flux.error(new IllegalStateException()));
+		ScriptedSubscriber.create()
+				.expectNext(2)
+				.expectError(IllegalStateException.class)
+				.verify(ZipCombine.zip(Flux.range(1, 10), failing, Integer::sum));
+	}
+
+	@Test
+	public void zipAsynchronousSources() {
+		Flux<Integer> a = Flux.range(0, 100_000).publishOn(Schedulers.parallel());
+		Flux<Integer> b = Flux.range(0, 100_000).publishOn(Schedulers.parallel());
+		List<Integer> sums = ZipCombine.zip(a, b, Integer::sum, 32).collectList().block();
+		assertEquals(100_000, sums.size());
+		for (int i = 0; i < sums.size(); i++) {
+			assertEquals(2 * i, sums.get(i).intValue());
+		}
+	}
+
+}
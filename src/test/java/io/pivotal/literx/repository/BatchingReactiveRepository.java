@@ -0,0 +1,202 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.Cancellation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * Coalesces {@link #findById(String)} calls into {@link ReactiveRepository#findAllById}
+ * calls on the decorated repository, like a data loader: the ids looked up within
+ * {@code window} of the first one, or until {@code maxBatchSize} distinct ids are
+ * collected, are fetched in one bulk lookup and the results are fanned out to each
+ * caller. Lookups of the same id within a batch share its result.
+ *
+ * A lookup joins a batch when subscribed to. An id missing from the bulk lookup results
+ * is signaled as an {@link IllegalArgumentException}, like {@link ReactiveUserRepository}
+ * does for unknown usernames.
+ */
+public class BatchingReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private final ReactiveRepository<T> backend;
+
+	private final Function<? super T, String> idFunction;
+
+	private final int maxBatchSize;
+
+	private final long windowInMs;
+
+	private final TimedScheduler timer;
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder batches = new LongAdder();
+
+	// guarded by this
+	private Map<String, MonoProcessor<T>> batch;
+
+	private Cancellation windowTask;
+
+
+	/**
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 */
+	public BatchingReactiveRepository(ReactiveRepository<T> backend, Function<? super T, String> idFunction, int maxBatchSize,
+			Duration window) {
+		this(backend, idFunction, maxBatchSize, window, Schedulers.timer());
+	}
+
+	/**
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 * @param timer the scheduler measuring the batching window, for instance a
+	 * {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public BatchingReactiveRepository(ReactiveRepository<T> backend, Function<? super T, String> idFunction, int maxBatchSize,
+			Duration window, TimedScheduler timer) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive, was " + maxBatchSize);
+		}
+		this.backend = backend;
+		this.idFunction = idFunction;
+		this.maxBatchSize = maxBatchSize;
+		this.windowInMs = window.toMillis();
+		this.timer = timer;
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return backend.save(publisher);
+	}
+
+	@Override
+	public Flux<Integer> saveAll(Publisher<T> publisher, int batchSize, Duration maxLatency) {
+		return backend.saveAll(publisher, batchSize, maxLatency);
+	}
+
+	@Override
+	public Mono<T> findFirst() {
+		return backend.findFirst();
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return backend.findAll();
+	}
+
+	@Override
+	public Flux<T> findAll(Comparator<? super T> order) {
+		return backend.findAll(order);
+	}
+
+	@Override
+	public Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		return backend.findAllAfter(order, last);
+	}
+
+	@Override
+	public Mono<T> findById(String id) {
+		return Mono.defer(() -> {
+			lookups.increment();
+			MonoProcessor<T> result;
+			Map<String, MonoProcessor<T>> full = null;
+			synchronized (this) {
+				if (batch == null) {
+					Map<String, MonoProcessor<T>> opened = new LinkedHashMap<>();
+					batch = opened;
+					windowTask = timer.schedule(() -> dispatchIfOpen(opened), windowInMs, TimeUnit.MILLISECONDS);
+				}
+				result = batch.get(id);
+				if (result == null) {
+					result = MonoProcessor.create();
+					batch.put(id, result);
+					if (batch.size() == maxBatchSize) {
+						full = closeBatch();
+					}
+				}
+			}
+			if (full != null) {
+				dispatch(full);
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public Flux<T> findAllById(Publisher<String> ids) {
+		return backend.findAllById(ids);
+	}
+
+	/**
+	 * @return the number of {@link #findById(String)} lookups
+	 */
+	public long getLookupCount() {
+		return lookups.sum();
+	}
+
+	/**
+	 * @return the number of bulk lookups made to the decorated repository
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+
+	private void dispatchIfOpen(Map<String, MonoProcessor<T>> opened) {
+		Map<String, MonoProcessor<T>> closed;
+		synchronized (this) {
+			if (batch != opened) {
+				// already dispatched because it filled up
+				return;
+			}
+			closed = closeBatch();
+		}
+		dispatch(closed);
+	}
+
+	private Map<String, MonoProcessor<T>> closeBatch() {
+		Map<String, MonoProcessor<T>> closed = batch;
+		batch = null;
+		windowTask.dispose();
+		windowTask = null;
+		return closed;
+	}
+
+	private void dispatch(Map<String, MonoProcessor<T>> requests) {
+		batches.increment();
+		Map<String, T> found = new HashMap<>(requests.size() * 2);
+		Flux<T> values;
+		try {
+			values = backend.findAllById(Flux.fromIterable(requests.keySet()));
+		}
+		catch (RuntimeException e) {
+			requests.values().forEach(result -> result.onError(e));
+			return;
+		}
+		values.subscribe(
+				value -> found.put(idFunction.apply(value), value),
+				error -> requests.values().forEach(result -> result.onError(error)),
+				() -> requests.forEach((id, result) -> {
+					T value = found.get(id);
+					if (value != null) {
+						result.onNext(value);
+					}
+					else {
+						result.onError(new IllegalArgumentException("No value with id " + id + " found!"));
+					}
+				}));
+	}
+
+}
@@ -0,0 +1,102 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.MonoProcessor;
+
+public class BatchingReactiveRepositoryTest {
+
+	private final VirtualTimeScheduler timer = new VirtualTimeScheduler();
+
+	private final AtomicInteger bulkLookups = new AtomicInteger();
+
+	private final ReactiveRepository<User> backend = new ReactiveUserRepository(LatencyModel.fixed(10), timer,
+			User.SKYLER, User.JESSE, User.WALTER, User.SAUL) {
+
+		@Override
+		public Flux<User> findAllById(Publisher<String> usernames) {
+			bulkLookups.incrementAndGet();
+			return super.findAllById(usernames);
+		}
+	};
+
+	private final BatchingReactiveRepository<User> repository = new BatchingReactiveRepository<>(backend,
+			User::getUsername, 3, Duration.ofMillis(5), timer);
+
+	@Test
+	public void coalesceLookupsWithinWindow() {
+		MonoProcessor<User> walter = repository.findById("wwhite").subscribe();
+		MonoProcessor<User> jesse = repository.findById("jpinkman").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(4));
+		assertEquals(0, bulkLookups.get());
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		assertEquals(1, bulkLookups.get());
+		assertNull(walter.peek());
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(User.WALTER, walter.peek());
+		assertEquals(User.JESSE, jesse.peek());
+		assertEquals(1, repository.getBatchCount());
+		assertEquals(2, repository.getLookupCount());
+	}
+
+	@Test
+	public void dispatchFullBatchWithoutWaiting() {
+		MonoProcessor<User> walter = repository.findById("wwhite").subscribe();
+		repository.findById("jpinkman").subscribe();
+		repository.findById("swhite").subscribe();
+		MonoProcessor<User> saul = repository.findById("sgoodman").subscribe();
+		assertEquals(1, bulkLookups.get());
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(User.WALTER, walter.peek());
+		assertNull(saul.peek());
+		timer.advanceTimeBy(Duration.ofMillis(5));
+		assertEquals(2, bulkLookups.get());
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(User.SAUL, saul.peek());
+	}
+
+	@Test
+	public void shareLookupsOfSameId() {
+		MonoProcessor<User> first = repository.findById("wwhite").subscribe();
+		MonoProcessor<User> second = repository.findById("wwhite").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(15));
+		assertEquals(User.WALTER, first.peek());
+		assertEquals(User.WALTER, second.peek());
+		assertEquals(1, bulkLookups.get());
+	}
+
+	@Test
+	public void backendThrowingFailsTheWholeBatch() {
+		BatchingReactiveRepository<User> repository = new BatchingReactiveRepository<>(
+				new ReactiveUserRepository(LatencyModel.none(), User.WALTER, User.JESSE) {
+					@Override
+					public Flux<User> findAllById(Publisher<String> usernames) {
+						throw new IllegalStateException("Backend unavailable");
+					}
+				},
+				User::getUsername, 3, Duration.ofMillis(5), timer);
+		MonoProcessor<User> walter = repository.findById("wwhite").subscribe();
+		MonoProcessor<User> jesse = repository.findById("jpinkman").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(5));
+		assertEquals(IllegalStateException.class, walter.getError().getClass());
+		assertEquals(IllegalStateException.class, jesse.getError().getClass());
+	}
+
+	@Test
+	public void failUnknownIdOnly() {
+		MonoProcessor<User> walter = repository.findById("wwhite").subscribe();
+		MonoProcessor<User> unknown = repository.findById("mschrader").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(15));
+		assertEquals(User.WALTER, walter.peek());
+		assertEquals(IllegalArgumentException.class, unknown.getError().getClass());
+	}
+
+}
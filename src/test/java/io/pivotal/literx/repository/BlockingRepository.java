@@ -4,6 +4,16 @@ public interface BlockingRepository<T> {
 
 	void save(T value);
 
+	/**
+	 * Save all the values, in a single call to the underlying store when the implementation
+	 * supports it.
+	 */
+	default void saveAll(Iterable<T> values) {
+		for (T value : values) {
+			save(value);
+		}
+	}
+
 	T findFirst();
 
 	Iterable<T> findAll();
@@ -1,13 +1,20 @@
 package io.pivotal.literx.repository;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.pivotal.literx.domain.User;
+import io.pivotal.literx.operator.BlockingIterable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class BlockingUserRepository implements BlockingRepository<User>{
 
 	private final ReactiveRepository<User> reactiveRepository;
 
-	private int callCount = 0;
+	private final AtomicInteger callCount = new AtomicInteger();
 
 	public BlockingUserRepository() {
 		reactiveRepository = new ReactiveUserRepository();
@@ -28,29 +35,41 @@ public class BlockingUserRepository implements BlockingRepository<User>{
 
 	@Override
 	public void save(User user) {
-		callCount++;
+		callCount.incrementAndGet();
 		reactiveRepository.save(Mono.just(user)).block();
 	}
 
+	@Override
+	public void saveAll(Iterable<User> users) {
+		callCount.incrementAndGet();
+		List<User> batch = new ArrayList<>();
+		users.forEach(batch::add);
+		if (batch.isEmpty()) {
+			return;
+		}
+		// the whole batch is available upfront, so it is committed as soon as it is full and never lingers
+		reactiveRepository.saveAll(Flux.fromIterable(batch), batch.size(), Duration.ofSeconds(1)).then().block();
+	}
+
 	@Override
 	public User findFirst() {
-		callCount++;
+		callCount.incrementAndGet();
 		return reactiveRepository.findFirst().block();
 	}
 
 	@Override
 	public Iterable<User> findAll() {
-		callCount++;
-		return reactiveRepository.findAll().toIterable();
+		callCount.incrementAndGet();
+		return new BlockingIterable<>(reactiveRepository.findAll());
 	}
 
 	@Override
 	public User findById(String username) {
-		callCount++;
+		callCount.incrementAndGet();
 		return reactiveRepository.findById(username).block();
 	}
 
 	public int getCallCount() {
-		return callCount;
+		return callCount.get();
 	}
 }
@@ -0,0 +1,276 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * Read-through cache in front of a {@link ReactiveRepository}, for {@link #findById} and
+ * {@link #findFirst()}. {@link #findAll()} is not cached.
+ *
+ * The cache holds at most {@code maxSize} entries, evicting the least recently used one,
+ * and an entry expires {@code timeToLive} after it was loaded. Saving a value invalidates
+ * its entry, as well as the cached first value. Concurrent misses for the same id share a
+ * single backend call.
+ */
+public class CachingReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private static final Object FIRST = new Object();
+
+	private final ReactiveRepository<T> backend;
+
+	private final Function<? super T, String> idFunction;
+
+	private final long timeToLiveInMs;
+
+	private final TimedScheduler clock;
+
+	// guarded by itself, in access order
+	private final LinkedHashMap<Object, CacheEntry<T>> entries;
+
+	private final Map<Object, MonoProcessor<T>> loads = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder loadCount = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder expirations = new LongAdder();
+
+
+	/**
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 */
+	public CachingReactiveRepository(ReactiveRepository<T> backend, Function<? super T, String> idFunction, int maxSize,
+			Duration timeToLive) {
+		this(backend, idFunction, maxSize, timeToLive, Schedulers.timer());
+	}
+
+	/**
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 * @param clock the time source entries expire on, for instance a
+	 * {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public CachingReactiveRepository(ReactiveRepository<T> backend, Function<? super T, String> idFunction, int maxSize,
+			Duration timeToLive, TimedScheduler clock) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive, was " + maxSize);
+		}
+		this.backend = backend;
+		this.idFunction = idFunction;
+		this.timeToLiveInMs = timeToLive.toMillis();
+		this.clock = clock;
+		this.entries = new LinkedHashMap<Object, CacheEntry<T>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry<T>> eldest) {
+				if (size() > maxSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Invalidate the saved values once they reach the backend, and again once the backend
+	 * stored them, so that a lookup racing with the save cannot cache the previous value.
+	 */
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return Mono.defer(() -> {
+			List<String> ids = new ArrayList<>();
+			return backend.save(invalidating(publisher, ids))
+					.doOnSuccess(v -> ids.forEach(this::invalidate));
+		});
+	}
+
+	@Override
+	public Flux<Integer> saveAll(Publisher<T> publisher, int batchSize, Duration maxLatency) {
+		return Flux.defer(() -> {
+			List<String> ids = new ArrayList<>();
+			return backend.saveAll(invalidating(publisher, ids), batchSize, maxLatency)
+					.doOnComplete(() -> ids.forEach(this::invalidate));
+		});
+	}
+
+	@Override
+	public Mono<T> findFirst() {
+		return lookup(FIRST, backend::findFirst);
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return backend.findAll();
+	}
+
+	@Override
+	public Flux<T> findAll(Comparator<? super T> order) {
+		return backend.findAll(order);
+	}
+
+	@Override
+	public Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		return backend.findAllAfter(order, last);
+	}
+
+	@Override
+	public Mono<T> findById(String id) {
+		return lookup(id, () -> backend.findById(id));
+	}
+
+	public void invalidate(String id) {
+		synchronized (entries) {
+			entries.remove(id);
+			entries.remove(FIRST);
+			loads.remove(id);
+			loads.remove(FIRST);
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+			loads.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of backend calls, lower than the number of misses when concurrent
+	 * misses for the same id were coalesced
+	 */
+	public long getLoadCount() {
+		return loadCount.sum();
+	}
+
+	/**
+	 * @return the number of entries evicted to stay within the maximum size
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the number of entries found expired
+	 */
+	public long getExpirationCount() {
+		return expirations.sum();
+	}
+
+
+	private Flux<T> invalidating(Publisher<T> publisher, List<String> ids) {
+		return Flux.from(publisher).doOnNext(value -> {
+			String id = idFunction.apply(value);
+			ids.add(id);
+			invalidate(id);
+		});
+	}
+
+	private Mono<T> lookup(Object key, Supplier<Mono<T>> loader) {
+		return Mono.defer(() -> {
+			T cached = get(key);
+			if (cached != null) {
+				hits.increment();
+				return Mono.just(cached);
+			}
+			misses.increment();
+			MonoProcessor<T> load = MonoProcessor.create();
+			MonoProcessor<T> current = loads.putIfAbsent(key, load);
+			if (current != null) {
+				return current;
+			}
+			loadCount.increment();
+			Mono<T> source;
+			try {
+				source = loader.get();
+			}
+			catch (RuntimeException e) {
+				// nothing will complete the load, so later lookups must not join it
+				loads.remove(key, load);
+				load.onError(e);
+				return load;
+			}
+			source
+					.doOnSuccess(value -> complete(key, load, value))
+					.doOnError(error -> complete(key, load, null))
+					.subscribe(load);
+			return load;
+		});
+	}
+
+	private T get(Object key) {
+		long now = clock.now(TimeUnit.MILLISECONDS);
+		synchronized (entries) {
+			CacheEntry<T> entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt <= now) {
+				entries.remove(key);
+				expirations.increment();
+				return null;
+			}
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Cache the loaded value unless the load was invalidated while in flight.
+	 */
+	private void complete(Object key, MonoProcessor<T> load, T value) {
+		long expiresAt = clock.now(TimeUnit.MILLISECONDS) + timeToLiveInMs;
+		synchronized (entries) {
+			if (loads.remove(key, load) && value != null) {
+				entries.put(key, new CacheEntry<>(value, expiresAt));
+			}
+		}
+	}
+
+
+	private static final class CacheEntry<T> {
+
+		final T value;
+
+		final long expiresAt;
+
+		CacheEntry(T value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
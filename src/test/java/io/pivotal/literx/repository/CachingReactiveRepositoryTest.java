@@ -0,0 +1,132 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class CachingReactiveRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	private final VirtualTimeScheduler timer = new VirtualTimeScheduler();
+
+	private final CachingReactiveRepository<User> repository = new CachingReactiveRepository<>(
+			new ReactiveUserRepository(LatencyModel.fixed(10), timer, User.SKYLER, User.JESSE, User.WALTER, User.SAUL),
+			User::getUsername, 2, Duration.ofSeconds(1), timer);
+
+	@Test
+	public void hitAfterMiss() {
+		assertEquals(User.WALTER, find("wwhite"));
+		assertEquals(User.WALTER, repository.findById("wwhite").block());
+		assertEquals(1, repository.getMissCount());
+		assertEquals(1, repository.getHitCount());
+		assertEquals(1, repository.getLoadCount());
+	}
+
+	@Test
+	public void coalesceConcurrentMisses() {
+		MonoProcessor<User> first = repository.findById("wwhite").subscribe();
+		MonoProcessor<User> second = repository.findById("wwhite").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(User.WALTER, first.peek());
+		assertEquals(User.WALTER, second.peek());
+		assertEquals(2, repository.getMissCount());
+		assertEquals(1, repository.getLoadCount());
+	}
+
+	@Test
+	public void expireAfterTimeToLive() {
+		find("wwhite");
+		timer.advanceTimeBy(Duration.ofMillis(999));
+		assertEquals(User.WALTER, repository.findById("wwhite").block());
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		find("wwhite");
+		assertEquals(1, repository.getExpirationCount());
+		assertEquals(2, repository.getLoadCount());
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+		find("wwhite");
+		find("jpinkman");
+		repository.findById("wwhite").block();
+		find("swhite");
+		assertEquals(2, repository.size());
+		assertEquals(1, repository.getEvictionCount());
+		assertEquals(User.WALTER, repository.findById("wwhite").block());
+		assertEquals(3, repository.getLoadCount());
+	}
+
+	@Test
+	public void invalidateOnSave() {
+		find("wwhite");
+		MonoProcessor<Void> saved = repository.save(Mono.just(new User("wwhite", "Walter", "Junior"))).subscribe();
+		assertEquals(0, repository.size());
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(true, saved.isSuccess());
+		find("wwhite");
+		assertEquals(2, repository.getLoadCount());
+	}
+
+	@Test
+	public void errorsAreNotCached() {
+		for (int i = 0; i < 2; i++) {
+			MonoProcessor<User> unknown = repository.findById(MARIE.getUsername()).subscribe();
+			timer.advanceTimeBy(Duration.ofMillis(10));
+			assertEquals(IllegalArgumentException.class, unknown.getError().getClass());
+		}
+		assertEquals(2, repository.getLoadCount());
+		assertEquals(0, repository.size());
+	}
+
+	@Test
+	public void backendThrowingDoesNotBlockLaterLookups() {
+		AtomicInteger calls = new AtomicInteger();
+		CachingReactiveRepository<User> repository = new CachingReactiveRepository<>(
+				new ReactiveUserRepository(LatencyModel.none(), User.WALTER) {
+					@Override
+					public Mono<User> findById(String username) {
+						if (calls.getAndIncrement() == 0) {
+							throw new IllegalStateException("Backend unavailable");
+						}
+						return super.findById(username);
+					}
+				},
+				User::getUsername, 2, Duration.ofSeconds(1), timer);
+		ScriptedSubscriber.create()
+				.expectError(IllegalStateException.class)
+				.verify(repository.findById("wwhite"));
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findById("wwhite"));
+		assertEquals(2, repository.getLoadCount());
+	}
+
+	@Test
+	public void findFirst() {
+		MonoProcessor<User> first = repository.findFirst().subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(User.SKYLER, first.peek());
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER)
+				.expectComplete()
+				.verify(repository.findFirst());
+		assertEquals(1, repository.getLoadCount());
+	}
+
+
+	private User find(String username) {
+		MonoProcessor<User> user = repository.findById(username).subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		return user.peek();
+	}
+
+}
@@ -0,0 +1,59 @@
+package io.pivotal.literx.repository;
+
+import io.pivotal.literx.domain.User;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory {@link ReactiveRepository} keeping its users in a {@link ColumnarUserStore},
+ * for data sets too large to hold as {@link User} objects. Users are created from the
+ * columns as they are emitted, so a scan only keeps the users the downstream has not
+ * consumed yet.
+ */
+public class ColumnarUserRepository implements ReactiveRepository<User> {
+
+	private final ColumnarUserStore store = new ColumnarUserStore();
+
+
+	public ColumnarUserRepository(User... users) {
+		for (User user : users) {
+			store.add(user);
+		}
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<User> userPublisher) {
+		return Flux.from(userPublisher).doOnNext(store::add).then();
+	}
+
+	@Override
+	public Mono<User> findFirst() {
+		return Mono.fromCallable(() -> store.size() > 0 ? store.get(0) : null);
+	}
+
+	@Override
+	public Flux<User> findAll() {
+		return Flux.defer(() -> Flux.range(0, store.size()).map(store::get));
+	}
+
+	@Override
+	public Mono<User> findById(String username) {
+		return Mono.defer(() -> {
+			int row = store.indexOf(username);
+			if (row < 0) {
+				return Mono.error(new IllegalArgumentException("No user with username " + username + " found!"));
+			}
+			return Mono.just(store.get(row));
+		});
+	}
+
+	/**
+	 * @return the store holding the users
+	 */
+	public ColumnarUserStore getStore() {
+		return store;
+	}
+
+}
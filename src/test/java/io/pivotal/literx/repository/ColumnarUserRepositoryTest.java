@@ -0,0 +1,42 @@
+package io.pivotal.literx.repository;
+
+import io.pivotal.literx.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class ColumnarUserRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	private final ReactiveRepository<User> repository = new ColumnarUserRepository(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+
+	@Test
+	public void findById() {
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findById("wwhite"));
+		ScriptedSubscriber.create()
+				.expectError(IllegalArgumentException.class)
+				.verify(repository.findById("mschrader"));
+	}
+
+	@Test
+	public void saveAndFindAll() {
+		repository.save(Flux.just(MARIE)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE)
+				.expectComplete()
+				.verify(repository.findAll());
+	}
+
+	@Test
+	public void findAllAfter() {
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.SKYLER, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, User.JESSE));
+	}
+
+}
@@ -0,0 +1,284 @@
+package io.pivotal.literx.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.pivotal.literx.domain.User;
+
+/**
+ * Append-only storage of users in columns rather than as {@link User} objects, so that a
+ * user costs about 30 bytes of heap instead of a {@link User} and three {@link String}s.
+ *
+ * Usernames are stored as length-prefixed UTF-8 bytes in 1 MB pages, addressed by an
+ * {@code int} offset per row. First names and last names, which repeat a lot, are
+ * dictionary encoded: each distinct value is stored once and rows hold its {@code int}
+ * code. Row columns are made of fixed-size chunks, so growing never copies them. A
+ * {@link User} is only created when {@link #get(int)} is called, and is not retained.
+ *
+ * Usernames are indexed by an open addressing hash table of row numbers, the first user
+ * saved with a given username winning like in {@link ReactiveUserRepository}.
+ *
+ * Writers take a lock, readers do not. A row is published by writing the volatile size
+ * once its columns, username bytes, dictionary values and index entry are written, so
+ * {@link #get(int)}, {@link #indexOf(String)} and {@link #size()} read the rows published
+ * before them without locking. Arrays that grow are replaced by volatile writes of full
+ * copies, and a reader ignores index entries of rows it cannot see yet.
+ */
+public class ColumnarUserStore {
+
+	private static final int CHUNK_SHIFT = 16;
+
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private static final int PAGE_SHIFT = 20;
+
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+	private static final int MAX_USERNAME_LENGTH = 0x3FFF;
+
+	// written under this, read without locking
+	private volatile int[][] usernameOffsets = new int[0][];
+
+	private volatile int[][] firstnameCodes = new int[0][];
+
+	private volatile int[][] lastnameCodes = new int[0][];
+
+	private volatile byte[][] pages = new byte[0][];
+
+	private final Dictionary firstnames = new Dictionary();
+
+	private final Dictionary lastnames = new Dictionary();
+
+	private volatile int[] index = new int[16];
+
+	// the number of published rows, written last
+	private volatile int size;
+
+	// guarded by this
+	private int pagePosition = PAGE_SIZE;
+
+
+	/**
+	 * @throws IllegalArgumentException if the username is longer than 16383 UTF-8 bytes
+	 */
+	public synchronized void add(User user) {
+		byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+		if (username.length > MAX_USERNAME_LENGTH) {
+			throw new IllegalArgumentException("Username too long: " + user.getUsername());
+		}
+		if (size == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Store is full");
+		}
+		int row = size;
+		if ((row & (CHUNK_SIZE - 1)) == 0) {
+			int chunks = (row >>> CHUNK_SHIFT) + 1;
+			usernameOffsets = addChunk(usernameOffsets, chunks);
+			firstnameCodes = addChunk(firstnameCodes, chunks);
+			lastnameCodes = addChunk(lastnameCodes, chunks);
+		}
+		usernameOffsets[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)] = appendUsername(username);
+		firstnameCodes[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)] = firstnames.encode(user.getFirstname());
+		lastnameCodes[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)] = lastnames.encode(user.getLastname());
+		indexRow(row, username);
+		size = row + 1;
+	}
+
+	public synchronized void addAll(Iterable<User> users) {
+		for (User user : users) {
+			add(user);
+		}
+	}
+
+	/**
+	 * @return a new {@link User} holding the values of the given row
+	 */
+	public User get(int row) {
+		int size = this.size;
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+		}
+		int offset = usernameOffsets[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)];
+		byte[] page = pages[offset >>> PAGE_SHIFT];
+		int position = offset & (PAGE_SIZE - 1);
+		int length = usernameLength(page, position);
+		String username = new String(page, position + lengthBytes(length), length, StandardCharsets.UTF_8);
+		return new User(username,
+				firstnames.decode(firstnameCodes[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)]),
+				lastnames.decode(lastnameCodes[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)]));
+	}
+
+	/**
+	 * @return the row of the first user saved with the given username, or {@code -1}
+	 */
+	public int indexOf(String username) {
+		return indexOf(username.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct first names and last names
+	 */
+	public synchronized int dictionarySize() {
+		return firstnames.size + lastnames.size;
+	}
+
+
+	private int appendUsername(byte[] username) {
+		int length = lengthBytes(username.length) + username.length;
+		if (pagePosition + length > PAGE_SIZE) {
+			if (pages.length == 1 << (31 - PAGE_SHIFT)) {
+				throw new IllegalStateException("Store is full");
+			}
+			byte[][] grown = Arrays.copyOf(pages, pages.length + 1);
+			grown[pages.length] = new byte[PAGE_SIZE];
+			pages = grown;
+			pagePosition = 0;
+		}
+		byte[] page = pages[pages.length - 1];
+		int offset = (pages.length - 1) << PAGE_SHIFT | pagePosition;
+		// 1 byte for lengths up to 127, 2 bytes with the high bit set above
+		if (username.length < 0x80) {
+			page[pagePosition++] = (byte) username.length;
+		}
+		else {
+			page[pagePosition++] = (byte) (0x80 | username.length >>> 8);
+			page[pagePosition++] = (byte) username.length;
+		}
+		System.arraycopy(username, 0, page, pagePosition, username.length);
+		pagePosition += username.length;
+		return offset;
+	}
+
+	private boolean usernameEquals(int row, byte[] key) {
+		int offset = usernameOffsets[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)];
+		byte[] page = pages[offset >>> PAGE_SHIFT];
+		int position = offset & (PAGE_SIZE - 1);
+		int length = usernameLength(page, position);
+		if (length != key.length) {
+			return false;
+		}
+		position += lengthBytes(length);
+		for (int i = 0; i < length; i++) {
+			if (page[position + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void indexRow(int row, byte[] username) {
+		if (indexOf(username) >= 0) {
+			return;
+		}
+		// keep the table at most 3/4 full
+		if ((row + 1) * 4L > index.length * 3L) {
+			rehash(index.length * 2);
+		}
+		insert(index, row, hash(username, 0, username.length));
+	}
+
+	private int indexOf(byte[] username) {
+		// read before the index, so that the rows it holds below the size are visible
+		int size = this.size;
+		int[] index = this.index;
+		int mask = index.length - 1;
+		for (int slot = hash(username, 0, username.length) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			int row = index[slot] - 1;
+			if (row < size && usernameEquals(row, username)) {
+				return row;
+			}
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity) {
+		int[] rehashed = new int[capacity];
+		for (int entry : index) {
+			if (entry != 0) {
+				int row = entry - 1;
+				int offset = usernameOffsets[row >>> CHUNK_SHIFT][row & (CHUNK_SIZE - 1)];
+				byte[] page = pages[offset >>> PAGE_SHIFT];
+				int position = offset & (PAGE_SIZE - 1);
+				int length = usernameLength(page, position);
+				insert(rehashed, row, hash(page, position + lengthBytes(length), length));
+			}
+		}
+		index = rehashed;
+	}
+
+	private static void insert(int[] index, int row, int hash) {
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = row + 1;
+	}
+
+	private static int[][] addChunk(int[][] chunks, int count) {
+		int[][] grown = Arrays.copyOf(chunks, count);
+		grown[count - 1] = new int[CHUNK_SIZE];
+		return grown;
+	}
+
+	private static int usernameLength(byte[] page, int position) {
+		int first = page[position] & 0xFF;
+		return first < 0x80 ? first : (first & 0x7F) << 8 | page[position + 1] & 0xFF;
+	}
+
+	private static int lengthBytes(int length) {
+		return length < 0x80 ? 1 : 2;
+	}
+
+	/**
+	 * FNV-1a with the murmur3 finalizer, as consecutive slots are probed.
+	 */
+	private static int hash(byte[] bytes, int from, int length) {
+		int h = 0x811c9dc5;
+		for (int i = from; i < from + length; i++) {
+			h = (h ^ bytes[i]) * 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+
+	/**
+	 * Distinct values of a column and their codes, encoded under the store lock and decoded
+	 * without locking.
+	 */
+	private static final class Dictionary {
+
+		private volatile String[] values = new String[16];
+
+		// guarded by the store
+		int size;
+
+		private final Map<String, Integer> codes = new HashMap<>();
+
+		int encode(String value) {
+			Integer code = codes.get(value);
+			if (code == null) {
+				code = size;
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = value;
+				codes.put(value, code);
+			}
+			return code;
+		}
+
+		String decode(int code) {
+			return values[code];
+		}
+	}
+
+}
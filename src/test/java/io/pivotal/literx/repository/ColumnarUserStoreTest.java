@@ -0,0 +1,128 @@
+package io.pivotal.literx.repository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ColumnarUserStoreTest {
+
+	private final ColumnarUserStore store = new ColumnarUserStore();
+
+	@Test
+	public void addAndGet() {
+		store.add(User.SKYLER);
+		store.add(User.WALTER);
+		assertEquals(2, store.size());
+		assertEquals(User.SKYLER, store.get(0));
+		assertEquals(User.WALTER, store.get(1));
+		assertNotSame(store.get(1), store.get(1));
+		assertEquals(1, store.indexOf("wwhite"));
+		assertEquals(-1, store.indexOf("jpinkman"));
+	}
+
+	@Test
+	public void repeatedNamesAreStoredOnce() {
+		store.add(new User("swhite", new String("Skyler"), new String("White")));
+		store.add(new User("wwhite", new String("Walter"), new String("White")));
+		store.add(new User("wwhitejr", new String("Walter"), new String("White")));
+		// Skyler, Walter and White
+		assertEquals(3, store.dictionarySize());
+		assertSame(store.get(0).getLastname(), store.get(2).getLastname());
+	}
+
+	@Test
+	public void firstUserWithUsernameWins() {
+		User otherWalter = new User("wwhite", "Walter", "Black");
+		store.add(User.WALTER);
+		store.add(otherWalter);
+		assertEquals(2, store.size());
+		assertEquals(0, store.indexOf("wwhite"));
+		assertEquals(otherWalter, store.get(1));
+	}
+
+	@Test
+	public void growAcrossChunksAndPages() {
+		// about 1.3 MB of usernames in 2 pages, 3 chunks of rows, several index resizes
+		int count = 150_000;
+		for (int i = 0; i < count; i++) {
+			store.add(new User("user" + i, "Firstname" + i % 100, "Lastname" + i % 1000));
+		}
+		assertEquals(count, store.size());
+		assertEquals(1100, store.dictionarySize());
+		for (int i = 0; i < count; i += 997) {
+			assertEquals(new User("user" + i, "Firstname" + i % 100, "Lastname" + i % 1000), store.get(i));
+			assertEquals(i, store.indexOf("user" + i));
+		}
+		assertEquals(count - 1, store.indexOf("user" + (count - 1)));
+	}
+
+	@Test
+	public void longAndNonAsciiUsernames() {
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			longName.append('é');
+		}
+		User longUser = new User(longName.toString(), "Long", "Name");
+		User accented = new User("héctor", "Héctor", "Salamanca");
+		store.add(longUser);
+		store.add(accented);
+		assertEquals(longUser, store.get(0));
+		assertEquals(accented, store.get(1));
+		assertEquals(1, store.indexOf("héctor"));
+	}
+
+	@Test
+	public void readWhileWriting() throws Exception {
+		// enough rows for new chunks, pages, dictionary values and index resizes during reads
+		int count = 200_000;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		Future<?> writer = executor.submit(() -> {
+			start.await();
+			for (int i = 0; i < count; i++) {
+				store.add(new User("user" + i, "Firstname" + i, "Lastname" + i % 1000));
+			}
+			return null;
+		});
+		Future<Integer> reader = executor.submit(() -> {
+			start.await();
+			int reads = 0;
+			while (writing.get()) {
+				int last = store.size() - 1;
+				if (last >= 0) {
+					assertEquals(new User("user" + last, "Firstname" + last, "Lastname" + last % 1000), store.get(last));
+					assertEquals(last, store.indexOf("user" + last));
+					reads++;
+				}
+			}
+			return reads;
+		});
+		start.countDown();
+		writer.get(30, TimeUnit.SECONDS);
+		writing.set(false);
+		assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+		executor.shutdown();
+		assertEquals(count, store.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void usernameTooLong() {
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			longName.append('a');
+		}
+		store.add(new User(longName.toString(), "Too", "Long"));
+	}
+
+}
@@ -0,0 +1,226 @@
+package io.pivotal.literx.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free, append-only sequence made of segments that double in size, so growing never
+ * copies what was already written.
+ *
+ * Writers claim slots with a single compare-and-set and publish them in order: the
+ * published size only moves past slots that are filled, and any writer helps moving it.
+ * Readers only look at the published prefix, which makes {@link #iterator()} a consistent
+ * snapshot taken without locking. Segments are allocated before claiming, so a writer
+ * cannot fail while holding unfilled slots; should it still, its slots are filled with a
+ * marker that readers skip, rather than stalling publication forever.
+ */
+public class ConcurrentAppendLog<T> implements Iterable<T> {
+
+	private static final int FIRST_SEGMENT_SHIFT = 10;
+
+	private static final int FIRST_SEGMENT_SIZE = 1 << FIRST_SEGMENT_SHIFT;
+
+	// the segment after the last one would hold 2^31 slots
+	private static final int MAX_SEGMENTS = 31 - FIRST_SEGMENT_SHIFT;
+
+	static final int MAX_CAPACITY = FIRST_SEGMENT_SIZE * ((1 << MAX_SEGMENTS) - 1);
+
+	private static final Object ABANDONED = new Object();
+
+	private final AtomicReferenceArray<AtomicReferenceArray<T>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+	private final AtomicInteger claimed = new AtomicInteger();
+
+	private final AtomicInteger published = new AtomicInteger();
+
+	private final int capacity;
+
+
+	public ConcurrentAppendLog() {
+		this(MAX_CAPACITY);
+	}
+
+	ConcurrentAppendLog(int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + ", was " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+
+	public void add(T value) {
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+		int index = claim(1);
+		boolean filled = false;
+		try {
+			fill(index, value);
+			filled = true;
+		}
+		finally {
+			if (!filled) {
+				abandon(index, index + 1);
+			}
+			publish();
+		}
+	}
+
+	/**
+	 * Appends all the values as one contiguous range, claimed with a single atomic operation.
+	 */
+	@SuppressWarnings("unchecked")
+	public void addAll(Collection<? extends T> values) {
+		// copied before claiming, so that the collection cannot fail or change size after
+		Object[] copy = values.toArray();
+		if (copy.length == 0) {
+			return;
+		}
+		for (Object value : copy) {
+			if (value == null) {
+				throw new NullPointerException("value");
+			}
+		}
+		int start = claim(copy.length);
+		int index = start;
+		try {
+			for (Object value : copy) {
+				fill(index, (T) value);
+				index++;
+			}
+		}
+		finally {
+			if (index < start + copy.length) {
+				abandon(index, start + copy.length);
+			}
+			publish();
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if the writer of that slot failed before filling it
+	 */
+	public T get(int index) {
+		if (index < 0 || index >= published.get()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + published.get());
+		}
+		T value = segments.get(segment(index)).get(offset(index));
+		if (value == ABANDONED) {
+			throw new IllegalStateException("Slot " + index + " was abandoned by a failed writer");
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of published slots, including the ones abandoned by failed writers
+	 */
+	public int size() {
+		return published.get();
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		final int size = published.get();
+		return new Iterator<T>() {
+
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				while (index < size && read(index) == ABANDONED) {
+					index++;
+				}
+				return index < size;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return read(index++);
+			}
+		};
+	}
+
+
+	/**
+	 * Claim {@code count} contiguous slots, allocating their segments first.
+	 * @return the index of the first slot
+	 */
+	private int claim(int count) {
+		for (;;) {
+			int index = claimed.get();
+			if (count > capacity - index) {
+				throw new IllegalStateException("Log is full, cannot add " + count + " values to " + index + " out of " + capacity);
+			}
+			for (int segment = segment(index); segment <= segment(index + count - 1); segment++) {
+				allocate(segment);
+			}
+			if (claimed.compareAndSet(index, index + count)) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Fill a claimed slot, the only step between claiming and publishing that could fail.
+	 */
+	void fill(int index, T value) {
+		slot(index).set(offset(index), value);
+	}
+
+	/**
+	 * Fill the slots a failed writer claimed but did not fill, so that they can be published.
+	 */
+	@SuppressWarnings("unchecked")
+	private void abandon(int from, int to) {
+		for (int index = from; index < to; index++) {
+			slot(index).compareAndSet(offset(index), null, (T) ABANDONED);
+		}
+	}
+
+	private void publish() {
+		for (;;) {
+			int size = published.get();
+			if (size == claimed.get()) {
+				return;
+			}
+			if (read(size) == null) {
+				// the writer owning that slot has not filled it yet and will publish it itself
+				return;
+			}
+			published.compareAndSet(size, size + 1);
+		}
+	}
+
+	private T read(int index) {
+		return segments.get(segment(index)).get(offset(index));
+	}
+
+	private AtomicReferenceArray<T> slot(int index) {
+		return segments.get(segment(index));
+	}
+
+	private void allocate(int segment) {
+		if (segments.get(segment) == null) {
+			segments.compareAndSet(segment, null, new AtomicReferenceArray<>(FIRST_SEGMENT_SIZE << segment));
+		}
+	}
+
+	private static int segment(int index) {
+		return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_SEGMENT_SHIFT) + 1);
+	}
+
+	private static int offset(int index) {
+		return index + FIRST_SEGMENT_SIZE - (FIRST_SEGMENT_SIZE << segment(index));
+	}
+
+}
@@ -0,0 +1,179 @@
+package io.pivotal.literx.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ConcurrentAppendLogTest {
+
+	private static final int WRITERS = 16;
+
+	private static final int VALUES_PER_WRITER = 50_000;
+
+	@Test
+	public void appendAcrossSegments() {
+		ConcurrentAppendLog<Integer> log = new ConcurrentAppendLog<>();
+		for (int i = 0; i < 10_000; i++) {
+			log.add(i);
+		}
+		log.addAll(Arrays.asList(10_000, 10_001, 10_002));
+		assertEquals(10_003, log.size());
+		int expected = 0;
+		for (Integer value : log) {
+			assertEquals(expected++, value.intValue());
+		}
+		assertEquals(10_003, expected);
+	}
+
+	@Test
+	public void iteratorIsASnapshot() {
+		ConcurrentAppendLog<String> log = new ConcurrentAppendLog<>();
+		log.add("a");
+		log.add("b");
+		Iterator<String> it = log.iterator();
+		log.add("c");
+		assertEquals("a", it.next());
+		assertEquals("b", it.next());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void failFastOnceFull() {
+		ConcurrentAppendLog<Integer> log = new ConcurrentAppendLog<>(3);
+		log.addAll(Arrays.asList(0, 1));
+		try {
+			log.addAll(Arrays.asList(2, 3));
+			fail("Expected the log to be full");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		log.add(2);
+		try {
+			log.add(3);
+			fail("Expected the log to be full");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(Arrays.asList(0, 1, 2), toList(log));
+	}
+
+	@Test
+	public void failingWriterDoesNotStallPublication() {
+		ConcurrentAppendLog<Integer> log = new ConcurrentAppendLog<Integer>() {
+			@Override
+			void fill(int index, Integer value) {
+				if (value < 0) {
+					throw new IllegalStateException("Failed to fill slot " + index);
+				}
+				super.fill(index, value);
+			}
+		};
+		log.add(0);
+		try {
+			log.addAll(Arrays.asList(1, -2, 3));
+			fail("Expected the writer to fail");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			log.add(-4);
+			fail("Expected the writer to fail");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		log.add(5);
+		assertEquals(6, log.size());
+		assertEquals(Arrays.asList(0, 1, 5), toList(log));
+		assertEquals(5, log.get(5).intValue());
+		try {
+			log.get(2);
+			fail("Expected slot 2 to be abandoned");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void concurrentWritersWithConcurrentReaders() throws Exception {
+		ConcurrentAppendLog<Integer> log = new ConcurrentAppendLog<>();
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		List<Future<?>> writers = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			int base = w * VALUES_PER_WRITER;
+			writers.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < VALUES_PER_WRITER; i += 2) {
+					if (i % 10 == 0) {
+						log.addAll(Arrays.asList(base + i, base + i + 1));
+					}
+					else {
+						log.add(base + i);
+						log.add(base + i + 1);
+					}
+				}
+				return null;
+			}));
+		}
+		Future<Integer> reader = executor.submit(() -> {
+			start.await();
+			int snapshots = 0;
+			int lastSize = 0;
+			while (writing.get()) {
+				int size = 0;
+				for (Integer value : log) {
+					assertNotNull(value);
+					size++;
+				}
+				assertTrue(size >= lastSize);
+				lastSize = size;
+				snapshots++;
+			}
+			return snapshots;
+		});
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get(30, TimeUnit.SECONDS);
+		}
+		writing.set(false);
+		assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+		executor.shutdown();
+
+		assertEquals(WRITERS * VALUES_PER_WRITER, log.size());
+		BitSet seen = new BitSet(WRITERS * VALUES_PER_WRITER);
+		for (Integer value : log) {
+			assertFalse("Duplicate " + value, seen.get(value));
+			seen.set(value);
+		}
+		assertEquals(WRITERS * VALUES_PER_WRITER, seen.cardinality());
+	}
+
+
+	private static <T> List<T> toList(Iterable<T> values) {
+		List<T> list = new ArrayList<>();
+		values.forEach(list::add);
+		return list;
+	}
+
+}
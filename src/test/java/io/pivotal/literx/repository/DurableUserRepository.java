@@ -0,0 +1,82 @@
+package io.pivotal.literx.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+import io.pivotal.literx.domain.User;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveRepository} persisting its users in a {@link UserLog}, so that they
+ * survive restarts. A save appends the users as they arrive and completes once the log
+ * committed them, {@link #findAll()} streams from the log segments.
+ */
+public class DurableUserRepository implements ReactiveRepository<User>, Closeable {
+
+	private final UserLog log;
+
+
+	public DurableUserRepository(UserLog log) {
+		this.log = log;
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<User> userPublisher) {
+		return Flux.from(userPublisher).doOnNext(log::write).then(log.commit());
+	}
+
+	/**
+	 * Each batch is committed once, and its size emitted when durable.
+	 */
+	@Override
+	public Flux<Integer> saveAll(Publisher<User> userPublisher, int batchSize, Duration maxLatency) {
+		return Flux.from(userPublisher)
+				.buffer(batchSize, maxLatency)
+				.concatMap(batch -> Mono.fromRunnable(() -> batch.forEach(log::write))
+						.then(log.commit())
+						.then(Mono.just(batch.size())));
+	}
+
+	@Override
+	public Mono<User> findFirst() {
+		return log.scan().next();
+	}
+
+	/**
+	 * Unlike {@link ReactiveUserRepository#findAll()}, which returns every user saved, only
+	 * the first user saved with each username is returned, the one {@link #findById(String)}
+	 * finds.
+	 */
+	@Override
+	public Flux<User> findAll() {
+		return log.scan();
+	}
+
+	@Override
+	public Mono<User> findById(String username) {
+		return Mono.defer(() -> {
+			User user = log.find(username);
+			if (user == null) {
+				return Mono.error(new IllegalArgumentException("No user with username " + username + " found!"));
+			}
+			return Mono.just(user);
+		});
+	}
+
+	/**
+	 * @return the log holding the users
+	 */
+	public UserLog getLog() {
+		return log;
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.close();
+	}
+
+}
@@ -0,0 +1,43 @@
+package io.pivotal.literx.repository;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.UserLog.FsyncPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Flux;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class DurableUserRepositoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void usersSurviveRestart() throws IOException {
+		try (DurableUserRepository repository = new DurableUserRepository(UserLog.open(folder.getRoot().toPath(), FsyncPolicy.GROUP))) {
+			repository.save(Flux.just(User.SKYLER, User.JESSE)).block();
+			ScriptedSubscriber.create()
+					.expectNext(1, 1)
+					.expectComplete()
+					.verify(repository.saveAll(Flux.just(User.WALTER, User.SAUL), 1, Duration.ofSeconds(1)));
+		}
+		try (DurableUserRepository repository = new DurableUserRepository(UserLog.open(folder.getRoot().toPath(), FsyncPolicy.GROUP))) {
+			ScriptedSubscriber.create()
+					.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+					.expectComplete()
+					.verify(repository.findAll());
+			ScriptedSubscriber.create()
+					.expectNext(User.WALTER)
+					.expectComplete()
+					.verify(repository.findById("wwhite"));
+			ScriptedSubscriber.create()
+					.expectError(IllegalArgumentException.class)
+					.verify(repository.findById("mschrader"));
+		}
+	}
+
+}
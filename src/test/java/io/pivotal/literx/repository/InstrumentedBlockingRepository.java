@@ -0,0 +1,225 @@
+package io.pivotal.literx.repository;
+
+import java.util.Iterator;
+
+import reactor.core.Exceptions;
+
+/**
+ * {@link BlockingRepository} decorator recording {@link RepositoryMetrics} for each
+ * operation of the backend, with the same operation names as
+ * {@link InstrumentedReactiveRepository}.
+ *
+ * A lookup delivers one element when it finds a value, and its first element and
+ * completion latencies are the same. For {@link #findAll()}, latencies are measured from
+ * the creation of each iterator, which completes once {@link Iterator#hasNext()} returns
+ * {@code false}, and is counted as cancelled when closed before. Blocking calls have no
+ * demand, so nothing is counted as requested.
+ */
+public class InstrumentedBlockingRepository<T> implements BlockingRepository<T> {
+
+	private final BlockingRepository<T> backend;
+
+	private final RepositoryMetrics metrics;
+
+	private final RepositoryMetrics.Operation save;
+
+	private final RepositoryMetrics.Operation saveAll;
+
+	private final RepositoryMetrics.Operation findFirst;
+
+	private final RepositoryMetrics.Operation findAll;
+
+	private final RepositoryMetrics.Operation findById;
+
+
+	public InstrumentedBlockingRepository(BlockingRepository<T> backend) {
+		this(backend, new RepositoryMetrics());
+	}
+
+	/**
+	 * @param metrics where to record, possibly shared with other repositories
+	 */
+	public InstrumentedBlockingRepository(BlockingRepository<T> backend, RepositoryMetrics metrics) {
+		this.backend = backend;
+		this.metrics = metrics;
+		this.save = metrics.operation("save");
+		this.saveAll = metrics.operation("saveAll");
+		this.findFirst = metrics.operation("findFirst");
+		this.findAll = metrics.operation("findAll");
+		this.findById = metrics.operation("findById");
+	}
+
+
+	@Override
+	public void save(T value) {
+		save.call();
+		long start = System.nanoTime();
+		try {
+			backend.save(value);
+		}
+		catch (RuntimeException e) {
+			save.error();
+			throw e;
+		}
+		save.complete(System.nanoTime() - start);
+	}
+
+	@Override
+	public void saveAll(Iterable<T> values) {
+		saveAll.call();
+		long start = System.nanoTime();
+		try {
+			backend.saveAll(values);
+		}
+		catch (RuntimeException e) {
+			saveAll.error();
+			throw e;
+		}
+		saveAll.complete(System.nanoTime() - start);
+	}
+
+	@Override
+	public T findFirst() {
+		findFirst.call();
+		long start = System.nanoTime();
+		T value;
+		try {
+			value = backend.findFirst();
+		}
+		catch (RuntimeException e) {
+			findFirst.error();
+			throw e;
+		}
+		completeLookup(findFirst, start, value);
+		return value;
+	}
+
+	@Override
+	public Iterable<T> findAll() {
+		findAll.call();
+		Iterable<T> values;
+		try {
+			values = backend.findAll();
+		}
+		catch (RuntimeException e) {
+			findAll.error();
+			throw e;
+		}
+		return () -> new MetricsIterator<>(values.iterator(), findAll);
+	}
+
+	@Override
+	public T findById(String id) {
+		findById.call();
+		long start = System.nanoTime();
+		T value;
+		try {
+			value = backend.findById(id);
+		}
+		catch (RuntimeException e) {
+			findById.error();
+			throw e;
+		}
+		completeLookup(findById, start, value);
+		return value;
+	}
+
+	public RepositoryMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	private static void completeLookup(RepositoryMetrics.Operation operation, long start, Object value) {
+		long elapsed = System.nanoTime() - start;
+		if (value != null) {
+			operation.deliver(1);
+			operation.firstElement(elapsed);
+		}
+		operation.complete(elapsed);
+	}
+
+
+	private static final class MetricsIterator<T> implements Iterator<T>, AutoCloseable {
+
+		private final Iterator<T> iterator;
+
+		private final RepositoryMetrics.Operation operation;
+
+		private final long start = System.nanoTime();
+
+		private long delivered;
+
+		private boolean done;
+
+
+		MetricsIterator(Iterator<T> iterator, RepositoryMetrics.Operation operation) {
+			this.iterator = iterator;
+			this.operation = operation;
+		}
+
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext;
+			try {
+				hasNext = iterator.hasNext();
+			}
+			catch (RuntimeException e) {
+				if (terminate()) {
+					operation.error();
+				}
+				throw e;
+			}
+			if (!hasNext && terminate()) {
+				operation.complete(System.nanoTime() - start);
+			}
+			return hasNext;
+		}
+
+		@Override
+		public T next() {
+			T value;
+			try {
+				value = iterator.next();
+			}
+			catch (RuntimeException e) {
+				if (terminate()) {
+					operation.error();
+				}
+				throw e;
+			}
+			if (delivered++ == 0) {
+				operation.firstElement(System.nanoTime() - start);
+			}
+			return value;
+		}
+
+		@Override
+		public void close() {
+			if (terminate()) {
+				operation.cancel();
+			}
+			if (iterator instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) iterator).close();
+				}
+				catch (Exception e) {
+					throw Exceptions.propagate(e);
+				}
+			}
+		}
+
+		/**
+		 * @return {@code false} if the iteration already terminated
+		 */
+		private boolean terminate() {
+			if (done) {
+				return false;
+			}
+			done = true;
+			operation.deliver(delivered);
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package io.pivotal.literx.repository;
+
+import java.util.Iterator;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class InstrumentedBlockingRepositoryTest {
+
+	private final InstrumentedBlockingRepository<User> repository = new InstrumentedBlockingRepository<>(
+			new BlockingUserRepository(User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+
+	@Test
+	public void countLookupsAndIterations() throws Exception {
+		assertEquals(User.SKYLER, repository.findFirst());
+		for (User user : repository.findAll()) {
+			assertEquals(User.class, user.getClass());
+		}
+		Iterator<User> iterator = repository.findAll().iterator();
+		iterator.next();
+		((AutoCloseable) iterator).close();
+
+		RepositoryMetrics.Snapshot findAll = repository.getMetrics().snapshot().get("findAll");
+		assertEquals(2, findAll.getCallCount());
+		assertEquals(5, findAll.getDeliveredCount());
+		assertEquals(1, findAll.getCancellationCount());
+		assertEquals(2, findAll.getFirstElementLatencies().getCount());
+		assertEquals(1, findAll.getCompletionLatencies().getCount());
+		assertEquals(1, repository.getMetrics().snapshot().get("findFirst").getDeliveredCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void countErrors() {
+		try {
+			repository.findById("hschrader");
+		}
+		finally {
+			assertEquals(1, repository.getMetrics().snapshot().get("findById").getErrorCount());
+		}
+	}
+
+}
@@ -0,0 +1,290 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveRepository} decorator recording {@link RepositoryMetrics} for each
+ * operation of the backend. A call is counted when the returned publisher is subscribed
+ * to, and latencies are measured from that subscription.
+ *
+ * Each subscription goes through a single pass-through subscriber: elements are counted
+ * in a plain field and added to the metrics once the subscription terminates or is
+ * cancelled, so the cost per element is a field increment. A cancellation is only counted
+ * when it happens before the terminal signal, and an element racing with it may be left
+ * uncounted.
+ *
+ * The cost is per call rather than per element, and mostly goes to timing: the two
+ * {@link System#nanoTime()} reads a latency needs (one at subscription, one at the first
+ * element, which is also the completion of a Mono) and the histograms. Calls can be timed
+ * at random with {@code latencySampling}, the latency histograms then only holding the
+ * sampled calls while calls, errors, cancellations, demand and elements are all counted.
+ * On a 1-CPU VM where an in-memory {@code findById} takes 85 ns, it takes 245 ns with
+ * every call timed and 155 ns with 1 call out of 16 timed, see
+ * {@code MetricsBenchmark}. The 70 ns left, for the extra subscriber and the counters, is
+ * below 1% of the latency of any backend slower than 7 µs, such as one doing I/O.
+ */
+public class InstrumentedReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private final ReactiveRepository<T> backend;
+
+	private final RepositoryMetrics metrics;
+
+	private final RepositoryMetrics.Operation save;
+
+	private final RepositoryMetrics.Operation saveAll;
+
+	private final RepositoryMetrics.Operation findFirst;
+
+	private final RepositoryMetrics.Operation findAll;
+
+	private final RepositoryMetrics.Operation findAllOrdered;
+
+	private final RepositoryMetrics.Operation findAllAfter;
+
+	private final RepositoryMetrics.Operation findById;
+
+	private final RepositoryMetrics.Operation findAllById;
+
+	private final int latencySampling;
+
+
+	public InstrumentedReactiveRepository(ReactiveRepository<T> backend) {
+		this(backend, new RepositoryMetrics());
+	}
+
+	/**
+	 * Time every call.
+	 * @param metrics where to record, possibly shared with other repositories
+	 */
+	public InstrumentedReactiveRepository(ReactiveRepository<T> backend, RepositoryMetrics metrics) {
+		this(backend, metrics, 1);
+	}
+
+	/**
+	 * @param metrics where to record, possibly shared with other repositories
+	 * @param latencySampling time 1 call out of {@code latencySampling}, chosen at random,
+	 * the other calls being counted but not timed
+	 */
+	public InstrumentedReactiveRepository(ReactiveRepository<T> backend, RepositoryMetrics metrics, int latencySampling) {
+		if (latencySampling <= 0) {
+			throw new IllegalArgumentException("latencySampling must be positive, was " + latencySampling);
+		}
+		this.backend = backend;
+		this.metrics = metrics;
+		this.latencySampling = latencySampling;
+		this.save = metrics.operation("save");
+		this.saveAll = metrics.operation("saveAll");
+		this.findFirst = metrics.operation("findFirst");
+		this.findAll = metrics.operation("findAll");
+		this.findAllOrdered = metrics.operation("findAllOrdered");
+		this.findAllAfter = metrics.operation("findAllAfter");
+		this.findById = metrics.operation("findById");
+		this.findAllById = metrics.operation("findAllById");
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return new InstrumentedMono<>(backend.save(publisher), save, latencySampling);
+	}
+
+	@Override
+	public Flux<Integer> saveAll(Publisher<T> publisher, int batchSize, Duration maxLatency) {
+		return new InstrumentedFlux<>(backend.saveAll(publisher, batchSize, maxLatency), saveAll, latencySampling);
+	}
+
+	@Override
+	public Mono<T> findFirst() {
+		return new InstrumentedMono<>(backend.findFirst(), findFirst, latencySampling);
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return new InstrumentedFlux<>(backend.findAll(), findAll, latencySampling);
+	}
+
+	/**
+	 * Recorded as {@code findAllOrdered}, as the backend may scan in order or sort.
+	 */
+	@Override
+	public Flux<T> findAll(Comparator<? super T> order) {
+		return new InstrumentedFlux<>(backend.findAll(order), findAllOrdered, latencySampling);
+	}
+
+	@Override
+	public Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		return new InstrumentedFlux<>(backend.findAllAfter(order, last), findAllAfter, latencySampling);
+	}
+
+	@Override
+	public Mono<T> findById(String id) {
+		return new InstrumentedMono<>(backend.findById(id), findById, latencySampling);
+	}
+
+	@Override
+	public Flux<T> findAllById(Publisher<String> ids) {
+		return new InstrumentedFlux<>(backend.findAllById(ids), findAllById, latencySampling);
+	}
+
+	public RepositoryMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	private static boolean sampled(int latencySampling) {
+		return latencySampling == 1 || ThreadLocalRandom.current().nextInt(latencySampling) == 0;
+	}
+
+
+	private static final class InstrumentedFlux<T> extends Flux<T> {
+
+		private final Publisher<T> source;
+
+		private final RepositoryMetrics.Operation operation;
+
+		private final int latencySampling;
+
+
+		InstrumentedFlux(Publisher<T> source, RepositoryMetrics.Operation operation, int latencySampling) {
+			this.source = source;
+			this.operation = operation;
+			this.latencySampling = latencySampling;
+		}
+
+
+		@Override
+		public void subscribe(Subscriber<? super T> subscriber) {
+			operation.call();
+			source.subscribe(new MetricsSubscriber<>(subscriber, operation, false, sampled(latencySampling)));
+		}
+	}
+
+
+	private static final class InstrumentedMono<T> extends Mono<T> {
+
+		private final Publisher<T> source;
+
+		private final RepositoryMetrics.Operation operation;
+
+		private final int latencySampling;
+
+
+		InstrumentedMono(Publisher<T> source, RepositoryMetrics.Operation operation, int latencySampling) {
+			this.source = source;
+			this.operation = operation;
+			this.latencySampling = latencySampling;
+		}
+
+
+		@Override
+		public void subscribe(Subscriber<? super T> subscriber) {
+			operation.call();
+			source.subscribe(new MetricsSubscriber<>(subscriber, operation, true, sampled(latencySampling)));
+		}
+	}
+
+
+	private static final class MetricsSubscriber<T> implements Subscriber<T>, Subscription {
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<MetricsSubscriber> DONE =
+				AtomicIntegerFieldUpdater.newUpdater(MetricsSubscriber.class, "done");
+
+		private final Subscriber<? super T> actual;
+
+		private final RepositoryMetrics.Operation operation;
+
+		// a Mono completes with its value, as its subscriber may cancel once it got it
+		private final boolean mono;
+
+		// whether the latencies of this call are recorded, and when it started if so
+		private final boolean timed;
+
+		private final long start;
+
+		private Subscription upstream;
+
+		// only accessed from onNext, and read once done is set
+		private long delivered;
+
+		private volatile int done;
+
+
+		MetricsSubscriber(Subscriber<? super T> actual, RepositoryMetrics.Operation operation, boolean mono, boolean timed) {
+			this.actual = actual;
+			this.operation = operation;
+			this.mono = mono;
+			this.timed = timed;
+			this.start = timed ? System.nanoTime() : 0;
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			actual.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (delivered++ == 0) {
+				long elapsed = timed ? System.nanoTime() - start : 0;
+				if (timed) {
+					operation.firstElement(elapsed);
+				}
+				if (mono && DONE.compareAndSet(this, 0, 1)) {
+					operation.deliver(1);
+					if (timed) {
+						operation.complete(elapsed);
+					}
+				}
+			}
+			actual.onNext(t);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			if (DONE.compareAndSet(this, 0, 1)) {
+				operation.deliver(delivered);
+				operation.error();
+			}
+			actual.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			if (DONE.compareAndSet(this, 0, 1)) {
+				operation.deliver(delivered);
+				if (timed) {
+					operation.complete(System.nanoTime() - start);
+				}
+			}
+			actual.onComplete();
+		}
+
+		@Override
+		public void request(long n) {
+			operation.request(n);
+			upstream.request(n);
+		}
+
+		@Override
+		public void cancel() {
+			if (DONE.compareAndSet(this, 0, 1)) {
+				operation.deliver(delivered);
+				operation.cancel();
+			}
+			upstream.cancel();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class InstrumentedReactiveRepositoryTest {
+
+	private final VirtualTimeScheduler timer = new VirtualTimeScheduler();
+
+	private final InstrumentedReactiveRepository<User> repository = new InstrumentedReactiveRepository<>(
+			new ReactiveUserRepository(LatencyModel.none(), timer, User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+
+	@Test
+	public void countRequestedAndDelivered() {
+		ScriptedSubscriber.create(1)
+				.expectNext(User.SKYLER)
+				.thenRequest(2)
+				.expectNext(User.JESSE, User.WALTER)
+				.thenCancel()
+				.verify(repository.findAll());
+		repository.findAll().then().block();
+
+		RepositoryMetrics.Snapshot findAll = repository.getMetrics().snapshot().get("findAll");
+		assertEquals(2, findAll.getCallCount());
+		assertEquals(3, findAll.getRequestedCount());
+		assertEquals(1, findAll.getUnboundedRequestCount());
+		assertEquals(7, findAll.getDeliveredCount());
+		assertEquals(1, findAll.getCancellationCount());
+		assertEquals(2, findAll.getFirstElementLatencies().getCount());
+		assertEquals(1, findAll.getCompletionLatencies().getCount());
+	}
+
+	@Test
+	public void countErrors() {
+		assertEquals(User.WALTER, repository.findById("wwhite").block());
+		ScriptedSubscriber.create()
+				.expectError(IllegalArgumentException.class)
+				.verify(repository.findById("hschrader"));
+
+		RepositoryMetrics.Snapshot findById = repository.getMetrics().snapshot().get("findById");
+		assertEquals(2, findById.getCallCount());
+		assertEquals(1, findById.getErrorCount());
+		assertEquals(1, findById.getDeliveredCount());
+		assertEquals(0, findById.getCancellationCount());
+		assertEquals(1, findById.getCompletionLatencies().getCount());
+	}
+
+	@Test
+	public void countEveryCallButTimeSampledOnes() {
+		// 1 chance out of 2^31 for a call to be timed
+		InstrumentedReactiveRepository<User> sampled = new InstrumentedReactiveRepository<>(
+				new ReactiveUserRepository(LatencyModel.none(), timer, User.SKYLER, User.WALTER), new RepositoryMetrics(),
+				Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(User.WALTER, sampled.findById("wwhite").block());
+		}
+
+		RepositoryMetrics.Snapshot findById = sampled.getMetrics().snapshot().get("findById");
+		assertEquals(10, findById.getCallCount());
+		assertEquals(10, findById.getDeliveredCount());
+		assertEquals(0, findById.getFirstElementLatencies().getCount());
+		assertEquals(0, findById.getCompletionLatencies().getCount());
+	}
+
+	@Test
+	public void recordFirstElementBeforeCompletion() {
+		InstrumentedReactiveRepository<User> slow = new InstrumentedReactiveRepository<>(
+				new ReactiveUserRepository(LatencyModel.fixed(100), timer, User.SKYLER, User.JESSE));
+		MonoProcessor<List<User>> users = slow.findAll().collectList().subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(150));
+		assertNull(users.peek());
+		RepositoryMetrics.Snapshot pending = slow.getMetrics().snapshot().get("findAll");
+		assertEquals(1, pending.getFirstElementLatencies().getCount());
+		assertEquals(0, pending.getCompletionLatencies().getCount());
+		timer.advanceTimeBy(Duration.ofMillis(50));
+		assertEquals(Arrays.asList(User.SKYLER, User.JESSE), users.peek());
+
+		RepositoryMetrics.Snapshot findAll = slow.getMetrics().snapshot().get("findAll");
+		assertEquals(2, findAll.getDeliveredCount());
+		assertEquals(1, findAll.getCompletionLatencies().getCount());
+		assertEquals(1, slow.getMetrics().snapshot().size());
+	}
+
+}
@@ -0,0 +1,174 @@
+package io.pivotal.literx.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of durations in nanoseconds, with the log-linear bucketing of
+ * HdrHistogram: values below 64 have their own bucket, and each following power of two
+ * is split in 32 buckets, so a recorded value is off by at most 1/32 (about 3%). Values
+ * above about 18 minutes are recorded as 18 minutes.
+ *
+ * Recording takes no lock and allocates nothing. Buckets are striped by thread, with up to
+ * {@value #MAX_STRIPES} stripes, so that threads recording similar durations do not
+ * contend on the same counter.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final long MAX_VALUE = (1L << 40) - 1;
+
+	private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+	private static final int MAX_STRIPES = 8;
+
+	private final AtomicLongArray[] stripes;
+
+	private final int stripeMask;
+
+	private final AtomicLong max = new AtomicLong();
+
+
+	public LatencyHistogram() {
+		int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+		this.stripes = new AtomicLongArray[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+		}
+		this.stripeMask = count - 1;
+	}
+
+
+	public void record(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+		stripes[(int) Thread.currentThread().getId() & stripeMask].getAndIncrement(indexOf(value));
+		// a new maximum is rare, so this is usually a plain read
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+		}
+	}
+
+	/**
+	 * @return the counts recorded so far; recordings racing with the snapshot may be
+	 * partially included
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] += stripe.get(i);
+			}
+		}
+		return new Snapshot(counts, max.get());
+	}
+
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_HALF_COUNT * 2) {
+			return (int) value;
+		}
+		int exponent = 64 - SUB_BUCKET_BITS - 1 - Long.numberOfLeadingZeros(value);
+		return (exponent << SUB_BUCKET_BITS) + (int) (value >>> exponent);
+	}
+
+	static long lowestValueAt(int index) {
+		if (index < SUB_BUCKET_HALF_COUNT * 2) {
+			return index;
+		}
+		int exponent = (index >>> SUB_BUCKET_BITS) - 1;
+		return (long) (index - (exponent << SUB_BUCKET_BITS)) << exponent;
+	}
+
+	/**
+	 * @return the highest value recorded in the bucket at the given index
+	 */
+	static long highestValueAt(int index) {
+		if (index < SUB_BUCKET_HALF_COUNT * 2) {
+			return index;
+		}
+		int exponent = (index >>> SUB_BUCKET_BITS) - 1;
+		long mantissa = index - (exponent << SUB_BUCKET_BITS);
+		return ((mantissa + 1) << exponent) - 1;
+	}
+
+
+	/**
+	 * Immutable copy of the counts of a {@link LatencyHistogram}.
+	 */
+	public static final class Snapshot {
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final double mean;
+
+		private final long max;
+
+
+		Snapshot(long[] counts, long max) {
+			long count = 0;
+			double total = 0;
+			for (int i = 0; i < counts.length; i++) {
+				count += counts[i];
+				if (counts[i] > 0) {
+					total += counts[i] * (double) (lowestValueAt(i) + highestValueAt(i)) / 2;
+				}
+			}
+			this.counts = counts;
+			this.count = count;
+			this.mean = count == 0 ? 0 : total / count;
+			this.max = max;
+		}
+
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the value in nanoseconds below which the given percentage of the recorded
+		 * values fall, or 0 if none was recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100, was " + percentile);
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(highestValueAt(i), max);
+				}
+			}
+			return max;
+		}
+
+		/**
+		 * @return the mean of the recorded values, each counted as the middle of its bucket
+		 */
+		public double getMean() {
+			return mean;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus", count,
+					getMean() / 1000, getValueAtPercentile(50) / 1000.0, getValueAtPercentile(99) / 1000.0,
+					getValueAtPercentile(99.9) / 1000.0, max / 1000.0);
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package io.pivotal.literx.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsCoverValuesContiguously() {
+		for (long value = 0; value < 1 << 20; value++) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(value >= LatencyHistogram.lowestValueAt(index));
+			assertTrue(value <= LatencyHistogram.highestValueAt(index));
+			assertTrue(index == 0 || value > LatencyHistogram.highestValueAt(index - 1));
+		}
+	}
+
+	@Test
+	public void percentilesWithinPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10_000; i++) {
+			histogram.record(i * 1000L);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(10_000, snapshot.getCount());
+		assertEquals(5_000_500, snapshot.getMean(), 5_000_500 / 64);
+		assertEquals(10_000_000, snapshot.getMax());
+		assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 / 32);
+		assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 / 32);
+		assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+		assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+	}
+
+}
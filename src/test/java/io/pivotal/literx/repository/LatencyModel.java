@@ -0,0 +1,64 @@
+package io.pivotal.literx.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated latency of a single round trip to a repository backend.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+	/**
+	 * @return the latency of the next round trip, {@code 0} meaning it completes immediately
+	 */
+	long nextDelayInMs();
+
+
+	static LatencyModel none() {
+		return () -> 0;
+	}
+
+	static LatencyModel fixed(long delayInMs) {
+		if (delayInMs < 0) {
+			throw new IllegalArgumentException("delayInMs must be positive, was " + delayInMs);
+		}
+		return () -> delayInMs;
+	}
+
+	static LatencyModel uniform(long minDelayInMs, long maxDelayInMs) {
+		if (minDelayInMs < 0 || maxDelayInMs < minDelayInMs) {
+			throw new IllegalArgumentException("Invalid range [" + minDelayInMs + ", " + maxDelayInMs + "]");
+		}
+		return () -> ThreadLocalRandom.current().nextLong(minDelayInMs, maxDelayInMs + 1);
+	}
+
+	/**
+	 * Latency following the given distribution, linearly interpolated between percentiles.
+	 * For instance {@code percentiles(new double[]{0.5, 0.99, 1}, new long[]{5, 40, 200})}
+	 * has a median of 5ms, a p99 of 40ms and never exceeds 200ms.
+	 * @param percentiles increasing percentiles between {@code 0} and {@code 1}, the last one being {@code 1}
+	 * @param delaysInMs the latency at each of those percentiles, in increasing order
+	 */
+	static LatencyModel percentiles(double[] percentiles, long[] delaysInMs) {
+		if (percentiles.length == 0 || percentiles.length != delaysInMs.length
+				|| percentiles[percentiles.length - 1] != 1) {
+			throw new IllegalArgumentException("Invalid distribution " + Arrays.toString(percentiles)
+					+ " -> " + Arrays.toString(delaysInMs));
+		}
+		double[] p = percentiles.clone();
+		long[] d = delaysInMs.clone();
+		return () -> {
+			double u = ThreadLocalRandom.current().nextDouble();
+			if (u <= p[0]) {
+				return d[0];
+			}
+			int i = 1;
+			while (u > p[i]) {
+				i++;
+			}
+			return d[i - 1] + Math.round((d[i] - d[i - 1]) * (u - p[i - 1]) / (p[i] - p[i - 1]));
+		};
+	}
+
+}
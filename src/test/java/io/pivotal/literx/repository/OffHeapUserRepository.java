@@ -0,0 +1,82 @@
+package io.pivotal.literx.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import io.pivotal.literx.domain.User;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveRepository} keeping its users in an {@link OffHeapUserStore}, out of
+ * reach of the garbage collector. Users are decoded from their records as they are
+ * emitted, and a scan only sees the users saved before it was subscribed to.
+ */
+public class OffHeapUserRepository implements ReactiveRepository<User>, Closeable {
+
+	private final OffHeapUserStore store;
+
+
+	public OffHeapUserRepository(OffHeapUserStore store) {
+		this.store = store;
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<User> userPublisher) {
+		return Flux.from(userPublisher).doOnNext(store::add).then();
+	}
+
+	@Override
+	public Mono<User> findFirst() {
+		return Mono.fromCallable(() -> {
+			long first = store.first();
+			return first >= 0 ? store.get(first) : null;
+		});
+	}
+
+	@Override
+	public Flux<User> findAll() {
+		return Flux.defer(() -> scan(store.first(), store.end()));
+	}
+
+	@Override
+	public Mono<User> findById(String username) {
+		return Mono.defer(() -> {
+			long address = store.indexOf(username);
+			if (address < 0) {
+				return Mono.error(new IllegalArgumentException("No user with username " + username + " found!"));
+			}
+			return Mono.just(store.get(address));
+		});
+	}
+
+	/**
+	 * @return the store holding the users
+	 */
+	public OffHeapUserStore getStore() {
+		return store;
+	}
+
+	@Override
+	public void close() throws IOException {
+		store.close();
+	}
+
+
+	/**
+	 * Decode the records from the given address up to the given end, one per request.
+	 */
+	private Flux<User> scan(long from, long end) {
+		return Flux.generate(() -> from, (address, sink) -> {
+			if (address < 0 || address >= end) {
+				sink.complete();
+				return -1L;
+			}
+			sink.next(store.get(address));
+			return store.next(address);
+		});
+	}
+
+}
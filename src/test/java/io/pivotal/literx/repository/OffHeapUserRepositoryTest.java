@@ -0,0 +1,47 @@
+package io.pivotal.literx.repository;
+
+import io.pivotal.literx.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class OffHeapUserRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	private final ReactiveRepository<User> repository = new OffHeapUserRepository(OffHeapUserStore.allocateDirect(1024));
+
+	@Test
+	public void findById() {
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findById("wwhite"));
+		ScriptedSubscriber.create()
+				.expectError(IllegalArgumentException.class)
+				.verify(repository.findById("mschrader"));
+	}
+
+	@Test
+	public void findAllSeesUsersSavedBeforeSubscription() {
+		repository.save(Flux.just(User.SKYLER, User.JESSE)).block();
+		Flux<User> users = repository.findAll();
+		repository.save(Flux.just(MARIE)).block();
+		// users saved during the scan are not part of it
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, MARIE)
+				.expectComplete()
+				.verify(users.doOnNext(user -> repository.save(Flux.just(new User("u" + user.getUsername(), "F", "L"))).block()));
+	}
+
+	@Test
+	public void findAllAfter() {
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.SKYLER, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, User.JESSE));
+	}
+
+}
@@ -0,0 +1,438 @@
+package io.pivotal.literx.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+
+/**
+ * Append-only storage of users outside of the Java heap, in direct buffers or in
+ * memory-mapped files, so that the garbage collector never has to trace them.
+ *
+ * Users are stored as records made of the UTF-8 lengths of the username, first name and
+ * last name, on 2 bytes each, followed by their bytes. Records are appended to fixed-size
+ * segments and addressed by their offset in the data. Usernames are indexed by an open
+ * addressing hash table of record addresses, in a buffer of its own whose header also
+ * holds the number of users and the end of the data. The first user saved with a given
+ * username wins, like in {@link ReactiveUserRepository}.
+ *
+ * A store opened on a directory maps {@code users.dat} and {@code users.idx}, so opening
+ * it again after a restart maps the existing users instead of loading them. Writes reach
+ * the files when the operating system flushes the mapped pages, or on {@link #force()}
+ * and {@link #close()}.
+ */
+public class OffHeapUserStore implements Closeable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	private static final String DATA_FILE = "users.dat";
+
+	private static final String INDEX_FILE = "users.idx";
+
+	private static final int MAGIC = 0x55534552;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static final int CAPACITY_OFFSET = 8;
+
+	private static final int COUNT_OFFSET = 16;
+
+	private static final int END_OFFSET = 24;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final int MAX_FIELD_LENGTH = 0xFFFE;
+
+	private static final int END_OF_SEGMENT = 0xFFFF;
+
+	private static final int RECORD_HEADER_SIZE = 6;
+
+	private final Path directory;
+
+	private final FileChannel data;
+
+	private final int segmentSize;
+
+	// guarded by this
+	private final List<ByteBuffer> segments = new ArrayList<>();
+
+	private ByteBuffer index;
+
+	private int capacity;
+
+	private int count;
+
+	private long end;
+
+
+	private OffHeapUserStore(Path directory, FileChannel data, int segmentSize) {
+		this.directory = directory;
+		this.data = data;
+		this.segmentSize = segmentSize;
+	}
+
+
+	/**
+	 * @return an empty store in direct buffers, released once the store is garbage collected
+	 */
+	public static OffHeapUserStore allocateDirect() {
+		return allocateDirect(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param segmentSize the size of the buffers records are appended to, which bounds the
+	 * size of a record
+	 */
+	public static OffHeapUserStore allocateDirect(int segmentSize) {
+		checkSegmentSize(segmentSize);
+		OffHeapUserStore store = new OffHeapUserStore(null, null, segmentSize);
+		store.index = store.newIndex(ByteBuffer.allocateDirect(HEADER_SIZE + INITIAL_CAPACITY * 8), INITIAL_CAPACITY);
+		store.capacity = INITIAL_CAPACITY;
+		return store;
+	}
+
+	/**
+	 * @return the store persisted in the given directory, created if it does not exist yet
+	 */
+	public static OffHeapUserStore open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param segmentSize the size of the file regions records are appended to, which
+	 * bounds the size of a record, ignored when opening an existing store
+	 */
+	public static OffHeapUserStore open(Path directory, int segmentSize) throws IOException {
+		checkSegmentSize(segmentSize);
+		Files.createDirectories(directory);
+		Path indexFile = directory.resolve(INDEX_FILE);
+		if (!Files.exists(indexFile)) {
+			OffHeapUserStore store = new OffHeapUserStore(directory, openChannel(directory.resolve(DATA_FILE)), segmentSize);
+			store.index = store.newIndex(map(indexFile, HEADER_SIZE + INITIAL_CAPACITY * 8), INITIAL_CAPACITY);
+			store.capacity = INITIAL_CAPACITY;
+			return store;
+		}
+		MappedByteBuffer index = map(indexFile, Files.size(indexFile));
+		if (index.getInt(0) != MAGIC) {
+			throw new IOException("Not a user store: " + indexFile);
+		}
+		OffHeapUserStore store = new OffHeapUserStore(directory, openChannel(directory.resolve(DATA_FILE)), index.getInt(4));
+		store.index = index;
+		store.capacity = index.getInt(CAPACITY_OFFSET);
+		store.count = (int) index.getLong(COUNT_OFFSET);
+		store.end = index.getLong(END_OFFSET);
+		for (long segment = 0; segment * store.segmentSize < store.end; segment++) {
+			store.segments.add(store.data.map(FileChannel.MapMode.READ_WRITE, segment * store.segmentSize, store.segmentSize));
+		}
+		return store;
+	}
+
+
+	/**
+	 * @throws IllegalArgumentException if a value is longer than 65534 UTF-8 bytes, or if
+	 * the record does not fit in a segment
+	 */
+	public synchronized void add(User user) {
+		byte[] username = encode(user.getUsername());
+		byte[] firstname = encode(user.getFirstname());
+		byte[] lastname = encode(user.getLastname());
+		int length = RECORD_HEADER_SIZE + username.length + firstname.length + lastname.length;
+		if (length > segmentSize) {
+			throw new IllegalArgumentException("Record of " + length + " bytes larger than segments of " + segmentSize);
+		}
+		if (count == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Store is full");
+		}
+		long address = end;
+		int position = (int) (address % segmentSize);
+		if (position + length > segmentSize || address == segments.size() * (long) segmentSize) {
+			if (position != 0 && segmentSize - position >= 2) {
+				segment(address).putShort(position, (short) END_OF_SEGMENT);
+			}
+			address = segments.size() * (long) segmentSize;
+			position = 0;
+			segments.add(newSegment(segments.size()));
+		}
+		ByteBuffer segment = segment(address);
+		segment.putShort(position, (short) username.length);
+		segment.putShort(position + 2, (short) firstname.length);
+		segment.putShort(position + 4, (short) lastname.length);
+		put(segment, position + RECORD_HEADER_SIZE, username);
+		put(segment, position + RECORD_HEADER_SIZE + username.length, firstname);
+		put(segment, position + RECORD_HEADER_SIZE + username.length + firstname.length, lastname);
+		end = address + length;
+		count++;
+		if (indexOf(username) < 0) {
+			// keep the table at most 3/4 full
+			if (count * 4L > capacity * 3L) {
+				rehash(capacity * 2);
+			}
+			insert(address, hash(username));
+		}
+		index.putLong(COUNT_OFFSET, count);
+		index.putLong(END_OFFSET, end);
+	}
+
+	/**
+	 * @return a new {@link User} decoded from the record at the given address
+	 */
+	public synchronized User get(long address) {
+		if (address < 0 || address >= end) {
+			throw new IndexOutOfBoundsException("Address: " + address + ", End: " + end);
+		}
+		ByteBuffer segment = segment(address);
+		int position = (int) (address % segmentSize);
+		int usernameLength = segment.getShort(position) & 0xFFFF;
+		int firstnameLength = segment.getShort(position + 2) & 0xFFFF;
+		int lastnameLength = segment.getShort(position + 4) & 0xFFFF;
+		position += RECORD_HEADER_SIZE;
+		String username = decode(segment, position, usernameLength);
+		String firstname = decode(segment, position + usernameLength, firstnameLength);
+		String lastname = decode(segment, position + usernameLength + firstnameLength, lastnameLength);
+		return new User(username, firstname, lastname);
+	}
+
+	/**
+	 * @return the address of the first record, or {@code -1} if the store is empty
+	 */
+	public synchronized long first() {
+		return end > 0 ? 0 : -1;
+	}
+
+	/**
+	 * @return the address of the record following the one at the given address, or
+	 * {@code -1} if it is the last one
+	 */
+	public synchronized long next(long address) {
+		ByteBuffer segment = segment(address);
+		int position = (int) (address % segmentSize);
+		int length = RECORD_HEADER_SIZE + (segment.getShort(position) & 0xFFFF)
+				+ (segment.getShort(position + 2) & 0xFFFF) + (segment.getShort(position + 4) & 0xFFFF);
+		long next = address + length;
+		if (next >= end) {
+			return -1;
+		}
+		int nextPosition = position + length;
+		if (segmentSize - nextPosition < RECORD_HEADER_SIZE || (segment.getShort(nextPosition) & 0xFFFF) == END_OF_SEGMENT) {
+			next = (address / segmentSize + 1) * segmentSize;
+		}
+		return next;
+	}
+
+	/**
+	 * @return the address of the first user saved with the given username, or {@code -1}
+	 */
+	public synchronized long indexOf(String username) {
+		return indexOf(encode(username));
+	}
+
+	/**
+	 * @return the address following the last record, which bounds the records a scan
+	 * started now should see
+	 */
+	public synchronized long end() {
+		return end;
+	}
+
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * Write the mapped pages to the files, if the store is persisted.
+	 */
+	public synchronized void force() {
+		if (directory != null) {
+			for (ByteBuffer segment : segments) {
+				((MappedByteBuffer) segment).force();
+			}
+			((MappedByteBuffer) index).force();
+		}
+	}
+
+	/**
+	 * Force the mapped pages to the files and close them. The memory is released once the
+	 * store is garbage collected.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		force();
+		if (data != null) {
+			data.close();
+		}
+	}
+
+
+	private long indexOf(byte[] username) {
+		int mask = capacity - 1;
+		for (int slot = hash(username) & mask; ; slot = (slot + 1) & mask) {
+			long entry = index.getLong(HEADER_SIZE + slot * 8);
+			if (entry == 0) {
+				return -1;
+			}
+			if (usernameEquals(entry - 1, username)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	private boolean usernameEquals(long address, byte[] username) {
+		ByteBuffer segment = segment(address);
+		int position = (int) (address % segmentSize);
+		if ((segment.getShort(position) & 0xFFFF) != username.length) {
+			return false;
+		}
+		position += RECORD_HEADER_SIZE;
+		for (int i = 0; i < username.length; i++) {
+			if (segment.get(position + i) != username[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void insert(long address, int hash) {
+		int mask = capacity - 1;
+		int slot = hash & mask;
+		while (index.getLong(HEADER_SIZE + slot * 8) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index.putLong(HEADER_SIZE + slot * 8, address + 1);
+	}
+
+	/**
+	 * Copy the entries to a table twice as large. A persisted table is written to a new
+	 * file that replaces the old one once complete.
+	 */
+	private void rehash(int newCapacity) {
+		if (HEADER_SIZE + newCapacity * 8L > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Index is full");
+		}
+		ByteBuffer old = index;
+		int oldCapacity = capacity;
+		Path rehashed = directory != null ? directory.resolve(INDEX_FILE + ".tmp") : null;
+		try {
+			if (rehashed != null) {
+				// left over by a rehash that did not complete
+				Files.deleteIfExists(rehashed);
+			}
+			ByteBuffer table = rehashed != null ? map(rehashed, HEADER_SIZE + newCapacity * 8L)
+					: ByteBuffer.allocateDirect(HEADER_SIZE + newCapacity * 8);
+			index = newIndex(table, newCapacity);
+			capacity = newCapacity;
+			for (int slot = 0; slot < oldCapacity; slot++) {
+				long entry = old.getLong(HEADER_SIZE + slot * 8);
+				if (entry != 0) {
+					insert(entry - 1, hash(entry - 1));
+				}
+			}
+			if (rehashed != null) {
+				((MappedByteBuffer) index).force();
+				Files.move(rehashed, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ByteBuffer newIndex(ByteBuffer table, int capacity) {
+		table.putInt(0, MAGIC);
+		table.putInt(4, segmentSize);
+		table.putInt(CAPACITY_OFFSET, capacity);
+		table.putLong(COUNT_OFFSET, count);
+		table.putLong(END_OFFSET, end);
+		return table;
+	}
+
+	private ByteBuffer newSegment(int segment) {
+		if (data == null) {
+			return ByteBuffer.allocateDirect(segmentSize);
+		}
+		try {
+			return data.map(FileChannel.MapMode.READ_WRITE, segment * (long) segmentSize, segmentSize);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ByteBuffer segment(long address) {
+		return segments.get((int) (address / segmentSize));
+	}
+
+	private int hash(long address) {
+		ByteBuffer segment = segment(address);
+		int position = (int) (address % segmentSize);
+		byte[] username = new byte[segment.getShort(position) & 0xFFFF];
+		for (int i = 0; i < username.length; i++) {
+			username[i] = segment.get(position + RECORD_HEADER_SIZE + i);
+		}
+		return hash(username);
+	}
+
+	/**
+	 * FNV-1a with the murmur3 finalizer, as consecutive slots are probed.
+	 */
+	private static int hash(byte[] bytes) {
+		int h = 0x811c9dc5;
+		for (byte b : bytes) {
+			h = (h ^ b) * 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static byte[] encode(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_FIELD_LENGTH) {
+			throw new IllegalArgumentException("Value too long: " + value);
+		}
+		return bytes;
+	}
+
+	private static String decode(ByteBuffer segment, int position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = segment.get(position + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void put(ByteBuffer segment, int position, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			segment.put(position + i, bytes[i]);
+		}
+	}
+
+	private static FileChannel openChannel(Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static MappedByteBuffer map(Path file, long size) throws IOException {
+		try (FileChannel channel = openChannel(file)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	private static void checkSegmentSize(int segmentSize) {
+		if (segmentSize < RECORD_HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize must be at least " + RECORD_HEADER_SIZE + ", was " + segmentSize);
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package io.pivotal.literx.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapUserStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void addAndGet() {
+		OffHeapUserStore store = OffHeapUserStore.allocateDirect(1024);
+		store.add(User.SKYLER);
+		store.add(User.WALTER);
+		store.add(new User("wwhite", "Walter", "Black"));
+		assertEquals(3, store.size());
+		assertEquals(User.SKYLER, store.get(store.first()));
+		// the first user saved with a username wins
+		assertEquals(User.WALTER, store.get(store.indexOf("wwhite")));
+		assertEquals(-1, store.indexOf("jpinkman"));
+	}
+
+	@Test
+	public void scanAcrossSegments() {
+		// 3 or 4 records of 8 to 11 bytes per 40 bytes segment
+		OffHeapUserStore store = OffHeapUserStore.allocateDirect(40);
+		List<User> users = users(1000);
+		users.forEach(store::add);
+		assertEquals(users, scan(store));
+		for (User user : users) {
+			assertEquals(user, store.get(store.indexOf(user.getUsername())));
+		}
+	}
+
+	@Test
+	public void nonAsciiValues() {
+		OffHeapUserStore store = OffHeapUserStore.allocateDirect(1024);
+		User hector = new User("héctor", "Héctor", "Salamanca");
+		store.add(hector);
+		assertEquals(hector, store.get(store.indexOf("héctor")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recordLargerThanSegment() {
+		OffHeapUserStore.allocateDirect(16).add(User.SKYLER);
+	}
+
+	@Test
+	public void reopenPersistedStore() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("users");
+		List<User> users = users(5000);
+		try (OffHeapUserStore store = OffHeapUserStore.open(directory, 4096)) {
+			users.forEach(store::add);
+		}
+		try (OffHeapUserStore store = OffHeapUserStore.open(directory)) {
+			assertEquals(users.size(), store.size());
+			assertEquals(users, scan(store));
+			assertEquals(users.get(4321), store.get(store.indexOf("u4321")));
+			store.add(User.SAUL);
+		}
+		try (OffHeapUserStore store = OffHeapUserStore.open(directory)) {
+			assertEquals(users.size() + 1, store.size());
+			assertEquals(User.SAUL, store.get(store.indexOf("sgoodman")));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void openOtherFile() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Files.write(directory.resolve("users.idx"), new byte[64]);
+		OffHeapUserStore.open(directory);
+	}
+
+
+	private static List<User> users(int count) {
+		List<User> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(new User("u" + i, "F" + i % 10, "L"));
+		}
+		return users;
+	}
+
+	private static List<User> scan(OffHeapUserStore store) {
+		List<User> users = new ArrayList<>();
+		for (long address = store.first(); address >= 0; address = store.next(address)) {
+			users.add(store.get(address));
+		}
+		return users;
+	}
+
+}
@@ -0,0 +1,159 @@
+package io.pivotal.literx.repository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Cancellation;
+import reactor.core.publisher.Mono;
+
+/**
+ * Emits the elements of a paged source, fetching one page at a time and sizing each page
+ * from the outstanding downstream demand, up to a maximum page size. The sequence
+ * completes after the first page shorter than what was asked for.
+ */
+final class PagingPublisher<T> implements Publisher<T> {
+
+	@FunctionalInterface
+	interface PageFetcher<T> {
+
+		Mono<List<T>> fetch(int offset, int count);
+	}
+
+
+	private final PageFetcher<T> fetcher;
+
+	private final int maxPageSize;
+
+
+	PagingPublisher(PageFetcher<T> fetcher, int maxPageSize) {
+		if (maxPageSize <= 0) {
+			throw new IllegalArgumentException("maxPageSize must be positive, was " + maxPageSize);
+		}
+		this.fetcher = fetcher;
+		this.maxPageSize = maxPageSize;
+	}
+
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		subscriber.onSubscribe(new PagingSubscription<>(subscriber, fetcher, maxPageSize));
+	}
+
+
+	private static final class PagingSubscription<T> implements Subscription {
+
+		private final Subscriber<? super T> actual;
+
+		private final PageFetcher<T> fetcher;
+
+		private final int maxPageSize;
+
+		private final AtomicLong requested = new AtomicLong();
+
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private volatile boolean cancelled;
+
+		private volatile List<T> page;
+
+		private volatile Throwable error;
+
+		private volatile Cancellation inFlight;
+
+		// only accessed from the drain loop
+		private boolean fetching;
+
+		private int offset;
+
+		private int pageSize;
+
+
+		PagingSubscription(Subscriber<? super T> actual, PageFetcher<T> fetcher, int maxPageSize) {
+			this.actual = actual;
+			this.fetcher = fetcher;
+			this.maxPageSize = maxPageSize;
+		}
+
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Rule 3.9 violated: positive request amount required but it was " + n);
+			}
+			else {
+				requested.accumulateAndGet(n, (r, m) -> r + m < 0 ? Long.MAX_VALUE : r + m);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			Cancellation cancellation = inFlight;
+			if (cancellation != null) {
+				cancellation.dispose();
+			}
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				if (cancelled) {
+					return;
+				}
+				Throwable e = error;
+				if (e != null) {
+					cancel();
+					actual.onError(e);
+					return;
+				}
+				List<T> p = page;
+				if (p != null) {
+					page = null;
+					fetching = false;
+					for (T element : p) {
+						if (cancelled) {
+							return;
+						}
+						actual.onNext(element);
+					}
+					if (requested.get() != Long.MAX_VALUE) {
+						requested.addAndGet(-p.size());
+					}
+					offset += p.size();
+					if (p.size() < pageSize) {
+						cancelled = true;
+						actual.onComplete();
+						return;
+					}
+				}
+				long r = requested.get();
+				if (!fetching && r > 0) {
+					fetching = true;
+					pageSize = (int) Math.min(r, maxPageSize);
+					inFlight = fetcher.fetch(offset, pageSize).subscribe(
+							result -> {
+								page = result;
+								drain();
+							},
+							failure -> {
+								error = failure;
+								drain();
+							});
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+}
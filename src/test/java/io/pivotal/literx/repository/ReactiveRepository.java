@@ -1,5 +1,8 @@
 package io.pivotal.literx.repository;
 
+import java.time.Duration;
+import java.util.Comparator;
+
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -8,9 +11,48 @@ public interface ReactiveRepository<T> {
 
 	Mono<Void> save(Publisher<T> publisher);
 
+	/**
+	 * Save the elements in batches of at most {@code batchSize} elements, a batch being
+	 * committed once full or once {@code maxLatency} elapsed since it was opened.
+	 * @return the size of each batch, emitted once that batch is committed
+	 */
+	default Flux<Integer> saveAll(Publisher<T> publisher, int batchSize, Duration maxLatency) {
+		return Flux.from(publisher)
+				.buffer(batchSize, maxLatency)
+				.concatMap(batch -> save(Flux.fromIterable(batch)).then(Mono.just(batch.size())));
+	}
+
 	Mono<T> findFirst();
 
 	Flux<T> findAll();
 
+	/**
+	 * Find all the values in the given order. The default implementation collects and sorts
+	 * {@link #findAll()}, a repository able to scan in that order should override it.
+	 */
+	default Flux<T> findAll(Comparator<? super T> order) {
+		return findAll().sort(order);
+	}
+
+	/**
+	 * Find the values ordered after the given one, to resume a {@link #findAll(Comparator)}
+	 * scan that was interrupted after emitting it, possibly on another repository holding
+	 * the same values. The order should tell distinct values apart, as values it does not
+	 * order after the given one are skipped. The default implementation sorts the values of
+	 * {@link #findAll()} ordered after it.
+	 */
+	default Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		return findAll().filter(value -> order.compare(value, last) > 0).sort(order);
+	}
+
 	Mono<T> findById(String id);
+
+	/**
+	 * Find the values with the given ids, in the order of the ids. Unknown ids, for which
+	 * {@link #findById(String)} signals an {@link IllegalArgumentException}, are skipped.
+	 * The default implementation calls {@link #findById(String)} for each id.
+	 */
+	default Flux<T> findAllById(Publisher<String> ids) {
+		return Flux.from(ids).concatMap(id -> findById(id).otherwise(IllegalArgumentException.class, e -> Mono.empty()));
+	}
 }
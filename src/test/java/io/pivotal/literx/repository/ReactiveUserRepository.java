@@ -3,20 +3,46 @@ package io.pivotal.literx.repository;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.pivotal.literx.domain.User;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
 
 public class ReactiveUserRepository implements ReactiveRepository<User> {
 
+	/**
+	 * The order {@link #findAll(Comparator)} scans and {@link #findAllAfter} resumes without
+	 * sorting: by username, then by first and last name, so that it tells distinct users
+	 * apart.
+	 */
+	public static final Comparator<User> BY_USERNAME = Comparator.comparing(User::getUsername)
+			.thenComparing(User::getFirstname)
+			.thenComparing(User::getLastname);
+
 	private final static long DEFAULT_DELAY_IN_MS = 50;
 
-	private final long delayInMs;
+	private final LatencyModel latency;
+
+	private final TimedScheduler timer;
+
+	private final ConcurrentAppendLog<User> users = new ConcurrentAppendLog<>();
 
-	private final List<User> users;
+	private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
+
+	// every user, in BY_USERNAME order then in the order they were indexed
+	private final ConcurrentSkipListMap<UsernameKey, User> usersInUsernameOrder = new ConcurrentSkipListMap<>();
+
+	private final AtomicLong indexed = new AtomicLong();
 
 
 	public ReactiveUserRepository() {
@@ -24,8 +50,11 @@ public class ReactiveUserRepository implements ReactiveRepository<User> {
 	}
 
 	public ReactiveUserRepository(long delayInMs) {
-		this.delayInMs = delayInMs;
-		users = new ArrayList<>(Arrays.asList(User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+		this(LatencyModel.fixed(delayInMs));
+	}
+
+	public ReactiveUserRepository(LatencyModel latency) {
+		this(latency, Schedulers.timer(), User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
 	}
 
 	public ReactiveUserRepository(User... users) {
@@ -33,19 +62,50 @@ public class ReactiveUserRepository implements ReactiveRepository<User> {
 	}
 
 	public ReactiveUserRepository(long delayInMs, User... users) {
-		this.delayInMs = delayInMs;
-		this.users = new ArrayList<>(Arrays.asList(users));
+		this(LatencyModel.fixed(delayInMs), users);
+	}
+
+	public ReactiveUserRepository(LatencyModel latency, User... users) {
+		this(latency, Schedulers.timer(), users);
+	}
+
+	/**
+	 * @param latency the simulated latency of each round trip, {@link LatencyModel#none()} costing no time at all
+	 * @param timer the time source the simulated latency is waited on, for instance a
+	 * {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public ReactiveUserRepository(LatencyModel latency, TimedScheduler timer, User... users) {
+		this.latency = latency;
+		this.timer = timer;
+		this.users.addAll(Arrays.asList(users));
+		this.users.forEach(this::index);
 	}
 
 
 	@Override
 	public Mono<Void> save(Publisher<User> userPublisher) {
-		return withDelay(Flux.from(userPublisher)).doOnNext(users::add).then();
+		return withDelay(Flux.from(userPublisher)).doOnNext(this::store).then();
 	}
 
+	/**
+	 * Each batch costs a single round trip and is appended to the store in one step.
+	 */
+	@Override
+	public Flux<Integer> saveAll(Publisher<User> userPublisher, int batchSize, Duration maxLatency) {
+		return Flux.from(userPublisher)
+				.buffer(batchSize, maxLatency)
+				.concatMap(batch -> withDelay(Mono.fromCallable(() -> storeAll(batch))));
+	}
+
+	/**
+	 * The first user saved, looked up on subscription, or an empty Mono if there is none.
+	 */
 	@Override
 	public Mono<User> findFirst() {
-		return withDelay(Mono.just(users.get(0)));
+		return withDelay(Mono.defer(() -> {
+			Iterator<User> it = users.iterator();
+			return it.hasNext() ? Mono.just(it.next()) : Mono.empty();
+		}));
 	}
 
 	@Override
@@ -53,25 +113,140 @@ public class ReactiveUserRepository implements ReactiveRepository<User> {
 		return withDelay(Flux.fromIterable(users));
 	}
 
+	/**
+	 * Scan in {@link #BY_USERNAME} order from an index kept sorted as users are saved, so
+	 * that users are streamed as they are requested rather than collected and sorted first.
+	 * Equal users come in the order they were saved. Any other order is sorted. Unlike {@link #findAll()}, the indexed scan is not a snapshot: users saved
+	 * while it runs may or may not be emitted.
+	 */
+	@Override
+	public Flux<User> findAll(Comparator<? super User> order) {
+		if (order != BY_USERNAME) {
+			return ReactiveRepository.super.findAll(order);
+		}
+		return withDelay(Flux.fromIterable(usersInUsernameOrder.values()));
+	}
+
+	/**
+	 * Stream the users page by page, each page costing a single round trip. Pages are sized
+	 * from the downstream demand, up to {@code maxPageSize} users.
+	 */
+	public Flux<User> findAll(int maxPageSize) {
+		return Flux.defer(() -> {
+			int size = users.size();
+			return Flux.from(new PagingPublisher<User>((offset, count) -> withDelay(Mono.fromCallable(() -> {
+				int end = (int) Math.min((long) offset + count, size);
+				List<User> page = new ArrayList<>(Math.max(end - offset, 0));
+				for (int i = offset; i < end; i++) {
+					page.add(users.get(i));
+				}
+				return page;
+			})), maxPageSize));
+		});
+	}
+
+	/**
+	 * Resume a {@link #BY_USERNAME} scan from the position of the given user in the index,
+	 * found in logarithmic time, whether that user is saved here or not. Users equal to it
+	 * are skipped, as a scan cannot tell which of them it emitted already.
+	 */
+	@Override
+	public Flux<User> findAllAfter(Comparator<? super User> order, User last) {
+		if (order != BY_USERNAME) {
+			return ReactiveRepository.super.findAllAfter(order, last);
+		}
+		return withDelay(Flux.defer(() ->
+				Flux.fromIterable(usersInUsernameOrder.tailMap(new UsernameKey(last, Long.MAX_VALUE)).values())));
+	}
+
 	@Override
 	public Mono<User> findById(String username) {
-		User user = users.stream().filter((p) -> p.getUsername().equals(username))
-				.findFirst()
-				.orElseThrow(() -> new IllegalArgumentException("No user with username " + username + " found!"));
-		return withDelay(Mono.just(user));
+		return withDelay(Mono.defer(() -> {
+			User user = usersByUsername.get(username);
+			if (user == null) {
+				return Mono.error(new IllegalArgumentException("No user with username " + username + " found!"));
+			}
+			return Mono.just(user);
+		}));
+	}
+
+	/**
+	 * All the users cost a single round trip.
+	 */
+	@Override
+	public Flux<User> findAllById(Publisher<String> usernames) {
+		return Flux.from(usernames)
+				.collectList()
+				.then(list -> withDelay(Mono.fromCallable(() -> {
+					List<User> found = new ArrayList<>(list.size());
+					for (String username : list) {
+						User user = usersByUsername.get(username);
+						if (user != null) {
+							found.add(user);
+						}
+					}
+					return found;
+				})))
+				.flatMapIterable(found -> found);
+	}
+
+
+	private void store(User user) {
+		users.add(user);
+		index(user);
+	}
+
+	private int storeAll(List<User> batch) {
+		users.addAll(batch);
+		batch.forEach(this::index);
+		return batch.size();
+	}
+
+	/**
+	 * The first user saved with a given username wins lookups, like the linear scan it
+	 * replaces, while scans in username order see all of them.
+	 */
+	private void index(User user) {
+		usersByUsername.putIfAbsent(user.getUsername(), user);
+		usersInUsernameOrder.put(new UsernameKey(user, indexed.getAndIncrement()), user);
 	}
 
 
-	private Mono<User> withDelay(Mono<User> userMono) {
-		return Mono
-				.delay(Duration.ofMillis(delayInMs))
-				.then(c -> userMono);
+	private <T> Mono<T> withDelay(Mono<T> mono) {
+		return Mono.defer(() -> {
+			long delayInMs = latency.nextDelayInMs();
+			if (delayInMs == 0) {
+				return mono;
+			}
+			return Mono
+					.delayMillis(delayInMs, timer)
+					.then(c -> mono);
+		});
 	}
 
 	private Flux<User> withDelay(Flux<User> userFlux) {
-		return Flux
-				.interval(Duration.ofMillis(delayInMs))
-				.zipWith(userFlux, (i, user) -> user);
+		return userFlux.concatMap(user -> withDelay(Mono.just(user)));
+	}
+
+
+	private static final class UsernameKey implements Comparable<UsernameKey> {
+
+		private final User user;
+
+		private final long sequence;
+
+
+		UsernameKey(User user, long sequence) {
+			this.user = user;
+			this.sequence = sequence;
+		}
+
+
+		@Override
+		public int compareTo(UsernameKey other) {
+			int order = BY_USERNAME.compare(user, other.user);
+			return order != 0 ? order : Long.compare(sequence, other.sequence);
+		}
 	}
 
 }
@@ -0,0 +1,193 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class ReactiveUserRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	private ReactiveRepository<User> repository = new ReactiveUserRepository(LatencyModel.none());
+
+	@Test
+	public void findById() {
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findById("wwhite"));
+	}
+
+	@Test
+	public void findByIdUnknownUsername() {
+		ScriptedSubscriber.create()
+				.expectError(IllegalArgumentException.class)
+				.verify(repository.findById("mschrader"));
+	}
+
+	@Test
+	public void findByIdAfterSave() {
+		Mono<User> mono = repository.findById("mschrader");
+		repository.save(Mono.just(MARIE)).block();
+		ScriptedSubscriber.create()
+				.expectNext(MARIE)
+				.expectComplete()
+				.verify(mono);
+	}
+
+	@Test
+	public void findByIdFirstSavedWins() {
+		repository.save(Mono.just(new User("wwhite", "Walter", "Junior"))).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findById("wwhite"));
+	}
+
+	@Test
+	public void findAllByIdSkipsUnknownUsernames() {
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER, User.SAUL)
+				.expectComplete()
+				.verify(repository.findAllById(Flux.just("wwhite", "mschrader", "sgoodman")));
+	}
+
+	@Test
+	public void findAllAfter() {
+		User walterJunior = new User("wwhite", "Walter", "Junior");
+		repository.save(Flux.just(walterJunior)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.SKYLER, walterJunior, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, User.JESSE));
+		// users sharing a username are told apart
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, walterJunior));
+		// resuming after a user saved elsewhere only
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.SKYLER, walterJunior, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, MARIE));
+	}
+
+	@Test
+	public void findAllByUsername() {
+		User walterJunior = new User("wwhite", "Walter", "Junior");
+		repository.save(Flux.just(walterJunior, MARIE)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.JESSE, MARIE, User.SAUL, User.SKYLER, walterJunior, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAll(ReactiveUserRepository.BY_USERNAME));
+		ScriptedSubscriber.create(2)
+				.expectNext(User.JESSE, MARIE)
+				.thenCancel()
+				.verify(repository.findAll(ReactiveUserRepository.BY_USERNAME));
+	}
+
+	@Test
+	public void findAllInAnotherOrderIsSorted() {
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.JESSE, User.SKYLER, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAll(Comparator.comparing(User::getLastname).thenComparing(User::getFirstname)));
+	}
+
+	@Test
+	public void saveAllInBatches() {
+		Flux<User> users = Flux.range(0, 5).map(i -> new User("user" + i, "Firstname" + i, "Lastname" + i));
+		ScriptedSubscriber.create()
+				.expectNext(2, 2, 1)
+				.expectComplete()
+				.verify(repository.saveAll(users, 2, Duration.ofSeconds(10)));
+		ScriptedSubscriber.create()
+				.expectNextCount(9)
+				.expectComplete()
+				.verify(repository.findAll());
+		ScriptedSubscriber.create()
+				.expectNext(new User("user4", "Firstname4", "Lastname4"))
+				.expectComplete()
+				.verify(repository.findById("user4"));
+	}
+
+	@Test
+	public void saveAllFlushesOnMaxLatency() {
+		Flux<User> users = Flux.just(MARIE).concatWith(Flux.never());
+		ScriptedSubscriber.create()
+				.expectNext(1)
+				.thenCancel()
+				.verify(repository.saveAll(users, 100, Duration.ofMillis(10)));
+		ScriptedSubscriber.create()
+				.expectNext(MARIE)
+				.expectComplete()
+				.verify(repository.findById("mschrader"));
+	}
+
+	@Test
+	public void findAllOnVirtualTime() {
+		VirtualTimeScheduler timer = new VirtualTimeScheduler();
+		repository = new ReactiveUserRepository(LatencyModel.fixed(50), timer, User.SKYLER, User.JESSE);
+		List<User> users = new ArrayList<>();
+		repository.findAll().subscribe(users::add);
+		timer.advanceTimeBy(Duration.ofMillis(49));
+		assertTrue(users.isEmpty());
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		assertEquals(Collections.singletonList(User.SKYLER), users);
+		timer.advanceTimeBy(Duration.ofMillis(50));
+		assertEquals(Arrays.asList(User.SKYLER, User.JESSE), users);
+	}
+
+	@Test
+	public void percentileLatencies() {
+		LatencyModel latency = LatencyModel.percentiles(new double[]{0.5, 0.99, 1}, new long[]{5, 40, 200});
+		for (int i = 0; i < 1000; i++) {
+			long delayInMs = latency.nextDelayInMs();
+			assertTrue(delayInMs >= 5 && delayInMs <= 200);
+		}
+	}
+
+	@Test
+	public void findAllPagesSizedFromDemand() {
+		AtomicInteger roundTrips = new AtomicInteger();
+		ReactiveUserRepository repository = new ReactiveUserRepository(() -> {
+			roundTrips.incrementAndGet();
+			return 0;
+		});
+		ScriptedSubscriber.create(1)
+				.expectNext(User.SKYLER)
+				.thenRequest(2)
+				.expectNext(User.JESSE, User.WALTER)
+				.thenCancel()
+				.verify(repository.findAll(100));
+		assertEquals(2, roundTrips.get());
+
+		roundTrips.set(0);
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.expectComplete()
+				.verify(repository.findAll(100));
+		assertEquals(1, roundTrips.get());
+
+		roundTrips.set(0);
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.expectComplete()
+				.verify(repository.findAll(2));
+		assertEquals(3, roundTrips.get());
+	}
+
+}
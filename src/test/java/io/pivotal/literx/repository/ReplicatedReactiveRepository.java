@@ -0,0 +1,428 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * {@link ReactiveRepository} over replicas holding the same values. Saves go to every
+ * replica. {@link #findFirst()} and {@link #findById(String)} go to a primary replica and
+ * are hedged: if the primary did not answer within the hedge delay, the same lookup is
+ * sent to the next replica, and whichever answers first wins while the other is cancelled.
+ *
+ * The latency of recent lookups is tracked per replica. The replica with the lowest
+ * median is the primary, and the hedge delay is either fixed or the observed latency
+ * percentile of the primary, so only the slowest lookups pay for a second request.
+ *
+ * Scans stream from the replica with the lowest moving average of the time it takes to
+ * serve a requested element. Only the time spent waiting with demand outstanding counts,
+ * so a slow subscriber does not make a replica look slow. If a requested element of a
+ * {@link #findAll(Comparator)} scan does not arrive within the element timeout, the scan
+ * resumes after the last emitted value on the next replica with
+ * {@link ReactiveRepository#findAllAfter}, instead of stalling or restarting. The last
+ * replica left is waited for however slow it is. {@link #findAll()} scans cannot fail
+ * over, as replicas may have saved the same values in different orders.
+ */
+public class ReplicatedReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private static final int MIN_SAMPLES = 20;
+
+	private static final Duration DEFAULT_ELEMENT_TIMEOUT = Duration.ofSeconds(1);
+
+	private final List<Replica<T>> replicas;
+
+	private final double hedgePercentile;
+
+	private final long hedgeDelayInMs;
+
+	private final long elementTimeoutInMs;
+
+	private final TimedScheduler timer;
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder hedges = new LongAdder();
+
+	private final LongAdder hedgeWins = new LongAdder();
+
+	private final LongAdder failovers = new LongAdder();
+
+
+	/**
+	 * Hedge after a fixed delay.
+	 */
+	public ReplicatedReactiveRepository(List<? extends ReactiveRepository<T>> replicas, Duration hedgeDelay) {
+		this(replicas, hedgeDelay, Schedulers.timer());
+	}
+
+	/**
+	 * Hedge after a fixed delay.
+	 * @param timer the scheduler measuring latencies and hedge delays, for instance a
+	 * {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public ReplicatedReactiveRepository(List<? extends ReactiveRepository<T>> replicas, Duration hedgeDelay,
+			TimedScheduler timer) {
+		this(replicas, Double.NaN, hedgeDelay, timer);
+	}
+
+	/**
+	 * Hedge once a lookup took longer than the given percentile of the primary's recent
+	 * latencies, for instance {@code 0.95}.
+	 * @param initialHedgeDelay the hedge delay until enough latencies were observed
+	 * @param timer the scheduler measuring latencies and hedge delays, for instance a
+	 * {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public ReplicatedReactiveRepository(List<? extends ReactiveRepository<T>> replicas, double hedgePercentile,
+			Duration initialHedgeDelay, TimedScheduler timer) {
+		this(replicas, hedgePercentile, initialHedgeDelay, DEFAULT_ELEMENT_TIMEOUT, timer);
+	}
+
+	/**
+	 * @param hedgePercentile the percentile of the primary's recent latencies to hedge after,
+	 * or {@link Double#NaN} to always hedge after {@code initialHedgeDelay}
+	 * @param initialHedgeDelay the hedge delay until enough latencies were observed
+	 * @param elementTimeout how long {@link #findAll()} waits for the next element before
+	 * resuming on another replica
+	 * @param timer the scheduler measuring latencies, hedge delays and element timeouts, for
+	 * instance a {@link io.pivotal.literx.scheduler.VirtualTimeScheduler} in tests
+	 */
+	public ReplicatedReactiveRepository(List<? extends ReactiveRepository<T>> replicas, double hedgePercentile,
+			Duration initialHedgeDelay, Duration elementTimeout, TimedScheduler timer) {
+		if (replicas.size() < 2) {
+			throw new IllegalArgumentException("At least 2 replicas are required, got " + replicas.size());
+		}
+		if (hedgePercentile <= 0 || hedgePercentile > 1) {
+			throw new IllegalArgumentException("hedgePercentile must be in (0, 1], was " + hedgePercentile);
+		}
+		this.replicas = new ArrayList<>(replicas.size());
+		for (ReactiveRepository<T> replica : replicas) {
+			this.replicas.add(new Replica<>(replica));
+		}
+		this.hedgePercentile = hedgePercentile;
+		this.hedgeDelayInMs = initialHedgeDelay.toMillis();
+		this.elementTimeoutInMs = elementTimeout.toMillis();
+		this.timer = timer;
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return Mono.defer(() -> {
+			Flux<T> shared = Flux.from(publisher).publish().autoConnect(replicas.size());
+			List<Mono<Void>> saves = new ArrayList<>(replicas.size());
+			for (Replica<T> replica : replicas) {
+				saves.add(replica.repository.save(shared));
+			}
+			return Mono.when(saves);
+		});
+	}
+
+	@Override
+	public Mono<T> findFirst() {
+		return hedged(ReactiveRepository::findFirst);
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return Flux.defer(() -> {
+			Replica<T> replica = rankByElementLatency().get(0);
+			return timedElements(replica.repository.findAll(), new Demand(replica));
+		});
+	}
+
+	@Override
+	public Flux<T> findAll(Comparator<? super T> order) {
+		return Flux.defer(() -> scan(order, rankByElementLatency(), 0, new AtomicReference<>()));
+	}
+
+	@Override
+	public Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		return Flux.defer(() -> scan(order, rankByElementLatency(), 0, new AtomicReference<>(last)));
+	}
+
+	@Override
+	public Mono<T> findById(String id) {
+		return hedged(repository -> repository.findById(id));
+	}
+
+	/**
+	 * @return the number of hedged lookups
+	 */
+	public long getLookupCount() {
+		return lookups.sum();
+	}
+
+	/**
+	 * @return the number of lookups sent to a second replica
+	 */
+	public long getHedgeCount() {
+		return hedges.sum();
+	}
+
+	/**
+	 * @return the number of lookups answered by the second replica
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWins.sum();
+	}
+
+	/**
+	 * @return the number of {@link #findAll(Comparator)} scans resumed on another replica
+	 */
+	public long getFailoverCount() {
+		return failovers.sum();
+	}
+
+	/**
+	 * @return the median of the recent latencies of each replica, in milliseconds
+	 */
+	public long[] getMedianLatenciesInMs() {
+		return replicas.stream().mapToLong(replica -> replica.percentile(0.5)).toArray();
+	}
+
+	/**
+	 * @return the moving average of the time each replica takes to serve a requested
+	 * element of a scan, in milliseconds, {@link Double#NaN} for replicas not
+	 * scanned yet
+	 */
+	public double[] getElementLatenciesInMs() {
+		return replicas.stream().mapToDouble(Replica::elementLatency).toArray();
+	}
+
+
+	private Mono<T> hedged(Function<ReactiveRepository<T>, Mono<T>> lookup) {
+		return Mono.defer(() -> {
+			lookups.increment();
+			List<Replica<T>> ranked = rank();
+			Replica<T> primary = ranked.get(0);
+			Replica<T> secondary = ranked.get(1);
+			Mono<T> hedge = Mono.delayMillis(hedgeDelayInMs(primary), timer)
+					.then(tick -> {
+						hedges.increment();
+						return timed(secondary, lookup).doOnSuccess(value -> hedgeWins.increment());
+					});
+			return Mono.first(timed(primary, lookup), hedge);
+		});
+	}
+
+	/**
+	 * Record the latency of the lookup, or for how long it had been running when cancelled,
+	 * which makes a replica that keeps losing look slower.
+	 */
+	private Mono<T> timed(Replica<T> replica, Function<ReactiveRepository<T>, Mono<T>> lookup) {
+		return Mono.defer(() -> {
+			long start = timer.now(TimeUnit.MILLISECONDS);
+			return lookup.apply(replica.repository)
+					.doOnSuccess(value -> replica.record(timer.now(TimeUnit.MILLISECONDS) - start))
+					.doOnCancel(() -> replica.record(timer.now(TimeUnit.MILLISECONDS) - start));
+		});
+	}
+
+	private long hedgeDelayInMs(Replica<T> primary) {
+		if (Double.isNaN(hedgePercentile) || primary.sampleCount() < MIN_SAMPLES) {
+			return hedgeDelayInMs;
+		}
+		return primary.percentile(hedgePercentile);
+	}
+
+	/**
+	 * Scan the candidate at {@code attempt}, after the last value emitted by previous
+	 * attempts if any.
+	 */
+	private Flux<T> scan(Comparator<? super T> order, List<Replica<T>> candidates, int attempt, AtomicReference<T> last) {
+		Replica<T> replica = candidates.get(attempt);
+		T after = last.get();
+		Demand demand = new Demand(replica);
+		Flux<T> values = timedElements(
+				after == null ? replica.repository.findAll(order) : replica.repository.findAllAfter(order, after), demand);
+		if (attempt == candidates.size() - 1) {
+			return values.doOnNext(last::set);
+		}
+		// only values that made it through the timeout count as emitted
+		return values.timeout(demand.elementTimeout(), value -> demand.elementTimeout())
+				.doOnNext(last::set)
+				.onErrorResumeWith(TimeoutException.class, e -> {
+					replica.recordElementLatency(elementTimeoutInMs);
+					failovers.increment();
+					return scan(order, candidates, attempt + 1, last);
+				});
+	}
+
+	private Flux<T> timedElements(Flux<T> values, Demand demand) {
+		return values.doOnNext(value -> demand.deliver()).doOnRequest(demand::request);
+	}
+
+	/**
+	 * Replicas by increasing element latency, replicas not scanned yet coming first so that
+	 * they get measured.
+	 */
+	private List<Replica<T>> rankByElementLatency() {
+		List<Replica<T>> ranked = new ArrayList<>(replicas);
+		ranked.sort(Comparator.comparingDouble(replica -> Double.isNaN(replica.elementLatency()) ? -1 : replica.elementLatency()));
+		return ranked;
+	}
+
+	/**
+	 * Replicas by increasing median latency, replicas without latencies yet coming first so
+	 * that they get measured.
+	 */
+	private List<Replica<T>> rank() {
+		List<Replica<T>> ranked = new ArrayList<>(replicas);
+		ranked.sort(Comparator.comparingLong(replica -> replica.sampleCount() == 0 ? -1 : replica.percentile(0.5)));
+		return ranked;
+	}
+
+
+	/**
+	 * The demand of a scan attempt that the replica did not serve yet, so that only the time
+	 * spent waiting for requested elements is timed, and not the time a slow subscriber
+	 * takes to request more.
+	 */
+	private final class Demand {
+
+		private final Replica<T> replica;
+
+		// guarded by this
+		private long outstanding;
+
+		// when the wait for the next element started, if outstanding > 0
+		private long waitingSince;
+
+		// completed with the time demand becomes outstanding, if awaited
+		private MonoProcessor<Long> requested;
+
+		Demand(Replica<T> replica) {
+			this.replica = replica;
+		}
+
+		void request(long n) {
+			long now = timer.now(TimeUnit.MILLISECONDS);
+			MonoProcessor<Long> awaiting = null;
+			synchronized (this) {
+				if (outstanding == 0) {
+					waitingSince = now;
+					awaiting = requested;
+					requested = null;
+				}
+				outstanding = outstanding + n < 0 ? Long.MAX_VALUE : outstanding + n;
+			}
+			if (awaiting != null) {
+				awaiting.onNext(now);
+			}
+		}
+
+		void deliver() {
+			long now = timer.now(TimeUnit.MILLISECONDS);
+			long waited;
+			synchronized (this) {
+				waited = now - waitingSince;
+				waitingSince = now;
+				if (outstanding != Long.MAX_VALUE) {
+					outstanding--;
+				}
+			}
+			replica.recordElementLatency(waited);
+		}
+
+		/**
+		 * @return a Mono completing once the next element has been requested and waited for
+		 * the element timeout
+		 */
+		Mono<Long> elementTimeout() {
+			return Mono.defer(() -> {
+				Mono<Long> waitingSince;
+				synchronized (this) {
+					if (outstanding > 0) {
+						waitingSince = Mono.just(this.waitingSince);
+					}
+					else {
+						if (requested == null) {
+							requested = MonoProcessor.create();
+						}
+						waitingSince = requested;
+					}
+				}
+				return waitingSince.then(start -> Mono.delayMillis(
+						Math.max(0, start + elementTimeoutInMs - timer.now(TimeUnit.MILLISECONDS)), timer));
+			});
+		}
+	}
+
+	/**
+	 * A replica, a ring buffer of its most recent lookup latencies, sorted lazily when a
+	 * percentile is read after new latencies were recorded, and an exponentially weighted
+	 * moving average of the time it takes to serve a requested element of its scans.
+	 */
+	private static final class Replica<T> {
+
+		private static final int WINDOW = 128;
+
+		private static final double EWMA_WEIGHT = 0.2;
+
+		final ReactiveRepository<T> repository;
+
+		// guarded by this
+		private final long[] latencies = new long[WINDOW];
+
+		private final long[] sorted = new long[WINDOW];
+
+		private int count;
+
+		private int next;
+
+		private boolean dirty;
+
+		private double elementLatency = Double.NaN;
+
+		Replica(ReactiveRepository<T> repository) {
+			this.repository = repository;
+		}
+
+		synchronized void record(long latencyInMs) {
+			latencies[next] = latencyInMs;
+			next = (next + 1) % WINDOW;
+			count = Math.min(count + 1, WINDOW);
+			dirty = true;
+		}
+
+		synchronized int sampleCount() {
+			return count;
+		}
+
+		synchronized long percentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			if (dirty) {
+				System.arraycopy(latencies, 0, sorted, 0, count);
+				Arrays.sort(sorted, 0, count);
+				dirty = false;
+			}
+			return sorted[(int) Math.max(0, Math.min(count - 1, Math.ceil(percentile * count) - 1))];
+		}
+
+		synchronized void recordElementLatency(long latencyInMs) {
+			elementLatency = Double.isNaN(elementLatency) ? latencyInMs
+					: EWMA_WEIGHT * latencyInMs + (1 - EWMA_WEIGHT) * elementLatency;
+		}
+
+		synchronized double elementLatency() {
+			return elementLatency;
+		}
+	}
+
+}
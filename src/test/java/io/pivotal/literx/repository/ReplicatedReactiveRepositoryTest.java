@@ -0,0 +1,168 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+public class ReplicatedReactiveRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	private final VirtualTimeScheduler timer = new VirtualTimeScheduler();
+
+	@Test
+	public void noHedgeWhenPrimaryAnswersInTime() {
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(replica(LatencyModel.fixed(10)), replica(LatencyModel.fixed(10))), Duration.ofMillis(20), timer);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(User.WALTER, find(repository, "wwhite", 10));
+		}
+		assertEquals(0, repository.getHedgeCount());
+	}
+
+	@Test
+	public void hedgeSlowPrimaryAndSwitchToFasterReplica() {
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(replica(LatencyModel.fixed(100)), replica(LatencyModel.fixed(10))), Duration.ofMillis(20), timer);
+		// the slow replica comes first, the hedge sent after 20 ms answers after 30 ms
+		MonoProcessor<User> user = repository.findById("wwhite").subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(29));
+		assertNull(user.peek());
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		assertEquals(User.WALTER, user.peek());
+		assertEquals(1, repository.getHedgeWinCount());
+		// the cancelled lookup counts as 30 ms, the faster replica is now the primary
+		assertEquals(User.WALTER, find(repository, "wwhite", 10));
+		assertEquals(1, repository.getHedgeCount());
+	}
+
+	@Test
+	public void hedgeAfterObservedPercentile() {
+		AtomicInteger calls = new AtomicInteger();
+		ReactiveRepository<User> first = replica(() -> calls.incrementAndGet() == 21 ? 100 : 10);
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(first, replica(LatencyModel.fixed(50))), 0.95, Duration.ofSeconds(1), timer);
+		// measure each replica once, then the first one is the primary for 19 more lookups
+		find(repository, "wwhite", 10);
+		find(repository, "wwhite", 50);
+		for (int i = 0; i < 19; i++) {
+			find(repository, "wwhite", 10);
+		}
+		assertEquals(0, repository.getHedgeCount());
+		// the p95 of the primary is now 10 ms, a 100 ms lookup gets hedged after 10 ms
+		assertEquals(User.WALTER, find(repository, "wwhite", 60));
+		assertEquals(1, repository.getHedgeWinCount());
+	}
+
+	@Test
+	public void resumeStalledScanOnAnotherReplica() {
+		AtomicInteger calls = new AtomicInteger();
+		ReactiveRepository<User> stalling = replica(() -> calls.incrementAndGet() <= 2 ? 10 : 1000);
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(stalling, replica(LatencyModel.fixed(10))), Double.NaN, Duration.ofMillis(20),
+				Duration.ofMillis(50), timer);
+		// 2 users from the first replica, a 50 ms stall, then the rest from the second one
+		List<User> users = new ArrayList<>();
+		repository.findAll(ReactiveUserRepository.BY_USERNAME).subscribe(users::add);
+		timer.advanceTimeBy(Duration.ofMillis(89));
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER), users);
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER, User.WALTER), users);
+		assertEquals(1, repository.getFailoverCount());
+	}
+
+	@Test
+	public void scanReplicaWithLowestElementLatency() {
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(replica(LatencyModel.fixed(30)), replica(LatencyModel.fixed(10))), Double.NaN,
+				Duration.ofMillis(20), Duration.ofMillis(20), timer);
+		// the first replica is measured and times out, the second one finishes the scan
+		List<User> users = new ArrayList<>();
+		repository.findAll(ReactiveUserRepository.BY_USERNAME).subscribe(users::add);
+		timer.advanceTimeBy(Duration.ofMillis(60));
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER, User.WALTER), users);
+		assertEquals(1, repository.getFailoverCount());
+		assertEquals(20, repository.getElementLatenciesInMs()[0], 0);
+		assertEquals(10, repository.getElementLatenciesInMs()[1], 0);
+		// later scans go to the second replica right away
+		users.clear();
+		repository.findAll(ReactiveUserRepository.BY_USERNAME).subscribe(users::add);
+		timer.advanceTimeBy(Duration.ofMillis(40));
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER, User.WALTER), users);
+		assertEquals(1, repository.getFailoverCount());
+	}
+
+	@Test
+	public void slowSubscriberDoesNotFailOver() {
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(replica(LatencyModel.fixed(10)), replica(LatencyModel.fixed(10))), Double.NaN,
+				Duration.ofMillis(20), Duration.ofMillis(50), timer);
+		// one user requested every 200 ms, far longer than the element timeout
+		List<User> users = new ArrayList<>();
+		AtomicReference<Subscription> subscription = new AtomicReference<>();
+		repository.findAll(ReactiveUserRepository.BY_USERNAME).subscribe(new Subscriber<User>() {
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				subscription.set(s);
+			}
+
+			@Override
+			public void onNext(User user) {
+				users.add(user);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		});
+		for (int i = 0; i < 4; i++) {
+			subscription.get().request(1);
+			timer.advanceTimeBy(Duration.ofMillis(200));
+		}
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER, User.WALTER), users);
+		assertEquals(0, repository.getFailoverCount());
+	}
+
+	@Test
+	public void saveToEveryReplica() {
+		ReactiveRepository<User> first = replica(LatencyModel.none());
+		ReactiveRepository<User> second = replica(LatencyModel.none());
+		ReplicatedReactiveRepository<User> repository = new ReplicatedReactiveRepository<>(
+				Arrays.asList(first, second), Duration.ofMillis(20), timer);
+		repository.save(Mono.just(MARIE)).block();
+		assertEquals(MARIE, first.findById("mschrader").block());
+		assertEquals(MARIE, second.findById("mschrader").block());
+	}
+
+
+	private ReactiveRepository<User> replica(LatencyModel latency) {
+		return new ReactiveUserRepository(latency, timer, User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+	}
+
+	private User find(ReplicatedReactiveRepository<User> repository, String username, long latencyInMs) {
+		MonoProcessor<User> user = repository.findById(username).subscribe();
+		timer.advanceTimeBy(Duration.ofMillis(latencyInMs - 1));
+		assertNull(user.peek());
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		return user.peek();
+	}
+
+}
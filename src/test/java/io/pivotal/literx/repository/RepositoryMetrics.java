@@ -0,0 +1,204 @@
+package io.pivotal.literx.repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the operations of a repository, recorded by
+ * {@link InstrumentedReactiveRepository} and {@link InstrumentedBlockingRepository}.
+ *
+ * For each operation, the number of calls, errors and cancellations, the demand requested
+ * and the elements delivered, and the latency from the call (or subscription, for
+ * reactive operations) to the first element and to completion.
+ */
+public class RepositoryMetrics {
+
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+
+	/**
+	 * @return the metrics of the operation with the given name, created on first use
+	 */
+	public Operation operation(String name) {
+		Operation operation = operations.get(name);
+		if (operation == null) {
+			operation = operations.computeIfAbsent(name, Operation::new);
+		}
+		return operation;
+	}
+
+	/**
+	 * @return a snapshot of the metrics of each operation called at least once, by
+	 * operation name
+	 */
+	public Map<String, Snapshot> snapshot() {
+		Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+		operations.values().stream()
+				.filter(operation -> operation.calls.sum() > 0)
+				.sorted((o1, o2) -> o1.name.compareTo(o2.name))
+				.forEach(operation -> snapshots.put(operation.name, operation.snapshot()));
+		return Collections.unmodifiableMap(snapshots);
+	}
+
+
+	/**
+	 * Metrics of a single operation.
+	 */
+	public static final class Operation {
+
+		private final String name;
+
+		private final LongAdder calls = new LongAdder();
+
+		private final LongAdder errors = new LongAdder();
+
+		private final LongAdder cancellations = new LongAdder();
+
+		private final LongAdder requested = new LongAdder();
+
+		private final LongAdder unboundedRequests = new LongAdder();
+
+		private final LongAdder delivered = new LongAdder();
+
+		private final LatencyHistogram firstElementLatencies = new LatencyHistogram();
+
+		private final LatencyHistogram completionLatencies = new LatencyHistogram();
+
+
+		Operation(String name) {
+			this.name = name;
+		}
+
+
+		void call() {
+			calls.increment();
+		}
+
+		void error() {
+			errors.increment();
+		}
+
+		void cancel() {
+			cancellations.increment();
+		}
+
+		void request(long n) {
+			if (n == Long.MAX_VALUE) {
+				unboundedRequests.increment();
+			}
+			else {
+				requested.add(n);
+			}
+		}
+
+		void deliver(long count) {
+			delivered.add(count);
+		}
+
+		void firstElement(long nanos) {
+			firstElementLatencies.record(nanos);
+		}
+
+		void complete(long nanos) {
+			completionLatencies.record(nanos);
+		}
+
+		Snapshot snapshot() {
+			return new Snapshot(calls.sum(), errors.sum(), cancellations.sum(), requested.sum(), unboundedRequests.sum(),
+					delivered.sum(), firstElementLatencies.snapshot(), completionLatencies.snapshot());
+		}
+	}
+
+
+	/**
+	 * Metrics of an operation at a point in time.
+	 */
+	public static final class Snapshot {
+
+		private final long callCount;
+
+		private final long errorCount;
+
+		private final long cancellationCount;
+
+		private final long requestedCount;
+
+		private final long unboundedRequestCount;
+
+		private final long deliveredCount;
+
+		private final LatencyHistogram.Snapshot firstElementLatencies;
+
+		private final LatencyHistogram.Snapshot completionLatencies;
+
+
+		Snapshot(long callCount, long errorCount, long cancellationCount, long requestedCount, long unboundedRequestCount,
+				long deliveredCount, LatencyHistogram.Snapshot firstElementLatencies,
+				LatencyHistogram.Snapshot completionLatencies) {
+			this.callCount = callCount;
+			this.errorCount = errorCount;
+			this.cancellationCount = cancellationCount;
+			this.requestedCount = requestedCount;
+			this.unboundedRequestCount = unboundedRequestCount;
+			this.deliveredCount = deliveredCount;
+			this.firstElementLatencies = firstElementLatencies;
+			this.completionLatencies = completionLatencies;
+		}
+
+
+		public long getCallCount() {
+			return callCount;
+		}
+
+		public long getErrorCount() {
+			return errorCount;
+		}
+
+		public long getCancellationCount() {
+			return cancellationCount;
+		}
+
+		/**
+		 * @return the sum of the bounded requests, unbounded ones being counted by
+		 * {@link #getUnboundedRequestCount()}
+		 */
+		public long getRequestedCount() {
+			return requestedCount;
+		}
+
+		public long getUnboundedRequestCount() {
+			return unboundedRequestCount;
+		}
+
+		public long getDeliveredCount() {
+			return deliveredCount;
+		}
+
+		/**
+		 * @return the latencies to the first element, for calls that produced one
+		 */
+		public LatencyHistogram.Snapshot getFirstElementLatencies() {
+			return firstElementLatencies;
+		}
+
+		/**
+		 * @return the latencies to completion, for calls that completed without error
+		 */
+		public LatencyHistogram.Snapshot getCompletionLatencies() {
+			return completionLatencies;
+		}
+
+		@Override
+		public String toString() {
+			return "calls=" + callCount + ", errors=" + errorCount + ", cancellations=" + cancellationCount
+					+ ", requested=" + requestedCount + (unboundedRequestCount > 0 ? "+" + unboundedRequestCount + "x unbounded" : "")
+					+ ", delivered=" + deliveredCount + ", first element [" + firstElementLatencies + "], completion ["
+					+ completionLatencies + "]";
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import io.pivotal.literx.operator.MergeOrdered;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveRepository} partitioning values across shards by consistent hashing of
+ * their id. {@link #save} and {@link #findById(String)} go to the shard owning the id,
+ * {@link #findAll()} scatters to every shard and merges their values as they arrive,
+ * scanning at most {@code maxConcurrency} shards at a time, and
+ * {@link #findAll(Comparator)} and {@link #findAllAfter} merge the sorted scans of the
+ * shards.
+ *
+ * Each shard owns {@code virtualNodes} points on a hash ring and an id belongs to the
+ * shard owning the first point at or after its hash, so that adding a shard only moves
+ * about {@code 1 / shardCount} of the ids.
+ */
+public class ShardedReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private static final int DEFAULT_VIRTUAL_NODES = 64;
+
+	private final List<ReactiveRepository<T>> shards;
+
+	private final Function<? super T, String> idFunction;
+
+	private final int maxConcurrency;
+
+	private final TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+
+	/**
+	 * Scan every shard concurrently.
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 */
+	public ShardedReactiveRepository(List<? extends ReactiveRepository<T>> shards, Function<? super T, String> idFunction) {
+		this(shards, idFunction, shards.size(), DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * @param idFunction the id of a value, as passed to {@link #findById(String)}
+	 * @param maxConcurrency the maximum number of shards scanned at the same time by {@link #findAll()}
+	 * @param virtualNodes the number of points each shard owns on the hash ring, more
+	 * points spreading the ids more evenly
+	 */
+	public ShardedReactiveRepository(List<? extends ReactiveRepository<T>> shards, Function<? super T, String> idFunction,
+			int maxConcurrency, int virtualNodes) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("At least 1 shard is required");
+		}
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be positive, was " + maxConcurrency);
+		}
+		if (virtualNodes <= 0) {
+			throw new IllegalArgumentException("virtualNodes must be positive, was " + virtualNodes);
+		}
+		this.shards = new ArrayList<>(shards);
+		this.idFunction = idFunction;
+		this.maxConcurrency = maxConcurrency;
+		for (int shard = 0; shard < shards.size(); shard++) {
+			for (int node = 0; node < virtualNodes; node++) {
+				ring.putIfAbsent(hash("shard-" + shard + "#" + node), shard);
+			}
+		}
+	}
+
+
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return Flux.from(publisher)
+				.groupBy(this::shardOf)
+				.flatMap(group -> shards.get(group.key()).save(group), shards.size())
+				.then();
+	}
+
+	/**
+	 * The values are routed to their shard before being batched, so that each batch goes
+	 * to a single shard.
+	 */
+	@Override
+	public Flux<Integer> saveAll(Publisher<T> publisher, int batchSize, Duration maxLatency) {
+		return Flux.from(publisher)
+				.groupBy(this::shardOf)
+				.flatMap(group -> shards.get(group.key()).saveAll(group, batchSize, maxLatency), shards.size());
+	}
+
+	/**
+	 * The first value of the first non-empty shard.
+	 */
+	@Override
+	public Mono<T> findFirst() {
+		return Flux.fromIterable(shards).concatMap(ReactiveRepository::findFirst).next();
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return Flux.fromIterable(shards).flatMap(ReactiveRepository::findAll, maxConcurrency);
+	}
+
+	/**
+	 * Scan every shard in the given order and merge their values as the downstream requests
+	 * them, buffering a bounded number of values per shard rather than the whole result.
+	 * Only shards that scan in that order without sorting, like a
+	 * {@link ReactiveUserRepository} in {@link ReactiveUserRepository#BY_USERNAME} order,
+	 * stream their values; the others still collect and sort their own before the merge.
+	 * All shards are scanned at the same time, whatever {@code maxConcurrency}, since the
+	 * next value can come from any of them.
+	 */
+	@Override
+	public Flux<T> findAll(Comparator<? super T> order) {
+		List<Flux<T>> scans = new ArrayList<>(shards.size());
+		for (ReactiveRepository<T> shard : shards) {
+			scans.add(shard.findAll(order));
+		}
+		return MergeOrdered.merge(order, scans);
+	}
+
+	/**
+	 * Resume every shard after the given value and merge them like
+	 * {@link #findAll(Comparator)}: the values ordered after it may live on any shard, not
+	 * only on the one owning it.
+	 */
+	@Override
+	public Flux<T> findAllAfter(Comparator<? super T> order, T last) {
+		List<Flux<T>> scans = new ArrayList<>(shards.size());
+		for (ReactiveRepository<T> shard : shards) {
+			scans.add(shard.findAllAfter(order, last));
+		}
+		return MergeOrdered.merge(order, scans);
+	}
+
+	@Override
+	public Mono<T> findById(String id) {
+		return shards.get(shardOf(id)).findById(id);
+	}
+
+	/**
+	 * @return the index of the shard owning the given id
+	 */
+	public int shardOf(String id) {
+		Map.Entry<Integer, Integer> owner = ring.ceilingEntry(hash(id));
+		return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+	}
+
+
+	private int shardOf(T value) {
+		return shardOf(idFunction.apply(value));
+	}
+
+	/**
+	 * {@link String#hashCode()} with the murmur3 finalizer, so that similar strings like
+	 * {@code user1} and {@code user2} land far apart on the ring.
+	 */
+	private static int hash(String key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
@@ -0,0 +1,158 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class ShardedReactiveRepositoryTest {
+
+	private static final User MARIE = new User("mschrader", "Marie", "Schrader");
+
+	@Test
+	public void saveAndFindByIdOnOwningShard() {
+		List<ReactiveRepository<User>> shards = emptyShards(3);
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(shards, User::getUsername);
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE)).block();
+		for (User user : Arrays.asList(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE)) {
+			assertEquals(user, repository.findById(user.getUsername()).block());
+			int owner = repository.shardOf(user.getUsername());
+			for (int shard = 0; shard < shards.size(); shard++) {
+				ScriptedSubscriber.create()
+						.expectNextCount(shard == owner ? 1 : 0)
+						.expectComplete()
+						.verify(shards.get(shard).findAllById(Flux.just(user.getUsername())));
+			}
+		}
+	}
+
+	@Test
+	public void findFirstSkipsEmptyShards() {
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(emptyShards(2), User::getUsername);
+		int i = 0;
+		while (repository.shardOf("user" + i) != 1) {
+			i++;
+		}
+		User user = new User("user" + i, "First", "Last");
+		repository.save(Flux.just(user)).block();
+		ScriptedSubscriber.create()
+				.expectNext(user)
+				.expectComplete()
+				.verify(repository.findFirst());
+	}
+
+	@Test
+	public void findAllInOrder() {
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(emptyShards(3), User::getUsername);
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.JESSE, MARIE, User.SAUL, User.SKYLER, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAll(Comparator.comparing(User::getUsername)));
+	}
+
+	@Test
+	public void findAllInIndexedOrder() {
+		User walterJunior = new User("wwhite", "Walter", "Junior");
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(emptyShards(3), User::getUsername);
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE, walterJunior)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.JESSE, MARIE, User.SAUL, User.SKYLER, walterJunior, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAll(ReactiveUserRepository.BY_USERNAME));
+	}
+
+	@Test
+	public void findAllInIndexedOrderThroughDecoratedShards() {
+		VirtualTimeScheduler timer = new VirtualTimeScheduler();
+		RepositoryMetrics metrics = new RepositoryMetrics();
+		List<ReactiveRepository<User>> shards = new ArrayList<>();
+		for (User[] users : new User[][] { { User.SKYLER, User.JESSE }, { User.WALTER, User.SAUL } }) {
+			ReactiveRepository<User> shard = new ReactiveUserRepository(LatencyModel.fixed(10), timer, users);
+			shard = new BatchingReactiveRepository<>(shard, User::getUsername, 16, Duration.ofMillis(1), timer);
+			shard = new CachingReactiveRepository<>(shard, User::getUsername, 16, Duration.ofMinutes(1), timer);
+			shards.add(new InstrumentedReactiveRepository<>(shard, metrics));
+		}
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(shards, User::getUsername);
+		List<User> users = new ArrayList<>();
+		repository.findAll(ReactiveUserRepository.BY_USERNAME).subscribe(users::add);
+		// the first user of each shard arrives after 10 ms, sorted shards would emit none yet
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(Arrays.asList(User.JESSE), users);
+		timer.advanceTimeBy(Duration.ofMillis(10));
+		assertEquals(Arrays.asList(User.JESSE, User.SAUL, User.SKYLER, User.WALTER), users);
+		assertEquals(2, metrics.snapshot().get("findAllOrdered").getCallCount());
+	}
+
+	@Test
+	public void findAllAfterResumesEveryShard() {
+		User walterJunior = new User("wwhite", "Walter", "Junior");
+		ShardedReactiveRepository<User> repository = new ShardedReactiveRepository<>(emptyShards(3), User::getUsername);
+		repository.save(Flux.just(User.SKYLER, User.JESSE, User.WALTER, User.SAUL, MARIE, walterJunior)).block();
+		ScriptedSubscriber.create()
+				.expectNext(User.SAUL, User.SKYLER, walterJunior, User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, MARIE));
+		ScriptedSubscriber.create()
+				.expectNext(User.WALTER)
+				.expectComplete()
+				.verify(repository.findAllAfter(ReactiveUserRepository.BY_USERNAME, walterJunior));
+	}
+
+	@Test
+	public void findAllScansAtMostMaxConcurrencyShards() {
+		VirtualTimeScheduler timer = new VirtualTimeScheduler();
+		List<ReactiveRepository<User>> shards = Arrays.asList(
+				new ReactiveUserRepository(LatencyModel.fixed(10), timer, User.SKYLER, User.JESSE),
+				new ReactiveUserRepository(LatencyModel.fixed(10), timer, User.WALTER, User.SAUL));
+		// 2 users per shard, 10 ms each
+		assertEquals(20, scanTimeInMs(new ShardedReactiveRepository<>(shards, User::getUsername, 2, 16), timer));
+		assertEquals(40, scanTimeInMs(new ShardedReactiveRepository<>(shards, User::getUsername, 1, 16), timer));
+	}
+
+	@Test
+	public void addingShardMovesFewIds() {
+		ShardedReactiveRepository<User> four = new ShardedReactiveRepository<>(emptyShards(4), User::getUsername);
+		ShardedReactiveRepository<User> five = new ShardedReactiveRepository<>(emptyShards(5), User::getUsername);
+		int moved = 0;
+		for (int i = 0; i < 10_000; i++) {
+			String id = "user" + i;
+			if (four.shardOf(id) != five.shardOf(id)) {
+				assertEquals(4, five.shardOf(id));
+				moved++;
+			}
+		}
+		// a fifth of the ids is expected to move to the new shard
+		assertTrue("moved " + moved, moved > 1000 && moved < 3000);
+	}
+
+
+	private static List<ReactiveRepository<User>> emptyShards(int count) {
+		List<ReactiveRepository<User>> shards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			shards.add(new ReactiveUserRepository(LatencyModel.none(), new User[0]));
+		}
+		return shards;
+	}
+
+	private static long scanTimeInMs(ShardedReactiveRepository<User> repository, VirtualTimeScheduler timer) {
+		List<User> users = new ArrayList<>();
+		repository.findAll().subscribe(users::add);
+		long elapsed = 0;
+		while (users.size() < 4) {
+			timer.advanceTimeBy(Duration.ofMillis(1));
+			elapsed++;
+		}
+		return elapsed;
+	}
+
+}
@@ -0,0 +1,1171 @@
+package io.pivotal.literx.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import io.pivotal.literx.domain.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Durable, append-only log of users in a directory, made of segment files written through
+ * a {@link FileChannel}. A record is the length and CRC32 of its payload, followed by the
+ * UTF-8 lengths of the username, first name and last name on 2 bytes each and their bytes.
+ * A segment is sealed and forced to disk once it would grow past the maximum segment size.
+ *
+ * {@link #write(User)} appends to the operating system cache, and {@link #commit()} makes
+ * the writes done so far durable according to the {@link FsyncPolicy}. With
+ * {@link FsyncPolicy#GROUP}, a single thread forces the log for every commit waiting,
+ * so that concurrent commits share a force instead of queuing for their own.
+ *
+ * Usernames are indexed in memory by an open addressing table of record positions, the
+ * first user written with a given username winning like in {@link ReactiveUserRepository}.
+ * Unlike there, the later users with the same username are shadowed everywhere: neither
+ * {@link #scan()} nor {@link #size()} count them, whether or not they were compacted yet.
+ * The table is snapshotted to {@code index.snapshot} every {@code snapshotInterval}
+ * records and on {@link #close()}. Opening the log loads the snapshot and only replays the
+ * records written after it, truncating a torn record at the end of the log. A snapshot
+ * that does not match the segments, for instance after a compaction it did not see, is
+ * ignored and the whole log is replayed.
+ *
+ * {@link #compact()} rewrites the sealed segments without the shadowed records, which
+ * only reclaims disk space. It runs in the background, and also starts on its own when a
+ * segment is sealed while shadowed records make up half of the sealed ones. Scans keep
+ * reading the segments they started with until they are done.
+ */
+public class UserLog implements Closeable {
+
+	/**
+	 * When {@link #commit()} forces the log to disk.
+	 */
+	public enum FsyncPolicy {
+
+		/**
+		 * Never, the operating system writes the log back when it sees fit.
+		 */
+		NONE,
+
+		/**
+		 * Each commit forces the log.
+		 */
+		EVERY_COMMIT,
+
+		/**
+		 * Commits waiting while the log is being forced share the next force.
+		 */
+		GROUP
+	}
+
+
+	public static final int DEFAULT_MAX_SEGMENT_SIZE = 64 << 20;
+
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 1_000_000;
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static final String SNAPSHOT_FILE = "index.snapshot";
+
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private static final int SNAPSHOT_MAGIC = 0x55534c47;
+
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private static final int FIELDS_HEADER_SIZE = 6;
+
+	private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+	private static final int READ_BUFFER_SIZE = 64 << 10;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final Path directory;
+
+	private final FsyncPolicy fsyncPolicy;
+
+	private final int maxSegmentSize;
+
+	private final int snapshotInterval;
+
+	private final Scheduler committer = Schedulers.newSingle("user-log-commit", true);
+
+	private final Scheduler maintenance = Schedulers.newSingle("user-log-maintenance", true);
+
+	private final LongAdder forces = new LongAdder();
+
+	private final Object snapshotLock = new Object();
+
+	// guarded by this
+	private final List<Segment> segments = new ArrayList<>();
+
+	private long[] positions = new long[INITIAL_CAPACITY];
+
+	private int[] hashes = new int[INITIAL_CAPACITY];
+
+	private int indexed;
+
+	// the records in the segments, shadowed ones included
+	private int count;
+
+	private int snapshotCount;
+
+	private boolean snapshotScheduled;
+
+	private boolean compacting;
+
+	private long written;
+
+	private long durable;
+
+	private boolean committing;
+
+	private final List<Commit> commits = new ArrayList<>();
+
+	private boolean closed;
+
+
+	private UserLog(Path directory, FsyncPolicy fsyncPolicy, int maxSegmentSize, int snapshotInterval) {
+		this.directory = directory;
+		this.fsyncPolicy = fsyncPolicy;
+		this.maxSegmentSize = maxSegmentSize;
+		this.snapshotInterval = snapshotInterval;
+	}
+
+
+	/**
+	 * @return the log in the given directory, recovered from its files if it exists
+	 */
+	public static UserLog open(Path directory, FsyncPolicy fsyncPolicy) throws IOException {
+		return open(directory, fsyncPolicy, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * @param maxSegmentSize the size past which a segment is sealed, which bounds the size of a record
+	 * @param snapshotInterval the number of records written between index snapshots
+	 */
+	public static UserLog open(Path directory, FsyncPolicy fsyncPolicy, int maxSegmentSize, int snapshotInterval) throws IOException {
+		if (maxSegmentSize <= RECORD_HEADER_SIZE + FIELDS_HEADER_SIZE) {
+			throw new IllegalArgumentException("maxSegmentSize must be larger than " + (RECORD_HEADER_SIZE + FIELDS_HEADER_SIZE)
+					+ ", was " + maxSegmentSize);
+		}
+		if (snapshotInterval <= 0) {
+			throw new IllegalArgumentException("snapshotInterval must be positive, was " + snapshotInterval);
+		}
+		UserLog log = new UserLog(directory, fsyncPolicy, maxSegmentSize, snapshotInterval);
+		try {
+			log.recover();
+		}
+		catch (IOException | RuntimeException e) {
+			log.release();
+			throw e;
+		}
+		return log;
+	}
+
+
+	/**
+	 * Append the user to the log, without waiting for it to be durable.
+	 * @throws IllegalArgumentException if the record is larger than the maximum segment size
+	 */
+	public void write(User user) {
+		ByteBuffer record = encode(user);
+		if (record.remaining() > maxSegmentSize) {
+			throw new IllegalArgumentException("Record of " + record.remaining() + " bytes larger than segments of " + maxSegmentSize);
+		}
+		int hash = hash(user.getUsername());
+		boolean snapshot = false;
+		boolean compaction = false;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Log is closed");
+			}
+			Segment active = active();
+			if (active.size + record.remaining() > maxSegmentSize) {
+				active = roll();
+				compaction = shouldCompact();
+			}
+			long position = position(active.id, active.size);
+			int length = record.remaining();
+			writeFully(active.channel, record, active.size);
+			active.size += length;
+			active.records++;
+			if (!index(user.getUsername(), hash, position)) {
+				active.dead++;
+			}
+			count++;
+			written++;
+			if (count - snapshotCount >= snapshotInterval && !snapshotScheduled) {
+				snapshotScheduled = true;
+				snapshot = true;
+			}
+		}
+		if (snapshot) {
+			maintenance.schedule(this::periodicSnapshot);
+		}
+		if (compaction) {
+			compact().subscribe();
+		}
+	}
+
+	/**
+	 * @return a {@link Mono} completing once the writes done before it was subscribed to
+	 * are durable according to the {@link FsyncPolicy}
+	 */
+	public Mono<Void> commit() {
+		switch (fsyncPolicy) {
+		case NONE:
+			return Mono.empty();
+		case EVERY_COMMIT:
+			return Mono.fromRunnable(() -> {
+				Segment active;
+				synchronized (this) {
+					active = active();
+				}
+				force(active);
+			});
+		default:
+			return Mono.defer(this::groupCommit);
+		}
+	}
+
+	/**
+	 * @return the first user written with the given username, or {@code null}
+	 */
+	public synchronized User find(String username) {
+		long position = indexOf(username, hash(username));
+		return position >= 0 ? read(position) : null;
+	}
+
+	/**
+	 * @return the first user written with each username, in the order they were written,
+	 * up to the last one written when subscribed to
+	 */
+	public Flux<User> scan() {
+		return Flux.generate(this::openScanner, (Scanner scanner, SynchronousSink<User> sink) -> {
+			User user = scanner.next();
+			if (user != null) {
+				sink.next(user);
+			}
+			else {
+				sink.complete();
+			}
+			return scanner;
+		}, Scanner::close);
+	}
+
+	/**
+	 * Rewrite the sealed segments without the records shadowed by an earlier user with the
+	 * same username, then snapshot the index, in the background.
+	 * @return the number of records removed, {@code 0} if a compaction was already running
+	 */
+	public Mono<Long> compact() {
+		return Mono.fromCallable(this::compactSealed).subscribeOn(maintenance);
+	}
+
+	/**
+	 * Write the index to the snapshot file, after forcing the log it refers to.
+	 */
+	public void snapshot() throws IOException {
+		synchronized (snapshotLock) {
+			long[] positionsCopy;
+			int[] hashesCopy;
+			int countCopy;
+			long[][] descriptors;
+			Segment active;
+			synchronized (this) {
+				positionsCopy = positions.clone();
+				hashesCopy = hashes.clone();
+				countCopy = count;
+				descriptors = new long[segments.size()][];
+				for (int i = 0; i < segments.size(); i++) {
+					Segment segment = segments.get(i);
+					descriptors[i] = new long[]{segment.generation, segment.size, segment.records, segment.dead};
+				}
+				active = active();
+				active.retain();
+			}
+			try {
+				active.channel.force(false);
+			}
+			finally {
+				active.release();
+			}
+			Path tmp = directory.resolve(SNAPSHOT_FILE + TMP_SUFFIX);
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(16 + descriptors.length * 32);
+				header.putInt(SNAPSHOT_MAGIC).putInt(countCopy).putInt(positionsCopy.length).putInt(descriptors.length);
+				for (long[] descriptor : descriptors) {
+					for (long value : descriptor) {
+						header.putLong(value);
+					}
+				}
+				header.flip();
+				long position = writeFully(channel, header, 0);
+				ByteBuffer chunk = ByteBuffer.allocate(READ_BUFFER_SIZE);
+				for (int i = 0; i < hashesCopy.length; ) {
+					chunk.clear();
+					int length = Math.min(chunk.capacity() / 4, hashesCopy.length - i);
+					chunk.asIntBuffer().put(hashesCopy, i, length);
+					chunk.limit(length * 4);
+					position = writeFully(channel, chunk, position);
+					i += length;
+				}
+				for (int i = 0; i < positionsCopy.length; ) {
+					chunk.clear();
+					int length = Math.min(chunk.capacity() / 8, positionsCopy.length - i);
+					chunk.asLongBuffer().put(positionsCopy, i, length);
+					chunk.limit(length * 8);
+					position = writeFully(channel, chunk, position);
+					i += length;
+				}
+				channel.force(true);
+			}
+			Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			synchronized (this) {
+				snapshotCount = Math.max(snapshotCount, countCopy);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of users with distinct usernames, the ones {@link #scan()} emits
+	 */
+	public synchronized int size() {
+		return indexed;
+	}
+
+	/**
+	 * @return the number of times the log was forced to disk by commits
+	 */
+	public long getForceCount() {
+		return forces.sum();
+	}
+
+	/**
+	 * Snapshot the index and close the segments. Scans still running keep their segments
+	 * open until they are done.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			snapshot();
+		}
+		finally {
+			release();
+		}
+	}
+
+
+	private void release() {
+		maintenance.shutdown();
+		committer.shutdown();
+		synchronized (this) {
+			closed = true;
+			for (Segment segment : segments) {
+				segment.release();
+			}
+			for (Commit commit : commits) {
+				commit.done.onError(new IllegalStateException("Log is closed"));
+			}
+			commits.clear();
+		}
+	}
+
+	private Mono<Void> groupCommit() {
+		MonoProcessor<Void> done = MonoProcessor.create();
+		List<Commit> rejected;
+		synchronized (this) {
+			if (closed) {
+				return Mono.error(new IllegalStateException("Log is closed"));
+			}
+			if (durable >= written) {
+				return Mono.empty();
+			}
+			commits.add(new Commit(written, done));
+			if (committing) {
+				return done;
+			}
+			committing = true;
+			if (committer.schedule(this::runGroupCommits) != Scheduler.REJECTED) {
+				return done;
+			}
+			// the committer was shut down, no force will serve the waiting commits
+			committing = false;
+			rejected = new ArrayList<>(commits);
+			commits.clear();
+		}
+		for (Commit commit : rejected) {
+			commit.done.onError(new IllegalStateException("Log is closed"));
+		}
+		return done;
+	}
+
+	/**
+	 * Force the log until no commit is waiting, each force making durable every write
+	 * done before it started.
+	 */
+	private void runGroupCommits() {
+		for (;;) {
+			long target;
+			Segment active;
+			synchronized (this) {
+				target = written;
+				active = active();
+				active.retain();
+			}
+			Throwable error = null;
+			try {
+				force(active);
+			}
+			catch (RuntimeException e) {
+				error = e;
+			}
+			finally {
+				active.release();
+			}
+			List<Commit> ready = new ArrayList<>();
+			boolean more;
+			synchronized (this) {
+				if (error == null) {
+					durable = Math.max(durable, target);
+				}
+				for (int i = 0; i < commits.size(); ) {
+					if (commits.get(i).sequence <= target) {
+						ready.add(commits.remove(i));
+					}
+					else {
+						i++;
+					}
+				}
+				more = !commits.isEmpty();
+				committing = more;
+			}
+			for (Commit commit : ready) {
+				if (error == null) {
+					commit.done.onComplete();
+				}
+				else {
+					commit.done.onError(error);
+				}
+			}
+			if (!more) {
+				return;
+			}
+		}
+	}
+
+	private void force(Segment segment) {
+		try {
+			segment.channel.force(false);
+			forces.increment();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void periodicSnapshot() {
+		synchronized (this) {
+			snapshotScheduled = false;
+		}
+		try {
+			snapshot();
+		}
+		catch (IOException e) {
+			// the next snapshot tries again, and recovery replays a longer tail meanwhile
+		}
+	}
+
+	private Segment active() {
+		return segments.get(segments.size() - 1);
+	}
+
+	/**
+	 * Seal the active segment, forcing it so that commits only have to force the new one.
+	 */
+	private Segment roll() {
+		Segment sealed = active();
+		force(sealed);
+		try {
+			Segment segment = Segment.open(directory, segments.size(), 0);
+			segments.add(segment);
+			return segment;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private boolean shouldCompact() {
+		long records = 0;
+		long dead = 0;
+		for (int i = 0; i < segments.size() - 1; i++) {
+			records += segments.get(i).records;
+			dead += segments.get(i).dead;
+		}
+		return !compacting && dead > 0 && dead * 2 >= records;
+	}
+
+	private long compactSealed() throws IOException {
+		List<Segment> candidates = new ArrayList<>();
+		synchronized (this) {
+			if (compacting || closed) {
+				return 0L;
+			}
+			compacting = true;
+			for (int i = 0; i < segments.size() - 1; i++) {
+				Segment segment = segments.get(i);
+				if (segment.dead > 0) {
+					segment.retain();
+					candidates.add(segment);
+				}
+			}
+		}
+		long removed = 0;
+		try {
+			for (Segment segment : candidates) {
+				removed += compact(segment);
+			}
+		}
+		finally {
+			for (Segment segment : candidates) {
+				segment.release();
+			}
+			synchronized (this) {
+				compacting = false;
+			}
+		}
+		if (removed > 0) {
+			snapshot();
+		}
+		return removed;
+	}
+
+	/**
+	 * Copy the live records of a sealed segment to a new generation of it, then point the
+	 * index to their new offsets. Index entries pointing to a sealed segment only change
+	 * here, so they can be looked up while copying.
+	 */
+	private long compact(Segment segment) throws IOException {
+		Path tmp = directory.resolve(Segment.fileName(segment.id, segment.generation + 1) + TMP_SUFFIX);
+		Files.deleteIfExists(tmp);
+		List<long[]> moves = new ArrayList<>();
+		long[] liveOffsets = new long[segment.records];
+		long size = 0;
+		int live = 0;
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			RecordReader reader = new RecordReader(segment.channel, 0, segment.size);
+			for (User user = reader.next(); user != null; user = reader.next()) {
+				long oldPosition = position(segment.id, reader.recordOffset);
+				int hash = hash(user.getUsername());
+				boolean isLive;
+				synchronized (this) {
+					isLive = slotOf(hash, oldPosition) >= 0;
+				}
+				if (isLive) {
+					ByteBuffer record = reader.record();
+					int length = record.remaining();
+					writeFully(out, record, size);
+					moves.add(new long[]{hash, oldPosition, position(segment.id, size)});
+					liveOffsets[live] = reader.recordOffset;
+					size += length;
+					live++;
+				}
+			}
+			out.force(true);
+		}
+		Path file = directory.resolve(Segment.fileName(segment.id, segment.generation + 1));
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+		Segment compacted = Segment.open(directory, segment.id, segment.generation + 1);
+		compacted.records = live;
+		synchronized (this) {
+			if (closed) {
+				// the next recovery picks the new generation
+				compacted.release();
+				return 0;
+			}
+			for (long[] move : moves) {
+				positions[slotOf((int) move[0], move[1])] = move[2] + 1;
+			}
+			segments.set(segment.id, compacted);
+			// the index no longer points to this generation, for the scans still reading it
+			segment.liveOffsets = Arrays.copyOf(liveOffsets, live);
+			count -= segment.records - live;
+			snapshotCount = Math.max(0, snapshotCount - (segment.records - live));
+		}
+		segment.retire();
+		return segment.records - live;
+	}
+
+	/**
+	 * Index the user at the given position, unless a user with the same username already is.
+	 * @return whether the user was indexed
+	 */
+	private boolean index(String username, int hash, long position) {
+		if (indexOf(username, hash) >= 0) {
+			return false;
+		}
+		if ((indexed + 1) * 4L > positions.length * 3L) {
+			rehash(positions.length * 2);
+		}
+		insert(hash, position);
+		indexed++;
+		return true;
+	}
+
+	private long indexOf(String username, int hash) {
+		int mask = positions.length - 1;
+		for (int slot = hash & mask; positions[slot] != 0; slot = (slot + 1) & mask) {
+			if (hashes[slot] == hash && read(positions[slot] - 1).getUsername().equals(username)) {
+				return positions[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	private int slotOf(int hash, long position) {
+		int mask = positions.length - 1;
+		for (int slot = hash & mask; positions[slot] != 0; slot = (slot + 1) & mask) {
+			if (positions[slot] == position + 1) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void insert(int hash, long position) {
+		int mask = positions.length - 1;
+		int slot = hash & mask;
+		while (positions[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		positions[slot] = position + 1;
+		hashes[slot] = hash;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldPositions = positions;
+		int[] oldHashes = hashes;
+		positions = new long[capacity];
+		hashes = new int[capacity];
+		for (int slot = 0; slot < oldPositions.length; slot++) {
+			if (oldPositions[slot] != 0) {
+				insert(oldHashes[slot], oldPositions[slot] - 1);
+			}
+		}
+	}
+
+	private User read(long position) {
+		Segment segment = segments.get((int) (position >>> 32));
+		try {
+			ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+			readFully(segment.channel, header, (int) position);
+			ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+			readFully(segment.channel, payload, (int) position + RECORD_HEADER_SIZE);
+			return decode(payload);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return whether the record at the given offset of the segment is the first one
+	 * written with its username
+	 */
+	private synchronized boolean isLive(Segment segment, long offset, String username) {
+		if (segment.liveOffsets != null) {
+			return Arrays.binarySearch(segment.liveOffsets, offset) >= 0;
+		}
+		return slotOf(hash(username), position(segment.id, offset)) >= 0;
+	}
+
+	private synchronized Scanner openScanner() {
+		List<Segment> scanned = new ArrayList<>(segments);
+		long[] sizes = new long[scanned.size()];
+		boolean[] shadowing = new boolean[scanned.size()];
+		for (int i = 0; i < scanned.size(); i++) {
+			scanned.get(i).retain();
+			sizes[i] = scanned.get(i).size;
+			shadowing[i] = scanned.get(i).dead > 0;
+		}
+		return new Scanner(scanned, sizes, shadowing);
+	}
+
+	private void recover() throws IOException {
+		Files.createDirectories(directory);
+		TreeMap<Integer, Integer> generations = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TMP_SUFFIX)) {
+					// left over by a compaction or a snapshot that did not complete
+					Files.delete(file);
+				}
+				else if (name.endsWith(SEGMENT_SUFFIX)) {
+					String[] parts = name.substring(0, name.length() - SEGMENT_SUFFIX.length()).split("-");
+					generations.merge(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Math::max);
+				}
+			}
+		}
+		for (int id = 0; id < generations.size(); id++) {
+			Integer generation = generations.get(id);
+			if (generation == null) {
+				throw new IOException("Missing segment " + id + " in " + directory);
+			}
+			// a compaction may have stopped before deleting the previous generation
+			for (int previous = 0; previous < generation; previous++) {
+				Files.deleteIfExists(directory.resolve(Segment.fileName(id, previous)));
+			}
+			segments.add(Segment.open(directory, id, generation));
+		}
+		if (segments.isEmpty()) {
+			segments.add(Segment.open(directory, 0, 0));
+		}
+		long tail = loadSnapshot();
+		for (int id = (int) (tail >>> 32); id < segments.size(); id++) {
+			Segment segment = segments.get(id);
+			long from = id == (int) (tail >>> 32) ? (int) tail : 0;
+			RecordReader reader = new RecordReader(segment.channel, from, segment.size);
+			for (User user = reader.next(); user != null; user = reader.next()) {
+				segment.records++;
+				if (!index(user.getUsername(), hash(user.getUsername()), position(id, reader.recordOffset))) {
+					segment.dead++;
+				}
+				count++;
+			}
+			if (reader.offset < segment.size) {
+				if (id < segments.size() - 1) {
+					throw new IOException("Corrupt record at offset " + reader.offset + " of " + segment.file);
+				}
+				// torn write at the end of the log
+				segment.channel.truncate(reader.offset);
+				segment.size = reader.offset;
+			}
+		}
+		snapshotCount = count;
+	}
+
+	/**
+	 * Load the index from the snapshot if it matches the segments.
+	 * @return the position the log has to be replayed from
+	 */
+	private long loadSnapshot() throws IOException {
+		Path file = directory.resolve(SNAPSHOT_FILE);
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(16);
+			readFully(channel, header, 0);
+			int segmentCount = header.getInt(12);
+			if (header.getInt(0) != SNAPSHOT_MAGIC || segmentCount == 0 || segmentCount > segments.size()) {
+				return 0;
+			}
+			ByteBuffer descriptors = ByteBuffer.allocate(segmentCount * 32);
+			readFully(channel, descriptors, 16);
+			for (int id = 0; id < segmentCount; id++) {
+				Segment segment = segments.get(id);
+				if (segment.generation != descriptors.getLong(id * 32) || segment.size < descriptors.getLong(id * 32 + 8)) {
+					return 0;
+				}
+			}
+			int capacity = header.getInt(8);
+			long[] loadedPositions = new long[capacity];
+			int[] loadedHashes = new int[capacity];
+			long position = 16 + segmentCount * 32;
+			ByteBuffer chunk = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			for (int i = 0; i < capacity; ) {
+				int length = Math.min(chunk.capacity() / 4, capacity - i);
+				chunk.clear().limit(length * 4);
+				readFully(channel, chunk, position);
+				chunk.asIntBuffer().get(loadedHashes, i, length);
+				position += length * 4;
+				i += length;
+			}
+			for (int i = 0; i < capacity; ) {
+				int length = Math.min(chunk.capacity() / 8, capacity - i);
+				chunk.clear().limit(length * 8);
+				readFully(channel, chunk, position);
+				chunk.asLongBuffer().get(loadedPositions, i, length);
+				position += length * 8;
+				i += length;
+			}
+			positions = loadedPositions;
+			hashes = loadedHashes;
+			indexed = 0;
+			for (long entry : loadedPositions) {
+				if (entry != 0) {
+					indexed++;
+				}
+			}
+			count = header.getInt(4);
+			for (int id = 0; id < segmentCount; id++) {
+				segments.get(id).records = (int) descriptors.getLong(id * 32 + 16);
+				segments.get(id).dead = (int) descriptors.getLong(id * 32 + 24);
+			}
+			return position(segmentCount - 1, descriptors.getLong((segmentCount - 1) * 32 + 8));
+		}
+		catch (IOException e) {
+			// a truncated snapshot, replay the whole log instead
+			positions = new long[INITIAL_CAPACITY];
+			hashes = new int[INITIAL_CAPACITY];
+			indexed = 0;
+			count = 0;
+			return 0;
+		}
+	}
+
+	private static long position(int segment, long offset) {
+		return (long) segment << 32 | offset;
+	}
+
+	private static ByteBuffer encode(User user) {
+		byte[] username = encode(user.getUsername());
+		byte[] firstname = encode(user.getFirstname());
+		byte[] lastname = encode(user.getLastname());
+		int payload = FIELDS_HEADER_SIZE + username.length + firstname.length + lastname.length;
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload);
+		record.putInt(payload).putInt(0)
+				.putShort((short) username.length).putShort((short) firstname.length).putShort((short) lastname.length)
+				.put(username).put(firstname).put(lastname);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), RECORD_HEADER_SIZE, payload);
+		record.putInt(4, (int) crc.getValue());
+		record.flip();
+		return record;
+	}
+
+	private static byte[] encode(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_FIELD_LENGTH) {
+			throw new IllegalArgumentException("Value too long: " + value);
+		}
+		return bytes;
+	}
+
+	private static User decode(ByteBuffer payload) {
+		int usernameLength = payload.getShort(0) & 0xFFFF;
+		int firstnameLength = payload.getShort(2) & 0xFFFF;
+		int lastnameLength = payload.getShort(4) & 0xFFFF;
+		int offset = payload.arrayOffset() + payload.position() + FIELDS_HEADER_SIZE;
+		byte[] bytes = payload.array();
+		return new User(new String(bytes, offset, usernameLength, StandardCharsets.UTF_8),
+				new String(bytes, offset + usernameLength, firstnameLength, StandardCharsets.UTF_8),
+				new String(bytes, offset + usernameLength + firstnameLength, lastnameLength, StandardCharsets.UTF_8));
+	}
+
+	private static int hash(String username) {
+		int h = username.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) {
+		try {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			return position;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file at " + position);
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+
+	/**
+	 * A segment file, kept open until the log is closed or a compaction replaced it, and
+	 * until the scans reading it are done.
+	 */
+	private static final class Segment {
+
+		final int id;
+
+		final int generation;
+
+		final Path file;
+
+		final FileChannel channel;
+
+		// guarded by the log
+		long size;
+
+		int records;
+
+		int dead;
+
+		// the offsets of the records copied by the compaction that replaced this segment
+		long[] liveOffsets;
+
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		private volatile boolean retired;
+
+		private Segment(int id, int generation, Path file, FileChannel channel) throws IOException {
+			this.id = id;
+			this.generation = generation;
+			this.file = file;
+			this.channel = channel;
+			this.size = channel.size();
+		}
+
+		static Segment open(Path directory, int id, int generation) throws IOException {
+			Path file = directory.resolve(fileName(id, generation));
+			return new Segment(id, generation, file, FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE));
+		}
+
+		static String fileName(int id, int generation) {
+			return String.format("%010d-%d%s", id, generation, SEGMENT_SUFFIX);
+		}
+
+		/**
+		 * Only called by the log while the segment is current, so never after the last release.
+		 */
+		void retain() {
+			references.incrementAndGet();
+		}
+
+		void release() {
+			if (references.decrementAndGet() == 0) {
+				try {
+					channel.close();
+					if (retired) {
+						Files.deleteIfExists(file);
+					}
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+
+		/**
+		 * Delete the file once no scan reads it anymore.
+		 */
+		void retire() {
+			retired = true;
+			release();
+		}
+	}
+
+
+	/**
+	 * Reads the records of a segment sequentially, through a buffer, up to the first torn
+	 * or corrupt one.
+	 */
+	private static final class RecordReader {
+
+		private final FileChannel channel;
+
+		private final long end;
+
+		private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+		/**
+		 * The offset following the last record read.
+		 */
+		long offset;
+
+		long recordOffset;
+
+		private int recordStart;
+
+		private int recordLength;
+
+		RecordReader(FileChannel channel, long from, long end) {
+			this.channel = channel;
+			this.end = end;
+			this.offset = from;
+			buffer.limit(0);
+		}
+
+		/**
+		 * @return the next user, or {@code null} at the end of the segment or at a torn record
+		 */
+		User next() throws IOException {
+			if (!fill(RECORD_HEADER_SIZE)) {
+				return null;
+			}
+			int start = buffer.position();
+			int payloadLength = buffer.getInt(start);
+			int crc = buffer.getInt(start + 4);
+			if (payloadLength < FIELDS_HEADER_SIZE || offset + RECORD_HEADER_SIZE + payloadLength > end) {
+				return null;
+			}
+			if (!fill(RECORD_HEADER_SIZE + payloadLength)) {
+				return null;
+			}
+			start = buffer.position();
+			CRC32 check = new CRC32();
+			check.update(buffer.array(), start + RECORD_HEADER_SIZE, payloadLength);
+			if ((int) check.getValue() != crc) {
+				return null;
+			}
+			ByteBuffer payload = ByteBuffer.wrap(buffer.array(), start + RECORD_HEADER_SIZE, payloadLength).slice();
+			User user = decode(payload);
+			recordOffset = offset;
+			recordStart = start;
+			recordLength = RECORD_HEADER_SIZE + payloadLength;
+			buffer.position(start + recordLength);
+			offset += recordLength;
+			return user;
+		}
+
+		/**
+		 * @return the bytes of the last record read
+		 */
+		ByteBuffer record() {
+			return ByteBuffer.wrap(buffer.array(), recordStart, recordLength);
+		}
+
+		/**
+		 * Make sure the buffer holds the given number of bytes from the current offset.
+		 */
+		private boolean fill(int length) throws IOException {
+			if (offset + length > end) {
+				return false;
+			}
+			if (buffer.remaining() >= length) {
+				return true;
+			}
+			if (buffer.capacity() < length) {
+				ByteBuffer larger = ByteBuffer.allocate(length);
+				larger.put(buffer);
+				buffer = larger;
+			}
+			else {
+				buffer.compact();
+			}
+			long readFrom = offset + buffer.position();
+			while (buffer.position() < length) {
+				int maxRead = (int) Math.min(buffer.remaining(), end - readFrom);
+				if (maxRead <= 0) {
+					break;
+				}
+				ByteBuffer target = buffer.duplicate();
+				target.limit(target.position() + maxRead);
+				int read = channel.read(target, readFrom);
+				if (read < 0) {
+					break;
+				}
+				buffer.position(buffer.position() + read);
+				readFrom += read;
+			}
+			buffer.flip();
+			return buffer.remaining() >= length;
+		}
+	}
+
+
+	/**
+	 * The state of a {@link #scan()}: the segments it started with, their sizes then, and
+	 * whether they held shadowed records, which are the only ones checked against the index.
+	 */
+	private final class Scanner {
+
+		private final List<Segment> segments;
+
+		private final long[] sizes;
+
+		private final boolean[] shadowing;
+
+		private int current = -1;
+
+		private RecordReader reader;
+
+		Scanner(List<Segment> segments, long[] sizes, boolean[] shadowing) {
+			this.segments = segments;
+			this.sizes = sizes;
+			this.shadowing = shadowing;
+		}
+
+		User next() {
+			try {
+				for (;;) {
+					if (reader != null) {
+						User user = reader.next();
+						if (user != null) {
+							if (!shadowing[current] || isLive(segments.get(current), reader.recordOffset, user.getUsername())) {
+								return user;
+							}
+							continue;
+						}
+						segments.get(current).release();
+					}
+					if (++current == segments.size()) {
+						reader = null;
+						return null;
+					}
+					reader = new RecordReader(segments.get(current).channel, 0, sizes[current]);
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void close() {
+			for (int i = Math.max(current, 0); i < segments.size(); i++) {
+				if (i > current || reader != null) {
+					segments.get(i).release();
+				}
+			}
+		}
+	}
+
+
+	private static final class Commit {
+
+		final long sequence;
+
+		final MonoProcessor<Void> done;
+
+		Commit(long sequence, MonoProcessor<Void> done) {
+			this.sequence = sequence;
+			this.done = done;
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package io.pivotal.literx.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.UserLog.FsyncPolicy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UserLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void writeFindAndScan() throws IOException {
+		try (UserLog log = UserLog.open(folder.getRoot().toPath(), FsyncPolicy.NONE)) {
+			log.write(User.SKYLER);
+			log.write(User.WALTER);
+			log.write(new User("wwhite", "Walter", "Black"));
+			log.commit().block();
+			// the first user written with a username wins, and shadows the later ones
+			assertEquals(User.WALTER, log.find("wwhite"));
+			assertNull(log.find("jpinkman"));
+			assertEquals(Arrays.asList(User.SKYLER, User.WALTER), log.scan().collectList().block());
+			assertEquals(2, log.size());
+		}
+	}
+
+	@Test
+	public void recoverFromSnapshotAndTail() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		List<User> users = users(0, 3000);
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE, 4096, 1000)) {
+			users.forEach(log::write);
+		}
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE, 4096, 1000)) {
+			assertEquals(users, log.scan().collectList().block());
+			assertEquals(users.get(2500), log.find("u2500"));
+			log.write(User.SAUL);
+		}
+		// without the snapshot, the whole log is replayed
+		Files.delete(directory.resolve("index.snapshot"));
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE, 4096, 1000)) {
+			assertEquals(users.size() + 1, log.size());
+			assertEquals(User.SAUL, log.find("sgoodman"));
+		}
+	}
+
+	@Test
+	public void truncateTornRecord() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE)) {
+			log.write(User.SKYLER);
+			log.write(User.JESSE);
+		}
+		Files.delete(directory.resolve("index.snapshot"));
+		Path segment = onlySegment(directory);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE)) {
+			assertEquals(1, log.size());
+			log.write(User.WALTER);
+			assertEquals(2, log.scan().count().block().intValue());
+			assertEquals(User.WALTER, log.find("wwhite"));
+		}
+	}
+
+	@Test
+	public void groupCommitSharesForces() throws Exception {
+		int writers = 8;
+		int commitsPerWriter = 50;
+		try (UserLog log = UserLog.open(folder.getRoot().toPath(), FsyncPolicy.GROUP)) {
+			ExecutorService executor = Executors.newFixedThreadPool(writers);
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				int writer = w;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < commitsPerWriter; i++) {
+						log.write(new User("u" + writer + "-" + i, "F", "L"));
+						log.commit().block();
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+			assertEquals(writers * commitsPerWriter, log.size());
+			assertTrue("forces " + log.getForceCount(), log.getForceCount() < writers * commitsPerWriter);
+		}
+	}
+
+	@Test
+	public void commitAfterCloseFails() throws IOException {
+		UserLog log = UserLog.open(folder.getRoot().toPath(), FsyncPolicy.GROUP);
+		log.write(User.SKYLER);
+		log.close();
+		try {
+			log.commit().block(Duration.ofSeconds(5));
+			fail();
+		}
+		catch (IllegalStateException e) {
+			assertEquals("Log is closed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void compactShadowedRecords() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		List<User> originals = users(0, 200);
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE, 1024, 1_000_000)) {
+			List<User> shadowed = users(0, 200).stream().map(user -> new User(user.getUsername(), "Other", "Name"))
+					.collect(Collectors.toList());
+			originals.forEach(log::write);
+			shadowed.forEach(log::write);
+			log.write(User.SAUL);
+			List<User> expected = new ArrayList<>(originals);
+			expected.add(User.SAUL);
+			// compaction runs on the maintenance thread, after any compaction started on its own
+			log.compact().block();
+			assertTrue(segmentBytes(directory) < recordBytes(expected) + recordBytes(shadowed));
+			// compacting reclaims disk space without changing what the log holds
+			assertEquals(expected, log.scan().collectList().block());
+			assertEquals(expected.size(), log.size());
+			assertEquals(originals.get(150), log.find("u150"));
+		}
+		try (UserLog log = UserLog.open(directory, FsyncPolicy.NONE, 1024, 1_000_000)) {
+			assertEquals(originals.get(150), log.find("u150"));
+			assertEquals(User.SAUL, log.find("sgoodman"));
+		}
+	}
+
+	@Test
+	public void scanKeepsReadingCompactedSegments() throws IOException {
+		try (UserLog log = UserLog.open(folder.getRoot().toPath(), FsyncPolicy.NONE, 1024, 1_000_000)) {
+			// a third of the records shadowed, too few for a compaction to start on its own,
+			// interleaved with live ones that the compaction moves
+			users(0, 200).forEach(log::write);
+			for (int i = 200; i < 400; i++) {
+				log.write(users(i, i + 1).get(0));
+				log.write(new User("u" + (i - 200), "Other", "Name"));
+			}
+			log.write(User.SAUL);
+			List<User> scanned = log.scan().collectList().block();
+			assertEquals(401, scanned.size());
+			Iterable<User> scan = log.scan().toIterable(1);
+			List<User> during = new ArrayList<>();
+			boolean compacted = false;
+			for (User user : scan) {
+				during.add(user);
+				if (!compacted) {
+					log.compact().block();
+					compacted = true;
+				}
+			}
+			assertEquals(scanned, during);
+		}
+	}
+
+
+	private static List<User> users(int from, int to) {
+		List<User> users = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			users.add(new User("u" + i, "F" + i, "L" + i % 7));
+		}
+		return users;
+	}
+
+	/**
+	 * @return the size of the records of the given ASCII users
+	 */
+	private static long recordBytes(List<User> users) {
+		return users.stream()
+				.mapToLong(user -> 14 + user.getUsername().length() + user.getFirstname().length() + user.getLastname().length())
+				.sum();
+	}
+
+	private static long segmentBytes(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.toString().endsWith(".log")).mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	private static Path onlySegment(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			List<Path> segments = files.filter(file -> file.toString().endsWith(".log")).collect(Collectors.toList());
+			assertEquals(1, segments.size());
+			return segments.get(0);
+		}
+	}
+
+}
@@ -0,0 +1,285 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Cancellation;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * Drains a {@link Publisher} into a {@link BlockingRepository} in batches, each batch being
+ * written with a single {@link BlockingRepository#saveAll(Iterable)} call.
+ *
+ * A batch is written once it holds {@code batchSize} elements or once {@code maxLinger}
+ * elapsed since its first element arrived, by at most {@code maxWriters} concurrent
+ * writers. At most {@code batchSize * maxWriters} elements are requested but not yet
+ * written, so a slow repository throttles the upstream instead of filling memory.
+ */
+public final class WriteBehind {
+
+	private WriteBehind() {
+	}
+
+	/**
+	 * Write on {@link Schedulers#elastic()}, which starts at most {@code maxWriters} threads
+	 * for this sink.
+	 * @return a {@link Mono} completing once every element is written
+	 */
+	public static <T> Mono<Void> saveAll(Publisher<? extends T> source, BlockingRepository<T> repository, int batchSize,
+			Duration maxLinger, int maxWriters) {
+		return saveAll(source, repository, batchSize, maxLinger, maxWriters, Schedulers.elastic(), Schedulers.timer());
+	}
+
+	/**
+	 * @param writers the scheduler running the blocking writes
+	 * @param timer the scheduler measuring how long a batch lingers
+	 * @return a {@link Mono} completing once every element is written
+	 */
+	public static <T> Mono<Void> saveAll(Publisher<? extends T> source, BlockingRepository<T> repository, int batchSize,
+			Duration maxLinger, int maxWriters, Scheduler writers, TimedScheduler timer) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive, was " + batchSize);
+		}
+		if (maxWriters <= 0) {
+			throw new IllegalArgumentException("maxWriters must be positive, was " + maxWriters);
+		}
+		long maxLingerInMs = maxLinger.toMillis();
+		return Mono.from(subscriber -> source.subscribe(
+				new WriteBehindSubscriber<>(subscriber, repository, batchSize, maxLingerInMs, maxWriters, writers, timer)));
+	}
+
+
+	/**
+	 * The state is shared by the upstream, the linger timer and the writers, and guarded by
+	 * the subscriber's monitor. Blocking writes happen outside of it.
+	 */
+	private static final class WriteBehindSubscriber<T> implements Subscriber<T>, Subscription {
+
+		private final Subscriber<? super Void> actual;
+
+		private final BlockingRepository<T> repository;
+
+		private final int batchSize;
+
+		private final long maxLingerInMs;
+
+		private final int maxWriters;
+
+		private final Scheduler writers;
+
+		private final TimedScheduler.TimedWorker timer;
+
+		private final Queue<List<T>> pending = new ArrayDeque<>();
+
+		private Subscription upstream;
+
+		private List<T> batch;
+
+		private Cancellation linger;
+
+		private int activeWriters;
+
+		private boolean done;
+
+		private boolean terminated;
+
+
+		WriteBehindSubscriber(Subscriber<? super Void> actual, BlockingRepository<T> repository, int batchSize,
+				long maxLingerInMs, int maxWriters, Scheduler writers, TimedScheduler timer) {
+			this.actual = actual;
+			this.repository = repository;
+			this.batchSize = batchSize;
+			this.maxLingerInMs = maxLingerInMs;
+			this.maxWriters = maxWriters;
+			this.writers = writers;
+			this.timer = timer.createWorker();
+		}
+
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			upstream = s;
+			actual.onSubscribe(this);
+			s.request((long) batchSize * maxWriters);
+		}
+
+		@Override
+		public void onNext(T t) {
+			List<T> toWrite = null;
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				if (batch == null) {
+					List<T> opened = new ArrayList<>(batchSize);
+					batch = opened;
+					linger = timer.schedule(() -> flush(opened), maxLingerInMs, TimeUnit.MILLISECONDS);
+				}
+				batch.add(t);
+				if (batch.size() == batchSize) {
+					toWrite = closeBatch();
+				}
+			}
+			if (toWrite != null) {
+				write(toWrite);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			fail(t, false);
+		}
+
+		@Override
+		public void onComplete() {
+			List<T> toWrite;
+			boolean complete;
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				done = true;
+				toWrite = closeBatch();
+				complete = completeIfDone();
+			}
+			if (toWrite != null) {
+				write(toWrite);
+			}
+			else if (complete) {
+				actual.onComplete();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			// a Mono<Void> never emits, there is no demand to track
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				terminate();
+			}
+			upstream.cancel();
+		}
+
+
+		private void flush(List<T> lingering) {
+			List<T> toWrite;
+			synchronized (this) {
+				if (terminated || batch != lingering) {
+					// already written because it filled up
+					return;
+				}
+				toWrite = closeBatch();
+			}
+			if (toWrite != null) {
+				write(toWrite);
+			}
+		}
+
+		/**
+		 * Close the open batch, handing it to a writer or queueing it if they are all busy.
+		 * Must be called while holding the monitor, in the same critical section as the
+		 * change that closes the batch, so completion cannot be observed in between.
+		 * @return the batch to write, or {@code null} if there is none or it was queued
+		 */
+		private List<T> closeBatch() {
+			List<T> closed = batch;
+			batch = null;
+			if (linger != null) {
+				linger.dispose();
+				linger = null;
+			}
+			if (closed == null) {
+				return null;
+			}
+			if (activeWriters == maxWriters) {
+				pending.offer(closed);
+				return null;
+			}
+			activeWriters++;
+			return closed;
+		}
+
+		private void write(List<T> toWrite) {
+			if (writers.schedule(() -> run(toWrite)) == Scheduler.REJECTED) {
+				fail(new RejectedExecutionException("Writer rejected by " + writers), true);
+			}
+		}
+
+		private void run(List<T> toWrite) {
+			try {
+				repository.saveAll(toWrite);
+			}
+			catch (Throwable e) {
+				fail(e, true);
+				return;
+			}
+			List<T> next;
+			boolean complete;
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				next = pending.poll();
+				if (next == null) {
+					activeWriters--;
+				}
+				complete = completeIfDone();
+			}
+			if (complete) {
+				actual.onComplete();
+				return;
+			}
+			// the written elements leave the window, let as many new ones in
+			upstream.request(toWrite.size());
+			if (next != null) {
+				write(next);
+			}
+		}
+
+		private boolean completeIfDone() {
+			if (done && batch == null && pending.isEmpty() && activeWriters == 0) {
+				terminate();
+				return true;
+			}
+			return false;
+		}
+
+		private void fail(Throwable e, boolean cancelUpstream) {
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				terminate();
+			}
+			if (cancelUpstream) {
+				upstream.cancel();
+			}
+			actual.onError(e);
+		}
+
+		private void terminate() {
+			terminated = true;
+			batch = null;
+			pending.clear();
+			timer.shutdown();
+		}
+	}
+
+}
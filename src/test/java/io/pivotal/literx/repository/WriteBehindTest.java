@@ -0,0 +1,165 @@
+package io.pivotal.literx.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.scheduler.VirtualTimeScheduler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class WriteBehindTest {
+
+	@Test
+	public void writeFullBatches() {
+		RecordingRepository repository = new RecordingRepository(0);
+		ScriptedSubscriber.create()
+				.expectComplete()
+				.verify(WriteBehind.saveAll(Flux.range(0, 10), repository, 4, Duration.ofSeconds(10), 1));
+		assertEquals(Arrays.asList(4, 4, 2), repository.batchSizes);
+		assertEquals(10, repository.saved.size());
+	}
+
+	@Test
+	public void writeLingeringBatch() {
+		VirtualTimeScheduler timer = new VirtualTimeScheduler();
+		RecordingRepository repository = new RecordingRepository(0);
+		MonoProcessor<Void> done = WriteBehind.saveAll(Flux.range(0, 3).concatWith(Flux.never()), repository, 4,
+				Duration.ofMillis(100), 1, Schedulers.immediate(), timer).subscribe();
+		assertEquals(Collections.emptyList(), repository.batchSizes);
+		timer.advanceTimeBy(Duration.ofMillis(99));
+		assertEquals(Collections.emptyList(), repository.batchSizes);
+		timer.advanceTimeBy(Duration.ofMillis(1));
+		assertEquals(Collections.singletonList(3), repository.batchSizes);
+		done.cancel();
+	}
+
+	@Test
+	public void slowRepositoryThrottlesUpstream() {
+		RecordingRepository repository = new RecordingRepository(5);
+		AtomicLong requested = new AtomicLong();
+		AtomicLong maxUnwritten = new AtomicLong();
+		Flux<Integer> source = Flux.range(0, 1000)
+				.doOnRequest(n -> maxUnwritten.accumulateAndGet(requested.addAndGet(n) - repository.saved.size(), Math::max));
+		ScriptedSubscriber.create()
+				.expectComplete()
+				.verify(WriteBehind.saveAll(source, repository, 10, Duration.ofMillis(1), 4));
+		assertEquals(1000, repository.saved.size());
+		assertTrue("concurrent writers: " + repository.maxConcurrentWrites, repository.maxConcurrentWrites.get() <= 4);
+		// requested elements not yet written never exceed batchSize * maxWriters
+		assertTrue("requested but not written: " + maxUnwritten, maxUnwritten.get() <= 10 * 4);
+	}
+
+	@Test
+	public void writeFailure() {
+		RecordingRepository repository = new RecordingRepository(0) {
+			@Override
+			public void saveAll(Iterable<Integer> values) {
+				throw new IllegalStateException("disk full");
+			}
+		};
+		AtomicInteger cancellations = new AtomicInteger();
+		ScriptedSubscriber.create()
+				.expectError(IllegalStateException.class)
+				.verify(WriteBehind.saveAll(Flux.range(0, 100).doOnCancel(cancellations::incrementAndGet), repository, 10,
+						Duration.ofSeconds(10), 1));
+		assertEquals(1, cancellations.get());
+	}
+
+	@Test
+	public void saveReactiveUsersToBlockingRepository() {
+		ReactiveRepository<User> reactiveRepository = new ReactiveUserRepository(0);
+		BlockingUserRepository blockingRepository = new BlockingUserRepository(new User[]{});
+		ScriptedSubscriber.create()
+				.expectComplete()
+				.verify(WriteBehind.saveAll(reactiveRepository.findAll(), blockingRepository, 100, Duration.ofMillis(10), 4));
+		// one blocking saveAll for the whole batch instead of one blocking save per user
+		assertEquals(1, blockingRepository.getCallCount());
+		Iterator<User> it = blockingRepository.findAll().iterator();
+		assertEquals(User.SKYLER, it.next());
+		assertEquals(User.JESSE, it.next());
+		assertEquals(User.WALTER, it.next());
+		assertEquals(User.SAUL, it.next());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void saveAllInOneRoundTrip() {
+		BlockingUserRepository repository = new BlockingUserRepository(new User[]{});
+		repository.saveAll(Arrays.asList(User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+		assertEquals(1, repository.getCallCount());
+		assertEquals(User.SAUL, repository.findById("sgoodman"));
+	}
+
+
+	private static class RecordingRepository implements BlockingRepository<Integer> {
+
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+		final List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+
+		final AtomicInteger concurrentWrites = new AtomicInteger();
+
+		final AtomicInteger maxConcurrentWrites = new AtomicInteger();
+
+		private final long delayInMs;
+
+		RecordingRepository(long delayInMs) {
+			this.delayInMs = delayInMs;
+		}
+
+		@Override
+		public void saveAll(Iterable<Integer> values) {
+			maxConcurrentWrites.accumulateAndGet(concurrentWrites.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(delayInMs);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			int size = 0;
+			for (Integer value : values) {
+				saved.add(value);
+				size++;
+			}
+			batchSizes.add(size);
+			concurrentWrites.decrementAndGet();
+		}
+
+		@Override
+		public void save(Integer value) {
+			saveAll(Collections.singletonList(value));
+		}
+
+		@Override
+		public Integer findFirst() {
+			synchronized (saved) {
+				return saved.isEmpty() ? null : saved.get(0);
+			}
+		}
+
+		@Override
+		public Iterable<Integer> findAll() {
+			return saved;
+		}
+
+		@Override
+		public Integer findById(String id) {
+			Integer value = Integer.valueOf(id);
+			return saved.contains(value) ? value : null;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package io.pivotal.literx.scheduler;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.pivotal.literx.scheduler.BoundedElasticScheduler.RejectionPolicy;
+import reactor.core.Cancellation;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Schedulers for bridging blocking calls. They run each call on its own virtual thread
+ * when the JDK supports them, which makes a parked blocking call cost a few hundred bytes
+ * instead of a platform thread, and fall back to a {@link BoundedElasticScheduler} on
+ * older JDKs like the Java 8 this project targets.
+ */
+public final class BlockingIoSchedulers {
+
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+	private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+	private static final boolean VIRTUAL_THREADS_AVAILABLE = newVirtualThreadFactory("probe") != null;
+
+
+	private BlockingIoSchedulers() {
+	}
+
+
+	public static boolean isVirtualThreadsAvailable() {
+		return VIRTUAL_THREADS_AVAILABLE;
+	}
+
+	/**
+	 * @param name the prefix of the thread names
+	 */
+	public static Scheduler newBlockingIo(String name) {
+		Scheduler scheduler = newVirtualThreadScheduler(name);
+		return scheduler != null ? scheduler : new BoundedElasticScheduler(name);
+	}
+
+	/**
+	 * @param name the prefix of the thread names
+	 * @param fallbackMaxThreads the maximum number of threads when falling back to platform threads
+	 * @param fallbackQueueCapacity the maximum number of queued calls when falling back to platform threads
+	 */
+	public static Scheduler newBlockingIo(String name, int fallbackMaxThreads, int fallbackQueueCapacity) {
+		Scheduler scheduler = newVirtualThreadScheduler(name);
+		return scheduler != null ? scheduler : new BoundedElasticScheduler(name, fallbackMaxThreads, fallbackQueueCapacity,
+				Duration.ofSeconds(60), RejectionPolicy.ABORT);
+	}
+
+
+	private static Scheduler newVirtualThreadScheduler(String name) {
+		ThreadFactory threadFactory = newVirtualThreadFactory(name);
+		if (threadFactory == null) {
+			return null;
+		}
+		try {
+			return new VirtualThreadScheduler((ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory));
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * {@code Thread.ofVirtual().name(name + "-", 1).factory()}, or {@code null} if virtual
+	 * threads are not available, including when they are a preview feature that is not enabled.
+	 */
+	private static ThreadFactory newVirtualThreadFactory(String name) {
+		if (OF_VIRTUAL == null || NEW_THREAD_PER_TASK_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+		try {
+			return type.getMethod(name, parameterTypes);
+		}
+		catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Starts a virtual thread per task. Workers trampoline their tasks so they run one at a
+	 * time and in order.
+	 */
+	private static final class VirtualThreadScheduler implements Scheduler {
+
+		private final ExecutorService executor;
+
+		private final Scheduler delegate;
+
+		VirtualThreadScheduler(ExecutorService executor) {
+			this.executor = executor;
+			this.delegate = Schedulers.fromExecutor(executor, true);
+		}
+
+		@Override
+		public Cancellation schedule(Runnable task) {
+			return delegate.schedule(task);
+		}
+
+		@Override
+		public Worker createWorker() {
+			return delegate.createWorker();
+		}
+
+		@Override
+		public void shutdown() {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package io.pivotal.literx.scheduler;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.BlockingRepository;
+import io.pivotal.literx.repository.BlockingUserRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class BlockingIoSchedulersTest {
+
+	@Test
+	public void bridgeBlockingRepository() {
+		Scheduler scheduler = BlockingIoSchedulers.newBlockingIo("blocking-io");
+		try {
+			assertEquals(!BlockingIoSchedulers.isVirtualThreadsAvailable(), scheduler instanceof BoundedElasticScheduler);
+			BlockingRepository<User> repository = new BlockingUserRepository(0);
+			ScriptedSubscriber.create()
+					.expectNext(User.WALTER)
+					.expectComplete()
+					.verify(Mono.fromCallable(() -> repository.findById("wwhite")).subscribeOn(scheduler));
+			ScriptedSubscriber.<String>create()
+					.consumeNextWith(name -> assertTrue(name, name.startsWith("blocking-io-")))
+					.expectComplete()
+					.verify(Mono.fromCallable(() -> Thread.currentThread().getName()).subscribeOn(scheduler));
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,288 @@
+package io.pivotal.literx.scheduler;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import reactor.core.Cancellation;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link Scheduler} for blocking I/O, like {@link reactor.core.scheduler.Schedulers#elastic()}
+ * but with a capped number of threads, evicted once idle, and a bounded task queue. Tasks
+ * submitted while the queue is full are handled according to a {@link RejectionPolicy}.
+ *
+ * Queue depth, pool size, rejections and the time tasks wait before running are exposed
+ * as metrics. A task that throws is reported to the uncaught exception handler of its
+ * thread, as Reactor's own schedulers do, without affecting the tasks after it.
+ */
+public class BoundedElasticScheduler implements Scheduler {
+
+	public enum RejectionPolicy {
+
+		/**
+		 * Report the task as {@link Scheduler#REJECTED} to Reactor, which fails the sequence.
+		 */
+		ABORT,
+
+		/**
+		 * Run the task on the submitting thread, which throttles the producer.
+		 */
+		CALLER_RUNS
+	}
+
+
+	private static final int DEFAULT_MAX_THREADS = 10 * Runtime.getRuntime().availableProcessors();
+
+	private static final int DEFAULT_QUEUE_CAPACITY = 100_000;
+
+	private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(60);
+
+	private final ThreadPoolExecutor executor;
+
+	private final LongAdder rejectedTasks = new LongAdder();
+
+	private final LongAdder startedTasks = new LongAdder();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+
+	public BoundedElasticScheduler(String name) {
+		this(name, DEFAULT_MAX_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_IDLE_TIMEOUT, RejectionPolicy.ABORT);
+	}
+
+	/**
+	 * @param name the prefix of the thread names
+	 * @param maxThreads the maximum number of threads
+	 * @param queueCapacity the maximum number of tasks waiting for a thread
+	 * @param idleTimeout how long a thread can stay idle before being evicted
+	 * @param rejectionPolicy what to do with tasks submitted while the queue is full
+	 */
+	public BoundedElasticScheduler(String name, int maxThreads, int queueCapacity, Duration idleTimeout,
+			RejectionPolicy rejectionPolicy) {
+		RejectedExecutionHandler handler = rejectionPolicy == RejectionPolicy.CALLER_RUNS ?
+				new ThreadPoolExecutor.CallerRunsPolicy() : new ThreadPoolExecutor.AbortPolicy();
+		RejectedExecutionHandler countingHandler = (task, executor) -> {
+			rejectedTasks.increment();
+			handler.rejectedExecution(task, executor);
+		};
+		// core == max and core threads time out: grow up to the cap before queueing, shrink when idle
+		this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, idleTimeout.toNanos(), TimeUnit.NANOSECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new NamedDaemonThreadFactory(name), countingHandler);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+
+	@Override
+	public Cancellation schedule(Runnable task) {
+		TimedTask timedTask = new TimedTask(task);
+		try {
+			executor.execute(timedTask);
+		}
+		catch (RejectedExecutionException e) {
+			return REJECTED;
+		}
+		return timedTask;
+	}
+
+	@Override
+	public Worker createWorker() {
+		return new SerializedWorker();
+	}
+
+	@Override
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getPoolSize() {
+		return executor.getPoolSize();
+	}
+
+	public int getLargestPoolSize() {
+		return executor.getLargestPoolSize();
+	}
+
+	public int getActiveThreads() {
+		return executor.getActiveCount();
+	}
+
+	public long getRejectedTasks() {
+		return rejectedTasks.sum();
+	}
+
+	public long getStartedTasks() {
+		return startedTasks.sum();
+	}
+
+	/**
+	 * @return the average time tasks waited in the queue before running
+	 */
+	public Duration getAverageWaitTime() {
+		long started = startedTasks.sum();
+		return started == 0 ? Duration.ZERO : Duration.ofNanos(totalWaitNanos.sum() / started);
+	}
+
+	/**
+	 * @return the longest time a task waited in the queue before running
+	 */
+	public Duration getMaxWaitTime() {
+		return Duration.ofNanos(maxWaitNanos.get());
+	}
+
+
+	private static void runReportingErrors(Runnable task) {
+		try {
+			task.run();
+		}
+		catch (Throwable e) {
+			Exceptions.throwIfFatal(e);
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+
+
+	private final class TimedTask implements Runnable, Cancellation {
+
+		private final Runnable task;
+
+		private final long submittedAt = System.nanoTime();
+
+		private volatile boolean cancelled;
+
+		TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long waitNanos = System.nanoTime() - submittedAt;
+			startedTasks.increment();
+			totalWaitNanos.add(waitNanos);
+			maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+			if (!cancelled) {
+				runReportingErrors(task);
+			}
+		}
+
+		@Override
+		public void dispose() {
+			cancelled = true;
+			executor.remove(this);
+		}
+	}
+
+	/**
+	 * Runs the tasks of a worker one at a time and in order, as operators like
+	 * {@code publishOn} expect, by draining them from a single pool thread at a time.
+	 */
+	private final class SerializedWorker implements Worker, Runnable {
+
+		private final Queue<WorkerTask> tasks = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private volatile boolean shutdown;
+
+		@Override
+		public Cancellation schedule(Runnable task) {
+			if (shutdown) {
+				return REJECTED;
+			}
+			WorkerTask workerTask = new WorkerTask(task);
+			tasks.offer(workerTask);
+			if (wip.getAndIncrement() == 0 && BoundedElasticScheduler.this.schedule(this) == REJECTED) {
+				// only this task is rejected: the ones other threads queued since were already
+				// accepted and rely on this drain, which runs them here instead
+				tasks.remove(workerTask);
+				run();
+				return REJECTED;
+			}
+			return workerTask;
+		}
+
+		@Override
+		public void shutdown() {
+			shutdown = true;
+			tasks.clear();
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			for (;;) {
+				WorkerTask task;
+				while ((task = tasks.poll()) != null) {
+					if (shutdown) {
+						tasks.clear();
+						return;
+					}
+					task.run();
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+	private static final class WorkerTask implements Runnable, Cancellation {
+
+		private final Runnable task;
+
+		private volatile boolean cancelled;
+
+		WorkerTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			if (!cancelled) {
+				runReportingErrors(task);
+			}
+		}
+
+		@Override
+		public void dispose() {
+			cancelled = true;
+		}
+	}
+
+	private static final class NamedDaemonThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		NamedDaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package io.pivotal.literx.scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.pivotal.literx.domain.User;
+import io.pivotal.literx.repository.BlockingRepository;
+import io.pivotal.literx.repository.BlockingUserRepository;
+import io.pivotal.literx.scheduler.BoundedElasticScheduler.RejectionPolicy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.subscriber.ScriptedSubscriber;
+
+public class BoundedElasticSchedulerTest {
+
+	private BoundedElasticScheduler scheduler;
+
+	@After
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void bridgeBlockingRepository() {
+		scheduler = new BoundedElasticScheduler("blocking-io");
+		BlockingRepository<User> repository = new BlockingUserRepository(0);
+		ScriptedSubscriber.create()
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.expectComplete()
+				.verify(Flux.defer(() -> Flux.fromIterable(repository.findAll())).subscribeOn(scheduler));
+		assertEquals(1, scheduler.getStartedTasks());
+	}
+
+	@Test
+	public void capsThreadsAndRejectsWhenQueueIsFull() throws Exception {
+		scheduler = new BoundedElasticScheduler("blocking-io", 2, 1, Duration.ofSeconds(60), RejectionPolicy.ABORT);
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable blocking = () -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		scheduler.schedule(blocking);
+		scheduler.schedule(blocking);
+		scheduler.schedule(blocking);
+		assertSame(Scheduler.REJECTED, scheduler.schedule(blocking));
+		assertEquals(2, scheduler.getPoolSize());
+		assertEquals(1, scheduler.getQueueDepth());
+		assertEquals(1, scheduler.getRejectedTasks());
+		release.countDown();
+	}
+
+	@Test
+	public void evictsIdleThreads() throws Exception {
+		scheduler = new BoundedElasticScheduler("blocking-io", 4, 10, Duration.ofMillis(10), RejectionPolicy.ABORT);
+		CountDownLatch done = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			scheduler.schedule(done::countDown);
+		}
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (scheduler.getPoolSize() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, scheduler.getPoolSize());
+	}
+
+	@Test
+	public void workerKeepsRunningAfterAFailingTask() throws Exception {
+		scheduler = new BoundedElasticScheduler("blocking-io");
+		Scheduler.Worker worker = scheduler.createWorker();
+		CountDownLatch done = new CountDownLatch(1);
+		worker.schedule(() -> {
+			throw new IllegalStateException("Expected failure");
+		});
+		worker.schedule(done::countDown);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void workerRejectsOnlyTheTaskItCannotSchedule() throws Exception {
+		scheduler = new BoundedElasticScheduler("blocking-io", 1, 1, Duration.ofSeconds(60), RejectionPolicy.ABORT);
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable blocking = () -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		scheduler.schedule(blocking);
+		scheduler.schedule(blocking);
+		Scheduler.Worker worker = scheduler.createWorker();
+		AtomicInteger runs = new AtomicInteger();
+		assertSame(Scheduler.REJECTED, worker.schedule(runs::incrementAndGet));
+		release.countDown();
+		CountDownLatch done = new CountDownLatch(1);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (worker.schedule(done::countDown) == Scheduler.REJECTED && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	public void workerRunsTasksInOrder() throws Exception {
+		scheduler = new BoundedElasticScheduler("blocking-io");
+		ScriptedSubscriber.create()
+				.expectNextCount(10_000)
+				.expectComplete()
+				.verify(Flux.range(0, 10_000)
+						.publishOn(scheduler)
+						.scan(-1, (previous, i) -> {
+							if (i != previous + 1) {
+								throw new IllegalStateException(i + " received after " + previous);
+							}
+							return i;
+						})
+						.skip(1));
+	}
+
+}
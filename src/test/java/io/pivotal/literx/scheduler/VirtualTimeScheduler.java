@@ -0,0 +1,235 @@
+package io.pivotal.literx.scheduler;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.Cancellation;
+import reactor.core.scheduler.TimedScheduler;
+
+/**
+ * {@link TimedScheduler} driven by a virtual clock: tasks only run when the clock is moved
+ * forward with {@link #advanceTimeBy(Duration)}, on the calling thread, so simulated
+ * delays of any length cost no real time.
+ */
+public class VirtualTimeScheduler implements TimedScheduler {
+
+	private final PriorityQueue<Task> queue = new PriorityQueue<>();
+
+	private long nanoTime;
+
+	private long sequence;
+
+
+	@Override
+	public Cancellation schedule(Runnable task) {
+		return schedule(task, 0, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public Cancellation schedule(Runnable task, long delay, TimeUnit unit) {
+		return enqueue(task, unit.toNanos(delay), 0);
+	}
+
+	@Override
+	public Cancellation schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive, was " + period);
+		}
+		return enqueue(task, unit.toNanos(initialDelay), unit.toNanos(period));
+	}
+
+	@Override
+	public synchronized long now(TimeUnit unit) {
+		return unit.convert(nanoTime, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public TimedWorker createWorker() {
+		return new VirtualTimeWorker();
+	}
+
+	/**
+	 * Run the tasks that are due without moving the clock.
+	 */
+	public void advanceTime() {
+		advanceTimeBy(Duration.ZERO);
+	}
+
+	/**
+	 * Move the clock forward, running the tasks that become due in order of due time.
+	 */
+	public void advanceTimeBy(Duration duration) {
+		long target;
+		synchronized (this) {
+			target = nanoTime + duration.toNanos();
+		}
+		for (;;) {
+			Task task;
+			synchronized (this) {
+				task = queue.peek();
+				if (task == null || task.dueTime > target) {
+					nanoTime = target;
+					return;
+				}
+				queue.poll();
+				nanoTime = Math.max(nanoTime, task.dueTime);
+				if (task.period > 0 && !task.cancelled) {
+					task.dueTime += task.period;
+					task.sequence = sequence++;
+					queue.add(task);
+				}
+			}
+			if (!task.cancelled) {
+				task.runnable.run();
+			}
+		}
+	}
+
+
+	private synchronized Task enqueue(Runnable runnable, long delayInNanos, long periodInNanos) {
+		Task task = new Task(runnable, nanoTime + delayInNanos, periodInNanos, sequence++);
+		queue.add(task);
+		return task;
+	}
+
+	private synchronized void remove(Task task) {
+		queue.remove(task);
+	}
+
+
+	private final class Task implements Comparable<Task>, Cancellation {
+
+		final Runnable runnable;
+
+		final long period;
+
+		long dueTime;
+
+		long sequence;
+
+		volatile boolean cancelled;
+
+		Task(Runnable runnable, long dueTime, long period, long sequence) {
+			this.runnable = runnable;
+			this.dueTime = dueTime;
+			this.period = period;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			int byTime = Long.compare(dueTime, other.dueTime);
+			return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+		}
+
+		@Override
+		public void dispose() {
+			cancelled = true;
+			remove(this);
+		}
+	}
+
+	private final class VirtualTimeWorker implements TimedWorker {
+
+		private final Set<Cancellation> tasks = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+		private volatile boolean shutdown;
+
+		@Override
+		public Cancellation schedule(Runnable task) {
+			return schedule(task, 0, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * One-shot tasks stop being tracked once they run, so that a long-lived worker does
+		 * not retain every task it ever ran.
+		 */
+		@Override
+		public Cancellation schedule(Runnable task, long delay, TimeUnit unit) {
+			if (shutdown) {
+				return REJECTED;
+			}
+			OneShotTask oneShot = new OneShotTask(task);
+			tasks.add(oneShot);
+			oneShot.schedule(delay, unit);
+			if (shutdown) {
+				oneShot.dispose();
+				return REJECTED;
+			}
+			return oneShot;
+		}
+
+		@Override
+		public Cancellation schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+			return track(VirtualTimeScheduler.this.schedulePeriodically(task, initialDelay, period, unit));
+		}
+
+		@Override
+		public long now(TimeUnit unit) {
+			return VirtualTimeScheduler.this.now(unit);
+		}
+
+		@Override
+		public void shutdown() {
+			shutdown = true;
+			tasks.forEach(Cancellation::dispose);
+			tasks.clear();
+		}
+
+		private Cancellation track(Cancellation task) {
+			if (shutdown) {
+				task.dispose();
+				return REJECTED;
+			}
+			tasks.add(task);
+			return () -> {
+				tasks.remove(task);
+				task.dispose();
+			};
+		}
+
+
+		private final class OneShotTask implements Runnable, Cancellation {
+
+			private final Runnable task;
+
+			private volatile Cancellation scheduled;
+
+			private volatile boolean disposed;
+
+			OneShotTask(Runnable task) {
+				this.task = task;
+			}
+
+			void schedule(long delay, TimeUnit unit) {
+				scheduled = VirtualTimeScheduler.this.schedule(this, delay, unit);
+				if (disposed) {
+					scheduled.dispose();
+				}
+			}
+
+			@Override
+			public void run() {
+				tasks.remove(this);
+				if (!disposed) {
+					task.run();
+				}
+			}
+
+			@Override
+			public void dispose() {
+				disposed = true;
+				tasks.remove(this);
+				Cancellation scheduled = this.scheduled;
+				if (scheduled != null) {
+					scheduled.dispose();
+				}
+			}
+		}
+	}
+
+}